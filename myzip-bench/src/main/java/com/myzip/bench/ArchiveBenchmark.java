@@ -0,0 +1,94 @@
+package com.myzip.bench;
+
+import com.myzip.core.ArchiveManager;
+import com.myzip.core.CodecSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ArchiveBenchmark measures the whole pipeline: duplicate detection, type
+ * detection, codec choice, compression and writing the container for
+ * createArchive, and reading, decompression and verification for
+ * extractArchive. The file set mixes every corpus and includes exact
+ * duplicates, like a real directory would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ArchiveBenchmark {
+
+    /** "static" uses the codec per file type, "auto" the trial-compression selector */
+    @Param({"static", "auto"})
+    public String selection;
+
+    @Param({"131072"})
+    public int fileSize;
+
+    @Param({"4"})
+    public int filesPerCorpus;
+
+    private List<ArchiveManager.FileEntry> files;
+    private File directory;
+    private File createTarget;
+    private File extractSource;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        files = new ArrayList<>();
+        for (Corpus corpus : Corpus.values()) {
+            String folder = corpus.name().toLowerCase();
+            for (int i = 0; i < filesPerCorpus; i++) {
+                String name = "file" + i + "." + corpus.getExtension();
+                files.add(new ArchiveManager.FileEntry(folder + "/" + name, name, corpus.generate(fileSize, i)));
+            }
+            // One exact copy per corpus for the duplicate path
+            String name = "copy." + corpus.getExtension();
+            files.add(new ArchiveManager.FileEntry(folder + "/" + name, name, corpus.generate(fileSize, 0)));
+        }
+
+        directory = Files.createTempDirectory("myzip-bench").toFile();
+        createTarget = new File(directory, "create.myzip");
+        extractSource = new File(directory, "extract.myzip");
+        newManager().createArchive(files, extractSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        createTarget.delete();
+        extractSource.delete();
+        directory.delete();
+    }
+
+    private ArchiveManager newManager() {
+        ArchiveManager manager = new ArchiveManager();
+        if (selection.equals("auto")) {
+            manager.setCodecSelector(new CodecSelector());
+        }
+        return manager;
+    }
+
+    @Benchmark
+    public ArchiveManager.CompressionResult createArchive() throws Exception {
+        return newManager().createArchive(files, createTarget);
+    }
+
+    @Benchmark
+    public ArchiveManager.DecompressionResult extractArchive() throws Exception {
+        ArchiveManager.DecompressionResult result = new ArchiveManager().extractArchive(extractSource);
+        for (ArchiveManager.RestoredFile file : result.getRestoredFiles()) {
+            if (!file.isVerified()) {
+                throw new IllegalStateException("Verification failed: " + file.getPath());
+            }
+        }
+        return result;
+    }
+}
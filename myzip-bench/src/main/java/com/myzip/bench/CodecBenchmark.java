@@ -0,0 +1,98 @@
+package com.myzip.bench;
+
+import com.myzip.algorithms.CodecRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CodecBenchmark measures compression and decompression speed of every
+ * codec on every corpus. Throughput is reported in operations per second
+ * and, through the "megabytes" counter, in MB of uncompressed data per
+ * second. The "outputPercent" counter reports the compressed size as a
+ * percentage of the input (lower is better; above 100 means the codec
+ * expands the data).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+    @Param({"LZW", "RLE", "HUFFMAN", "LZ77", "DEFLATE"})
+    public String codec;
+
+    @Param({"TEXT", "CSV", "PPM", "RANDOM", "REPETITIVE"})
+    public Corpus corpus;
+
+    @Param({"262144"})
+    public int size;
+
+    private byte[] data;
+    private byte[] compressed;
+
+    /**
+     * Per-operation counters; JMH reports them as rates next to the score
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    /**
+     * Compressed size, reported as an average per operation rather than a rate
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class OutputSize {
+        public double outputPercent;
+        int operations;
+        double total;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            outputPercent = 0;
+            operations = 0;
+            total = 0;
+        }
+
+        void record(double percent) {
+            total += percent;
+            operations++;
+            outputPercent = total / operations;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        data = corpus.generate(size);
+        compressed = CodecRegistry.compress(codec, data);
+        if (!Arrays.equals(CodecRegistry.decompress(codec, compressed), data)) {
+            throw new IllegalStateException(codec + " does not round-trip " + corpus);
+        }
+    }
+
+    @Benchmark
+    public byte[] compress(Counters counters, OutputSize outputSize) throws Exception {
+        byte[] result = CodecRegistry.compress(codec, data);
+        counters.megabytes += data.length / 1e6;
+        outputSize.record(100.0 * result.length / data.length);
+        return result;
+    }
+
+    @Benchmark
+    public void decompress(Counters counters, Blackhole blackhole) throws Exception {
+        blackhole.consume(CodecRegistry.decompress(codec, compressed));
+        counters.megabytes += data.length / 1e6;
+    }
+}
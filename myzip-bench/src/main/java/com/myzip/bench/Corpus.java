@@ -0,0 +1,190 @@
+package com.myzip.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Corpus generates the benchmark inputs. Every corpus is built from a fixed
+ * seed, so the same size always gives the same bytes on every machine and
+ * results stay comparable between runs and commits.
+ */
+public enum Corpus {
+
+    /** English-like prose from a fixed vocabulary with Zipf-like word frequencies */
+    TEXT("txt") {
+        @Override
+        byte[] generate(Random random, int size) {
+            StringBuilder text = new StringBuilder(size + 64);
+            int sentence = 0;
+            while (text.length() < size) {
+                String word = WORDS[skewed(random, WORDS.length)];
+                if (sentence == 0) {
+                    text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                } else {
+                    text.append(word);
+                }
+                sentence++;
+                if (sentence > 6 && random.nextInt(8) == 0) {
+                    text.append(random.nextInt(6) == 0 ? ".\n" : ". ");
+                    sentence = 0;
+                } else {
+                    text.append(random.nextInt(12) == 0 ? ", " : " ");
+                }
+            }
+            return truncate(text.toString().getBytes(StandardCharsets.US_ASCII), size);
+        }
+    },
+
+    /** Table of ids, names, cities, amounts and dates */
+    CSV("csv") {
+        @Override
+        byte[] generate(Random random, int size) {
+            StringBuilder csv = new StringBuilder(size + 128);
+            csv.append("id,name,city,amount,date\n");
+            for (int id = 1; csv.length() < size; id++) {
+                csv.append(id).append(',')
+                    .append(NAMES[random.nextInt(NAMES.length)]).append(' ')
+                    .append(NAMES[random.nextInt(NAMES.length)]).append(',')
+                    .append(CITIES[skewed(random, CITIES.length)]).append(',')
+                    .append(random.nextInt(100000) / 100).append('.').append(10 + random.nextInt(90)).append(',')
+                    .append(2000 + random.nextInt(25)).append('-')
+                    .append(twoDigits(1 + random.nextInt(12))).append('-')
+                    .append(twoDigits(1 + random.nextInt(28)))
+                    .append('\n');
+            }
+            return truncate(csv.toString().getBytes(StandardCharsets.US_ASCII), size);
+        }
+    },
+
+    /** Binary PPM (P6) image of smooth gradients, flat areas and a little noise */
+    PPM("ppm") {
+        @Override
+        byte[] generate(Random random, int size) {
+            int width = 512;
+            int height = Math.max(1, size / (width * 3));
+            ByteArrayOutputStream image = new ByteArrayOutputStream(size + 32);
+            byte[] header = ("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII);
+            image.write(header, 0, header.length);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    boolean flat = (x / 64 + y / 64) % 3 == 0;
+                    int noise = flat ? 0 : random.nextInt(4);
+                    image.write(flat ? 240 : (x * 255 / width + noise) & 0xFF);
+                    image.write(flat ? 240 : (y * 255 / height + noise) & 0xFF);
+                    image.write(flat ? 240 : ((x + y) / 4 + noise) & 0xFF);
+                }
+            }
+            return truncate(image.toByteArray(), size);
+        }
+    },
+
+    /** Uniformly random bytes; incompressible */
+    RANDOM("bin") {
+        @Override
+        byte[] generate(Random random, int size) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            return data;
+        }
+    },
+
+    /** Long runs and a short repeating record; compresses extremely well */
+    REPETITIVE("log") {
+        @Override
+        byte[] generate(Random random, int size) {
+            byte[] data = new byte[size];
+            byte[] record = "INFO heartbeat ok\n".getBytes(StandardCharsets.US_ASCII);
+            int position = 0;
+            while (position < size) {
+                if (random.nextBoolean()) {
+                    int run = Math.min(size - position, 64 + random.nextInt(960));
+                    byte value = (byte) random.nextInt(4);
+                    for (int i = 0; i < run; i++) {
+                        data[position++] = value;
+                    }
+                } else {
+                    int repeats = 1 + random.nextInt(20);
+                    for (int r = 0; r < repeats && position < size; r++) {
+                        int length = Math.min(record.length, size - position);
+                        System.arraycopy(record, 0, data, position, length);
+                        position += length;
+                    }
+                }
+            }
+            return data;
+        }
+    };
+
+    private static final long SEED = 0x6D797A6970L;
+
+    private static final String[] WORDS = {
+        "the", "of", "and", "to", "a", "in", "is", "that", "for", "it", "as", "was", "with", "be", "by",
+        "on", "not", "he", "this", "are", "or", "his", "from", "at", "which", "but", "have", "an", "had",
+        "they", "you", "were", "their", "one", "all", "we", "can", "her", "has", "there", "been", "if",
+        "more", "when", "will", "would", "who", "so", "no", "data", "file", "archive", "compression",
+        "algorithm", "dictionary", "window", "symbol", "entropy", "block", "stream", "buffer", "index",
+        "performance", "memory", "system", "between", "through", "another", "however", "structure"
+    };
+
+    private static final String[] NAMES = {
+        "John", "Jane", "Maria", "Ahmed", "Wei", "Olga", "Pedro", "Aisha", "Kenji", "Liam", "Emma",
+        "Noah", "Sofia", "Lucas", "Mia", "Ivan", "Fatima", "Chen", "Anna", "David"
+    };
+
+    private static final String[] CITIES = {
+        "London", "New York", "Tokyo", "Paris", "Berlin", "Karachi", "Lagos", "Lima", "Toronto", "Sydney",
+        "Madrid", "Seoul", "Cairo", "Mumbai", "Moscow", "Rome"
+    };
+
+    private final String extension;
+
+    Corpus(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * File extension, so that file type detection sees what it would in practice
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Generate size bytes of this corpus; the same size always gives the same bytes
+     */
+    public byte[] generate(int size) {
+        return generate(size, 0);
+    }
+
+    /**
+     * Generate one of several different inputs of the same kind
+     * @param variant Distinguishes inputs; the same variant gives the same bytes
+     */
+    public byte[] generate(int size, int variant) {
+        return generate(new Random(SEED + 31L * ordinal() + 1009L * variant), size);
+    }
+
+    abstract byte[] generate(Random random, int size);
+
+    /**
+     * Index in [0, n) biased towards small values, like word frequencies
+     */
+    private static int skewed(Random random, int n) {
+        double u = random.nextDouble();
+        return (int) (n * u * u * u);
+    }
+
+    private static String twoDigits(int n) {
+        return n < 10 ? "0" + n : String.valueOf(n);
+    }
+
+    private static byte[] truncate(byte[] data, int size) {
+        if (data.length == size) {
+            return data;
+        }
+        byte[] exact = new byte[size];
+        System.arraycopy(data, 0, exact, 0, Math.min(size, data.length));
+        return exact;
+    }
+}
@@ -0,0 +1,775 @@
+package com.myzip.cli;
+
+import com.myzip.algorithms.CodecRegistry;
+import com.myzip.core.ArchiveManager;
+import com.myzip.core.ArchiveMetrics;
+import com.myzip.core.CodecSelector;
+import com.myzip.core.DictionaryTrainer;
+import com.myzip.core.DirectoryScanner;
+import com.myzip.core.EntryFilter;
+import com.myzip.hashing.ChecksumType;
+import com.myzip.utils.FileUtils;
+import com.myzip.utils.Metadata;
+import com.myzip.utils.SplitZipFile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * MyZipCli is the headless front end over ArchiveManager, for scripts,
+ * cron jobs and shell pipelines.
+ *
+ * <pre>
+ *   myzip create  [options] ARCHIVE PATH...   new archive from files and directories
+ *   myzip add     [options] ARCHIVE PATH...   add or replace files in place
+ *   myzip delete  [options] ARCHIVE ENTRY...  remove entries in place
+ *   myzip compact [options] ARCHIVE           reclaim the space left by add and delete
+ *   myzip extract [options] ARCHIVE [PATTERN...]  extract into -o DIR (default .)
+ *   myzip list    [options] ARCHIVE           list entries
+ *   myzip test    [options] ARCHIVE           verify every entry
+ *   myzip train   [options] DICT PATH...      build a preset dictionary from sample files
+ * </pre>
+ *
+ * "-" as ARCHIVE reads the archive from stdin or writes it to stdout, "-" as
+ * a PATH archives stdin as one entry (named with --name), and "-o -" writes
+ * extracted content to stdout. Archives are random-access ZIP containers, so
+ * piped archives are spooled through a temporary file. Extract PATTERNs
+ * select entries by exact path, directory prefix ("dir/") or glob ("*.conf",
+ * "logs/**"); a pattern that selects nothing is an error. Directories are
+ * scanned in parallel and compression starts while the scan is still going;
+ * --include and --exclude select what is scanned, and symbolic links are
+ * skipped unless --follow-symlinks is given. A dictionary written by train
+ * is passed to create and add with --dictionary; archives carry their own
+ * copy, so reading them does not need it. --volume-size splits a new
+ * archive into ARCHIVE.001, ARCHIVE.002, ...; read commands take either
+ * ARCHIVE or its first volume.
+ *
+ * Exit status is 0 on success, 1 on failure (including entries failing
+ * verification) and 2 on a usage error.
+ */
+public class MyZipCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILURE = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String STDIO = "-";
+    private static final int DEFAULT_LEVEL = 3;
+
+    // Only the start of each sample is used for training
+    private static final int MAX_SAMPLE_SIZE = 128 * 1024;
+
+    // Takes entries being tested and drops them
+    private static final WritableByteChannel DISCARD = new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            src.position(src.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private final InputStream stdin;
+    private final PrintStream stdout;
+    private final PrintStream stderr;
+
+    // Shared by every manager this run creates; included in --stats output
+    private final ArchiveMetrics metrics = new ArchiveMetrics();
+
+    // Options
+    private String algorithm;
+    private int level = DEFAULT_LEVEL;
+    private int threads;
+    private String outputDir = ".";
+    private String stdinName = "stdin";
+    private ChecksumType checksumType;
+    private boolean stats;
+    private boolean quiet;
+    private EntryFilter includes;
+    private EntryFilter excludes;
+    private boolean followSymlinks;
+    private boolean offHeap;
+    private boolean solid;
+    private String dictionaryFile;
+    private long volumeSize;
+
+    public MyZipCli(InputStream stdin, PrintStream stdout, PrintStream stderr) {
+        this.stdin = stdin;
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new MyZipCli(System.in, System.out, System.err).run(args));
+    }
+
+    /**
+     * Run one command
+     * @return Exit status
+     */
+    public int run(String[] args) {
+        List<String> operands = new ArrayList<>();
+        try {
+            parseOptions(args, operands);
+        } catch (IllegalArgumentException e) {
+            stderr.println("myzip: " + e.getMessage());
+            stderr.println("Try 'myzip --help'.");
+            return EXIT_USAGE;
+        }
+        if (operands.isEmpty()) {
+            printUsage(stderr);
+            return EXIT_USAGE;
+        }
+
+        // Only takes effect before the common pool is first used, which is why it comes first
+        if (threads > 0) {
+            System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", String.valueOf(threads));
+        }
+
+        String command = operands.remove(0);
+        try {
+            switch (command) {
+                case "create":
+                    return create(operands);
+                case "add":
+                    return add(operands);
+                case "delete":
+                    return delete(operands);
+                case "compact":
+                    return compact(operands);
+                case "extract":
+                    return extract(operands);
+                case "list":
+                    return list(operands);
+                case "test":
+                    return test(operands);
+                case "train":
+                    return train(operands);
+                case "help":
+                    printUsage(stdout);
+                    return EXIT_OK;
+                default:
+                    stderr.println("myzip: unknown command '" + command + "'");
+                    return EXIT_USAGE;
+            }
+        } catch (IllegalArgumentException e) {
+            stderr.println("myzip: " + e.getMessage());
+            return EXIT_USAGE;
+        } catch (Exception e) {
+            stderr.println("myzip: " + command + " failed: " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+    }
+
+    private void parseOptions(String[] args, List<String> operands) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("-") || arg.equals(STDIO)) {
+                operands.add(arg);
+                continue;
+            }
+            if (arg.equals("--")) {
+                operands.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                return;
+            }
+
+            // --option=value is accepted as well as --option value
+            String value = null;
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--") && equals > 0) {
+                value = arg.substring(equals + 1);
+                arg = arg.substring(0, equals);
+            }
+
+            switch (arg) {
+                case "-a":
+                case "--algorithm":
+                    algorithm = value != null ? value : requireValue(args, ++i, arg);
+                    String name = algorithm.toUpperCase();
+                    if (!name.equals("AUTO") && !CodecRegistry.isKnown(name)) {
+                        throw new IllegalArgumentException("unknown algorithm '" + algorithm + "', expected auto, STORE or one of "
+                            + CodecRegistry.getCodecNames());
+                    }
+                    algorithm = name;
+                    break;
+                case "-l":
+                case "--level":
+                    level = parseInt(value != null ? value : requireValue(args, ++i, arg), arg, 0, 9);
+                    break;
+                case "-t":
+                case "--threads":
+                    threads = parseInt(value != null ? value : requireValue(args, ++i, arg), arg, 1, 1024);
+                    break;
+                case "-o":
+                case "--output":
+                    outputDir = value != null ? value : requireValue(args, ++i, arg);
+                    break;
+                case "--name":
+                    stdinName = value != null ? value : requireValue(args, ++i, arg);
+                    break;
+                case "--checksum":
+                    String checksum = value != null ? value : requireValue(args, ++i, arg);
+                    try {
+                        checksumType = ChecksumType.valueOf(checksum.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("unknown checksum '" + checksum + "', expected one of "
+                            + Arrays.toString(ChecksumType.values()));
+                    }
+                    break;
+                case "--include":
+                    if (includes == null) {
+                        includes = new EntryFilter();
+                    }
+                    includes.add(value != null ? value : requireValue(args, ++i, arg));
+                    break;
+                case "--exclude":
+                    if (excludes == null) {
+                        excludes = new EntryFilter();
+                    }
+                    excludes.add(value != null ? value : requireValue(args, ++i, arg));
+                    break;
+                case "--follow-symlinks":
+                    followSymlinks = true;
+                    break;
+                case "--off-heap":
+                    offHeap = true;
+                    break;
+                case "--solid":
+                    solid = true;
+                    break;
+                case "--dictionary":
+                    dictionaryFile = value != null ? value : requireValue(args, ++i, arg);
+                    break;
+                case "--volume-size":
+                    volumeSize = parseSize(value != null ? value : requireValue(args, ++i, arg), arg);
+                    break;
+                case "--stats":
+                    stats = true;
+                    break;
+                case "-q":
+                case "--quiet":
+                    quiet = true;
+                    break;
+                case "-h":
+                case "--help":
+                    operands.clear();
+                    operands.add("help");
+                    return;
+                default:
+                    throw new IllegalArgumentException("unknown option '" + arg + "'");
+            }
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("option " + option + " needs a value");
+        }
+        return args[index];
+    }
+
+    private static int parseInt(String value, String option, int min, int max) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= min && n <= max) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("option " + option + " expects a number from " + min + " to " + max);
+    }
+
+    /**
+     * Parse a size in bytes, with an optional k, m or g suffix (powers of 1024)
+     */
+    private static long parseSize(String value, String option) {
+        String digits = value.toLowerCase();
+        int shift = 0;
+        if (digits.endsWith("k") || digits.endsWith("m") || digits.endsWith("g")) {
+            shift = 10 * ("kmg".indexOf(digits.charAt(digits.length() - 1)) + 1);
+            digits = digits.substring(0, digits.length() - 1);
+        }
+        try {
+            long n = Long.parseLong(digits);
+            if (n > 0 && n <= Long.MAX_VALUE >> shift) {
+                return n << shift;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("option " + option + " expects a size such as 650m or 4g");
+    }
+
+    // ==================== Commands ====================
+
+    private int create(List<String> operands) throws Exception {
+        requireOperands(operands, 2, "create ARCHIVE PATH...");
+        String archive = operands.get(0);
+        if (archive.equals(STDIO) && volumeSize > 0) {
+            throw new IllegalArgumentException("--volume-size cannot write an archive to stdout");
+        }
+        Iterable<ArchiveManager.FileEntry> entries = collectEntries(operands.subList(1, operands.size()));
+
+        long start = System.nanoTime();
+        File archiveFile = archive.equals(STDIO) ? File.createTempFile("myzip", ".myzip") : new File(archive);
+        try {
+            ArchiveManager.CompressionResult result = newManager().createArchive(entries, archiveFile);
+            if (archive.equals(STDIO)) {
+                Files.copy(archiveFile.toPath(), stdout);
+                stdout.flush();
+            }
+            reportWrite("create", archive, result.getMetadataList().size(), result, archiveLength(archiveFile), start);
+        } finally {
+            if (archive.equals(STDIO)) {
+                archiveFile.delete();
+            }
+        }
+        return EXIT_OK;
+    }
+
+    private int add(List<String> operands) throws Exception {
+        requireOperands(operands, 2, "add ARCHIVE PATH...");
+        File archiveFile = requireArchiveFile(operands.get(0), "add");
+        Iterable<ArchiveManager.FileEntry> entries = collectEntries(operands.subList(1, operands.size()));
+
+        long start = System.nanoTime();
+        ArchiveManager.CompressionResult result = newManager().updateArchive(archiveFile, entries);
+        reportWrite("add", operands.get(0), result.getMetadataList().size(), result, archiveFile.length(), start);
+        return EXIT_OK;
+    }
+
+    private int delete(List<String> operands) throws Exception {
+        requireOperands(operands, 2, "delete ARCHIVE ENTRY...");
+        File archiveFile = requireArchiveFile(operands.get(0), "delete");
+        List<String> paths = operands.subList(1, operands.size());
+
+        long start = System.nanoTime();
+        ArchiveManager manager = new ArchiveManager();
+        manager.setMetrics(metrics);
+        int deleted = manager.deleteFromArchive(archiveFile, paths);
+        if (!quiet && !stats) {
+            stdout.println("Deleted " + deleted + " of " + paths.size() + " entries");
+        }
+        if (stats) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("command", "delete");
+            values.put("archive", operands.get(0));
+            values.put("deleted", deleted);
+            values.put("archiveBytes", archiveFile.length());
+            values.put("millis", elapsedMillis(start));
+            values.putAll(metrics.getStatistics());
+            printStats(values, stdout);
+        }
+        return deleted == paths.size() ? EXIT_OK : EXIT_FAILURE;
+    }
+
+    private int compact(List<String> operands) throws Exception {
+        requireOperands(operands, 1, "compact ARCHIVE");
+        File archiveFile = requireArchiveFile(operands.get(0), "compact");
+
+        long start = System.nanoTime();
+        ArchiveManager manager = new ArchiveManager();
+        manager.setMetrics(metrics);
+        long reclaimed = manager.compactArchive(archiveFile);
+        if (!quiet && !stats) {
+            stdout.println(operands.get(0) + ": reclaimed " + FileUtils.formatBytes(reclaimed)
+                + ", now " + FileUtils.formatBytes(archiveFile.length()));
+        }
+        if (stats) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("command", "compact");
+            values.put("archive", operands.get(0));
+            values.put("reclaimedBytes", reclaimed);
+            values.put("archiveBytes", archiveFile.length());
+            values.put("millis", elapsedMillis(start));
+            values.putAll(metrics.getStatistics());
+            printStats(values, stdout);
+        }
+        return EXIT_OK;
+    }
+
+    private int extract(List<String> operands) throws Exception {
+        requireOperands(operands, 1, "extract ARCHIVE");
+        boolean toStdout = outputDir.equals(STDIO);
+        long start = System.nanoTime();
+
+        List<String> patterns = operands.subList(1, operands.size());
+        EntryFilter filter = patterns.isEmpty() ? null : EntryFilter.of(patterns.toArray(new String[0]));
+
+        int failed = 0;
+        long bytes = 0;
+        // Entries are streamed to disk or, one after another, to stdout
+        WritableByteChannel out = Channels.newChannel(stdout);
+        List<ArchiveManager.RestoredFile> files = withArchiveFile(operands.get(0), file -> {
+            ArchiveManager manager = new ArchiveManager();
+            manager.setMetrics(metrics);
+            return toStdout ? manager.extractEach(file, metadata -> out, filter, null)
+                : manager.extractTo(file, new File(outputDir), filter, null);
+        }).getRestoredFiles();
+        for (String pattern : patterns) {
+            EntryFilter single = EntryFilter.of(pattern);
+            if (files.stream().noneMatch(file -> single.matches(file.getPath()))) {
+                stderr.println("myzip: " + pattern + ": no matching entries");
+                failed++;
+            }
+        }
+        for (ArchiveManager.RestoredFile file : files) {
+            if (!file.isVerified()) {
+                stderr.println("myzip: " + file.getPath() + ": verification failed");
+                failed++;
+            }
+            if (!toStdout && !quiet && !stats) {
+                stdout.println(file.getPath());
+            }
+            bytes += file.getSize();
+        }
+        stdout.flush();
+
+        if (stats) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("command", "extract");
+            values.put("archive", operands.get(0));
+            values.put("files", files.size());
+            values.put("failed", failed);
+            values.put("originalBytes", bytes);
+            values.put("millis", elapsedMillis(start));
+            values.putAll(metrics.getStatistics());
+            printStats(values, toStdout ? stderr : stdout);
+        }
+        return failed == 0 ? EXIT_OK : EXIT_FAILURE;
+    }
+
+    private int list(List<String> operands) throws Exception {
+        requireOperands(operands, 1, "list ARCHIVE");
+        List<Metadata> entries = withArchiveFile(operands.get(0), file -> new ArchiveManager().listArchive(file));
+
+        long original = 0;
+        long compressed = 0;
+        if (!quiet) {
+            stdout.printf("%12s %12s %7s  %-9s %s%n", "Size", "Compressed", "Ratio", "Method", "Path");
+        }
+        for (Metadata metadata : entries) {
+            original += metadata.getOriginalSize();
+            compressed += metadata.getCompressedSize();
+            if (!quiet) {
+                String method = metadata.isDuplicate() ? "DUPLICATE" : metadata.getCompressionAlgorithm();
+                stdout.printf("%12d %12d %6.1f%%  %-9s %s%n", metadata.getOriginalSize(), metadata.getCompressedSize(),
+                    metadata.getCompressionRatio(), method, metadata.getRelativePath());
+            }
+        }
+
+        if (stats) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("command", "list");
+            values.put("archive", operands.get(0));
+            values.put("files", entries.size());
+            values.put("originalBytes", original);
+            values.put("compressedBytes", compressed);
+            printStats(values, stdout);
+        }
+        return EXIT_OK;
+    }
+
+    private int test(List<String> operands) throws Exception {
+        requireOperands(operands, 1, "test ARCHIVE");
+        long start = System.nanoTime();
+
+        int failed = 0;
+        // Every entry is decoded and hashed, then dropped
+        List<ArchiveManager.RestoredFile> files = withArchiveFile(operands.get(0), file -> {
+            ArchiveManager manager = new ArchiveManager();
+            manager.setMetrics(metrics);
+            return manager.extractEach(file, metadata -> DISCARD, null, null);
+        }).getRestoredFiles();
+        for (ArchiveManager.RestoredFile file : files) {
+            if (!file.isVerified()) {
+                failed++;
+                stderr.println("FAILED " + file.getPath());
+            } else if (!quiet && !stats) {
+                stdout.println("OK     " + file.getPath());
+            }
+        }
+
+        if (stats) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("command", "test");
+            values.put("archive", operands.get(0));
+            values.put("files", files.size());
+            values.put("failed", failed);
+            values.put("millis", elapsedMillis(start));
+            values.putAll(metrics.getStatistics());
+            printStats(values, stdout);
+        } else if (!quiet) {
+            stdout.println(failed == 0 ? "All " + files.size() + " entries OK" : failed + " of " + files.size() + " entries FAILED");
+        }
+        return failed == 0 ? EXIT_OK : EXIT_FAILURE;
+    }
+
+    private int train(List<String> operands) throws Exception {
+        requireOperands(operands, 2, "train DICT PATH...");
+        String dictionary = operands.get(0);
+        long start = System.nanoTime();
+        DictionaryTrainer trainer = new DictionaryTrainer();
+        for (ArchiveManager.FileEntry entry : collectEntries(operands.subList(1, operands.size()))) {
+            byte[] data = entry.getData();
+            trainer.addSample(data.length > MAX_SAMPLE_SIZE ? Arrays.copyOf(data, MAX_SAMPLE_SIZE) : data);
+            entry.releaseData();
+        }
+        byte[] trained = trainer.train();
+        if (trained.length == 0) {
+            throw new IOException("the " + trainer.getSampleCount() + " samples have nothing in common to train on");
+        }
+        try (OutputStream out = dictionary.equals(STDIO) ? stdout : new FileOutputStream(dictionary)) {
+            out.write(trained);
+        }
+
+        if (stats) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("command", "train");
+            values.put("dictionary", dictionary);
+            values.put("samples", trainer.getSampleCount());
+            values.put("dictionaryBytes", trained.length);
+            values.put("millis", elapsedMillis(start));
+            printStats(values, dictionary.equals(STDIO) ? stderr : stdout);
+        } else if (!quiet && !dictionary.equals(STDIO)) {
+            stdout.println("Trained " + dictionary + " (" + trained.length + " bytes) from "
+                + trainer.getSampleCount() + " samples");
+        }
+        return EXIT_OK;
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Configure an ArchiveManager from the algorithm, level, checksum, off-heap, solid, dictionary
+     * and volume size options.
+     * Levels: 0 stores, 1-3 use the fixed codec per file type, 4-6 trial-compress
+     * with the default cost model, 7-9 trial-compress for the best ratio.
+     * An explicit algorithm overrides the level.
+     */
+    private ArchiveManager newManager() throws IOException {
+        ArchiveManager manager = new ArchiveManager();
+        manager.setMetrics(metrics);
+        manager.setOffHeapBuffers(offHeap);
+        if (solid) {
+            manager.setSolidBlockSize(ArchiveManager.DEFAULT_SOLID_BLOCK_SIZE);
+        }
+        if (dictionaryFile != null) {
+            manager.setDictionary(Files.readAllBytes(new File(dictionaryFile).toPath()));
+        }
+        manager.setVolumeSize(volumeSize);
+        if (checksumType != null) {
+            manager.setChecksumType(checksumType);
+        }
+        if ("AUTO".equals(algorithm)) {
+            manager.setCodecSelector(new CodecSelector(level >= 7
+                ? CodecSelector.CostModel.bestRatio() : CodecSelector.CostModel.defaults()));
+        } else if (algorithm != null) {
+            manager.setAlgorithm(algorithm);
+        } else if (level == 0) {
+            manager.setAlgorithm(CodecRegistry.STORE);
+        } else if (level >= 7) {
+            manager.setCodecSelector(new CodecSelector(CodecSelector.CostModel.bestRatio()));
+        } else if (level >= 4) {
+            manager.setCodecSelector(new CodecSelector());
+        }
+        return manager;
+    }
+
+    /**
+     * Gather files, directories (recursively, keeping the directory name)
+     * and stdin as archive entries. Without stdin the scanner itself is
+     * returned, so the archive is written while directories are still being
+     * scanned; files are read only as they are compressed.
+     */
+    private Iterable<ArchiveManager.FileEntry> collectEntries(List<String> paths) throws IOException {
+        List<File> roots = new ArrayList<>();
+        List<ArchiveManager.FileEntry> stdinEntries = new ArrayList<>();
+        for (String path : paths) {
+            if (path.equals(STDIO)) {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                FileUtils.copyStream(stdin, data);
+                stdinEntries.add(new ArchiveManager.FileEntry(stdinName, new File(stdinName).getName(), data.toByteArray()));
+                continue;
+            }
+            File file = new File(path);
+            if (!Files.exists(file.toPath()) && !Files.isSymbolicLink(file.toPath())) {
+                throw new FileNotFoundException(path);
+            }
+            roots.add(file);
+        }
+
+        DirectoryScanner scanner = new DirectoryScanner(roots);
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.setSymlinkPolicy(followSymlinks ? DirectoryScanner.SymlinkPolicy.FOLLOW : DirectoryScanner.SymlinkPolicy.SKIP);
+        scanner.setListener(new DirectoryScanner.ScanListener() {
+            @Override
+            public void scanFailed(java.nio.file.Path path, IOException e) {
+                stderr.println("myzip: warning: skipping " + path + ": " + e);
+            }
+        });
+        if (stdinEntries.isEmpty()) {
+            return scanner;
+        }
+        List<ArchiveManager.FileEntry> entries = scanner.scanAll();
+        entries.addAll(stdinEntries);
+        return entries;
+    }
+
+    private interface ArchiveAction<T> {
+        T apply(File archiveFile) throws Exception;
+    }
+
+    /**
+     * Run a read-only action on an archive, spooling it from stdin first for "-"
+     */
+    private <T> T withArchiveFile(String archive, ArchiveAction<T> action) throws Exception {
+        if (!archive.equals(STDIO)) {
+            return action.apply(new File(archive));
+        }
+        File spool = File.createTempFile("myzip", ".myzip");
+        try {
+            try (OutputStream out = new FileOutputStream(spool)) {
+                FileUtils.copyStream(stdin, out);
+            }
+            return action.apply(spool);
+        } finally {
+            spool.delete();
+        }
+    }
+
+    private static File requireArchiveFile(String archive, String command) throws FileNotFoundException {
+        if (archive.equals(STDIO)) {
+            throw new IllegalArgumentException(command + " modifies an archive in place and cannot use stdin/stdout");
+        }
+        File file = new File(archive);
+        if (!file.isFile() && SplitZipFile.splitBase(file) == null) {
+            throw new FileNotFoundException(archive);
+        }
+        return file;
+    }
+
+    /**
+     * Size of an archive on disk, all volumes together if it is split
+     */
+    private static long archiveLength(File archiveFile) {
+        File base = SplitZipFile.splitBase(archiveFile);
+        return base != null ? SplitZipFile.totalLength(base) : archiveFile.length();
+    }
+
+    private static void requireOperands(List<String> operands, int count, String usage) {
+        if (operands.size() < count) {
+            throw new IllegalArgumentException("usage: myzip " + usage);
+        }
+    }
+
+    private void reportWrite(String command, String archive, int files, ArchiveManager.CompressionResult result,
+                             long archiveBytes, long start) {
+        // With the archive on stdout, anything else goes to stderr
+        PrintStream out = archive.equals(STDIO) ? stderr : stdout;
+        if (stats) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("command", command);
+            values.put("archive", archive);
+            values.put("files", files);
+            values.put("duplicates", result.getDuplicateCount());
+            values.put("originalBytes", result.getOriginalSize());
+            values.put("compressedBytes", result.getCompressedSize());
+            values.put("archiveBytes", archiveBytes);
+            values.put("ratio", Math.round(result.getCompressionRatio() * 100) / 100.0);
+            values.put("millis", elapsedMillis(start));
+            values.putAll(metrics.getStatistics());
+            printStats(values, out);
+        } else if (!quiet) {
+            out.printf("%s: %d files, %s -> %s (%.2f%% saved), %d duplicates%n", archive, files,
+                FileUtils.formatBytes(result.getOriginalSize()), FileUtils.formatBytes(result.getCompressedSize()),
+                result.getCompressionRatio(), result.getDuplicateCount());
+        }
+    }
+
+    /**
+     * Print statistics as a single-line JSON object
+     */
+    private static void printStats(Map<String, Object> values, PrintStream out) {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(quote(entry.getKey())).append(':');
+            Object value = entry.getValue();
+            json.append(value instanceof Number ? value.toString() : quote(String.valueOf(value)));
+        }
+        out.println(json.append('}'));
+        out.flush();
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: myzip COMMAND [options] ARCHIVE [PATH...]");
+        out.println();
+        out.println("Commands:");
+        out.println("  create ARCHIVE PATH...   Create an archive from files and directories");
+        out.println("  add ARCHIVE PATH...      Add or replace files in an existing archive");
+        out.println("  delete ARCHIVE ENTRY...  Remove entries from an archive");
+        out.println("  compact ARCHIVE          Reclaim the space left by add and delete");
+        out.println("  extract ARCHIVE [PATTERN...]");
+        out.println("                           Extract all entries, or those matching a path,");
+        out.println("                           dir/ prefix or glob (into -o DIR)");
+        out.println("  list ARCHIVE             List entries");
+        out.println("  test ARCHIVE             Verify every entry");
+        out.println("  train DICT PATH...       Build a preset dictionary from sample files (- for stdout)");
+        out.println();
+        out.println("Options:");
+        out.println("  -a, --algorithm NAME     auto, STORE or one of " + CodecRegistry.getCodecNames());
+        out.println("  -l, --level N            0 store, 1-3 codec per file type (default " + DEFAULT_LEVEL + "),");
+        out.println("                           4-6 trial-compress balanced, 7-9 trial-compress for best ratio");
+        out.println("  -t, --threads N          Worker threads for parallel hashing");
+        out.println("  -o, --output DIR         Extraction directory, or - for stdout");
+        out.println("      --checksum TYPE      Entry checksum: " + Arrays.toString(ChecksumType.values()));
+        out.println("      --name NAME          Entry name for data read from stdin (default stdin)");
+        out.println("      --include GLOB       Archive only files matching GLOB (path or file name; repeatable)");
+        out.println("      --exclude GLOB       Skip files and directories matching GLOB (repeatable)");
+        out.println("      --follow-symlinks    Archive what symbolic links point to instead of skipping them");
+        out.println("      --off-heap           Hold compressed data in direct memory until it is written");
+        out.println("      --solid              Compress small files of the same type together in solid blocks");
+        out.println("      --dictionary FILE    Prime LZ77, LZW and DEFLATE with a dictionary made by train");
+        out.println("      --volume-size SIZE   Split a new archive into volumes ARCHIVE.001... of SIZE bytes (k, m, g)");
+        out.println("      --stats              Print statistics and per-stage metrics as one line of JSON");
+        out.println("  -q, --quiet              Print nothing but errors");
+        out.println();
+        out.println("Use - as ARCHIVE to read from stdin or write to stdout, and - as PATH to archive stdin.");
+    }
+}
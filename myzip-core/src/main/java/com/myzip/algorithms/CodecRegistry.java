@@ -0,0 +1,162 @@
+package com.myzip.algorithms;
+
+import com.myzip.algorithms.deflate.DEFLATECompressor;
+import com.myzip.algorithms.huffman.HuffmanCompressor;
+import com.myzip.algorithms.lz77.LZ77Compressor;
+import com.myzip.algorithms.lzw.LZWCompressor;
+import com.myzip.algorithms.rle.RLECompressor;
+import com.myzip.utils.ProgressToken;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * CodecRegistry maps the algorithm names stored in archive metadata to
+ * compressors, so any registered codec can both write and read entries.
+ * "STORE" (and "DUPLICATE", which has no payload) leave data unchanged.
+ *
+ * The compress and decompress helpers use one instance of each codec per
+ * thread, reset between inputs, so archives of many small files do not
+ * build new codecs and working arrays for every entry and block.
+ */
+public class CodecRegistry {
+
+    public static final String STORE = "STORE";
+
+    private static final Map<String, Supplier<Compressor>> CODECS = new LinkedHashMap<>();
+
+    private static final ThreadLocal<Map<String, Compressor>> THREAD_CODECS = ThreadLocal.withInitial(HashMap::new);
+
+    static {
+        CODECS.put("LZW", LZWCompressor::new);
+        CODECS.put("RLE", RLECompressor::new);
+        CODECS.put("HUFFMAN", HuffmanCompressor::new);
+        CODECS.put("LZ77", LZ77Compressor::new);
+        CODECS.put("DEFLATE", DEFLATECompressor::new);
+    }
+
+    private CodecRegistry() {
+    }
+
+    /**
+     * Names of all registered codecs, excluding STORE
+     */
+    public static List<String> getCodecNames() {
+        return new ArrayList<>(CODECS.keySet());
+    }
+
+    public static boolean isKnown(String algorithm) {
+        return STORE.equals(algorithm) || CODECS.containsKey(algorithm);
+    }
+
+    /**
+     * Can a codec be primed with a preset dictionary?
+     */
+    public static boolean supportsDictionary(String algorithm) {
+        return CODECS.containsKey(algorithm) && acquire(algorithm).supportsDictionary();
+    }
+
+    /**
+     * Create a compressor for a codec name
+     * @throws IllegalArgumentException If the name is not registered
+     */
+    public static Compressor create(String algorithm) {
+        Supplier<Compressor> codec = CODECS.get(algorithm);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown compression algorithm: " + algorithm);
+        }
+        return codec.get();
+    }
+
+    /**
+     * The calling thread's instance of a codec, reset for a new input. It
+     * must only be used on this thread, and not across a call that may use
+     * the same codec through this registry.
+     * @throws IllegalArgumentException If the name is not registered
+     */
+    public static Compressor acquire(String algorithm) {
+        Map<String, Compressor> codecs = THREAD_CODECS.get();
+        Compressor compressor = codecs.get(algorithm);
+        if (compressor == null) {
+            compressor = create(algorithm);
+            codecs.put(algorithm, compressor);
+        }
+        compressor.reset();
+        return compressor;
+    }
+
+    /**
+     * Compress data with a named codec; STORE returns the data unchanged
+     */
+    public static byte[] compress(String algorithm, byte[] data) throws Exception {
+        if (STORE.equals(algorithm)) {
+            return data;
+        }
+        return acquire(algorithm).compress(data);
+    }
+
+    /**
+     * Compress data with a named codec, giving up early once the output
+     * would be larger than maxOutputSize
+     * @return Compressed data, or null if it would be larger than maxOutputSize
+     */
+    public static byte[] compress(String algorithm, byte[] data, int maxOutputSize) throws Exception {
+        if (STORE.equals(algorithm)) {
+            return data.length > maxOutputSize ? null : data;
+        }
+        return acquire(algorithm).compress(data, maxOutputSize);
+    }
+    
+    /**
+     * Bounded compression that reports progress to, and can be cancelled through, a token
+     * @param progress Token, or null for none
+     * @return Compressed data, or null if it would be larger than maxOutputSize
+     */
+    public static byte[] compress(String algorithm, byte[] data, int maxOutputSize,
+                                  ProgressToken progress) throws Exception {
+        return compress(algorithm, data, maxOutputSize, progress, null);
+    }
+
+    /**
+     * Bounded compression primed with a preset dictionary
+     * @param progress Token, or null for none
+     * @param dictionary Dictionary, or null for none
+     * @return Compressed data, or null if it would be larger than maxOutputSize
+     * @throws UnsupportedOperationException If the codec cannot use a dictionary
+     */
+    public static byte[] compress(String algorithm, byte[] data, int maxOutputSize,
+                                  ProgressToken progress, byte[] dictionary) throws Exception {
+        if (STORE.equals(algorithm)) {
+            return data.length > maxOutputSize ? null : data;
+        }
+        Compressor compressor = acquire(algorithm);
+        compressor.setDictionary(dictionary);
+        compressor.setProgressToken(progress);
+        try {
+            return compressor.compress(data, maxOutputSize);
+        } finally {
+            // A per-thread instance must not keep the token (and its listener) reachable
+            compressor.setProgressToken(null);
+        }
+    }
+
+    /**
+     * Decompress data written by a named codec; STORE and DUPLICATE return it unchanged
+     */
+    public static byte[] decompress(String algorithm, byte[] data) throws Exception {
+        return decompress(algorithm, data, null);
+    }
+
+    /**
+     * Decompress data written by a named codec with a preset dictionary
+     * @param dictionary Dictionary the data was compressed with, or null for none
+     */
+    public static byte[] decompress(String algorithm, byte[] data, byte[] dictionary) throws Exception {
+        if (STORE.equals(algorithm) || "DUPLICATE".equals(algorithm)) {
+            return data;
+        }
+        Compressor compressor = acquire(algorithm);
+        compressor.setDictionary(dictionary);
+        return compressor.decompress(data);
+    }
+}
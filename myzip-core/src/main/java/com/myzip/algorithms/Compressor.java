@@ -0,0 +1,86 @@
+package com.myzip.algorithms;
+
+import com.myzip.utils.ProgressToken;
+
+/**
+ * Common interface for all compression algorithms
+ */
+public interface Compressor {
+    
+    /**
+     * Compress the input data
+     * @param data Input data to compress
+     * @return Compressed data
+     */
+    byte[] compress(byte[] data) throws Exception;
+    
+    /**
+     * Compress the input data, giving up as soon as the output is known to
+     * be larger than maxOutputSize so no more CPU is spent on data that
+     * does not compress
+     * @param data Input data to compress
+     * @param maxOutputSize Largest acceptable output size in bytes
+     * @return Compressed data, or null if it would be larger than maxOutputSize
+     */
+    default byte[] compress(byte[] data, int maxOutputSize) throws Exception {
+        byte[] compressed = compress(data);
+        return compressed.length > maxOutputSize ? null : compressed;
+    }
+    
+    /**
+     * Report progress to, and check for cancellation on, a token during
+     * the following compress calls. Codecs that do not override this are
+     * fast enough to be checked between calls only.
+     * @param progress Token, or null for none
+     */
+    default void setProgressToken(ProgressToken progress) {
+    }
+    
+    /**
+     * Can the codec be primed with a preset dictionary?
+     */
+    default boolean supportsDictionary() {
+        return false;
+    }
+    
+    /**
+     * Prime the following compress and decompress calls with a preset
+     * dictionary: data typical of the inputs, such as one trained on samples
+     * of them, so that each input starts with useful history instead of an
+     * empty window or table. Data compressed with a dictionary can only be
+     * decompressed with the same dictionary.
+     * @param dictionary Dictionary, or null for none
+     * @throws UnsupportedOperationException If the codec cannot use a dictionary
+     */
+    default void setDictionary(byte[] dictionary) {
+        if (dictionary != null) {
+            throw new UnsupportedOperationException(getAlgorithmName() + " does not support preset dictionaries");
+        }
+    }
+    
+    /**
+     * Return the codec to the state of a new instance, dropping settings
+     * such as the progress token and dictionary but keeping its working memory (windows,
+     * hash chains, dictionaries), so one instance can take input after
+     * input without allocating them again. Every compress and decompress
+     * call handles one complete input and never depends on an earlier one;
+     * {@link CodecRegistry} resets its per-thread instances before each use.
+     */
+    default void reset() {
+        setProgressToken(null);
+        setDictionary(null);
+    }
+    
+    /**
+     * Decompress the compressed data
+     * @param compressedData Compressed data
+     * @return Original data
+     */
+    byte[] decompress(byte[] compressedData) throws Exception;
+    
+    /**
+     * Get the name of the compression algorithm
+     * @return Algorithm name
+     */
+    String getAlgorithmName();
+}
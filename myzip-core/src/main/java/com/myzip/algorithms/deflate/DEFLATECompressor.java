@@ -0,0 +1,87 @@
+package com.myzip.algorithms.deflate;
+
+import com.myzip.algorithms.Compressor;
+import com.myzip.algorithms.lz77.LZ77Compressor;
+import com.myzip.algorithms.huffman.HuffmanCompressor;
+import com.myzip.utils.ProgressToken;
+
+/**
+ * DEFLATE-like Compression Algorithm
+ * Combines LZ77 (sliding window) + Huffman (optimal codes)
+ * Similar to ZIP/GZIP compression
+ * 
+ * Data Structures Used:
+ * - Sliding Window (Array/Buffer) - from LZ77
+ * - Binary Tree (Huffman Tree) - from Huffman
+ * - Priority Queue (Min Heap) - for building Huffman tree
+ * - Hash Table/Dictionary - for encoding
+ */
+public class DEFLATECompressor implements Compressor {
+    
+    // Both stages keep their working arrays across inputs
+    private final LZ77Compressor lz77 = new LZ77Compressor();
+    private final HuffmanCompressor huffman = new HuffmanCompressor();
+    private final DEFLATEDecompressor decompressor = new DEFLATEDecompressor();
+    
+    /**
+     * Progress is reported by the LZ77 stage, which takes most of the time
+     */
+    @Override
+    public void setProgressToken(ProgressToken progress) {
+        lz77.setProgressToken(progress);
+    }
+    
+    @Override
+    public boolean supportsDictionary() {
+        return true;
+    }
+    
+    /**
+     * A preset dictionary primes the LZ77 window; the Huffman stage builds
+     * its code from each input as before
+     */
+    @Override
+    public void setDictionary(byte[] dictionary) {
+        lz77.setDictionary(dictionary);
+        decompressor.setDictionary(dictionary);
+    }
+    
+    @Override
+    public byte[] compress(byte[] data) throws Exception {
+        return compress(data, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Both stages give up early: Huffman coding takes little more than a
+     * few percent off the LZ77 tokens, so tokens an eighth larger than
+     * the limit cannot end up within it
+     */
+    @Override
+    public byte[] compress(byte[] data, int maxOutputSize) throws Exception {
+        if (data == null || data.length == 0) {
+            return new byte[0];
+        }
+        
+        // Step 1: LZ77 compression (find repeated sequences)
+        int maxTokenSize = (int) Math.min(Integer.MAX_VALUE, (long) maxOutputSize + (maxOutputSize >> 3));
+        byte[] lz77Compressed = lz77.compress(data, maxTokenSize);
+        if (lz77Compressed == null) {
+            return null;
+        }
+        
+        // Step 2: Huffman coding (optimal bit encoding)
+        byte[] finalCompressed = huffman.compress(lz77Compressed, maxOutputSize);
+        
+        return finalCompressed;
+    }
+    
+    @Override
+    public byte[] decompress(byte[] compressedData) throws Exception {
+        return decompressor.decompress(compressedData);
+    }
+    
+    @Override
+    public String getAlgorithmName() {
+        return "DEFLATE";
+    }
+}
@@ -9,17 +9,25 @@ import com.myzip.algorithms.lz77.LZ77Decompressor;
  */
 public class DEFLATEDecompressor {
     
+    private final HuffmanDecompressor huffman = new HuffmanDecompressor();
+    private final LZ77Decompressor lz77 = new LZ77Decompressor();
+    
+    /**
+     * Decode data compressed with this preset dictionary, or null for none
+     */
+    public void setDictionary(byte[] dictionary) {
+        lz77.setDictionary(dictionary);
+    }
+    
     public byte[] decompress(byte[] compressedData) throws Exception {
         if (compressedData == null || compressedData.length == 0) {
             return new byte[0];
         }
         
         // Step 1: Huffman decompression
-        HuffmanDecompressor huffman = new HuffmanDecompressor();
         byte[] huffmanDecompressed = huffman.decompress(compressedData);
         
         // Step 2: LZ77 decompression
-        LZ77Decompressor lz77 = new LZ77Decompressor();
         byte[] finalDecompressed = lz77.decompress(huffmanDecompressed);
         
         return finalDecompressed;
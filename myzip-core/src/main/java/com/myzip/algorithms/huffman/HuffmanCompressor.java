@@ -0,0 +1,155 @@
+package com.myzip.algorithms.huffman;
+
+import com.myzip.algorithms.Compressor;
+import com.myzip.utils.BitOutputStream;
+import com.myzip.utils.PooledOutputStream;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Huffman Coding Compression Algorithm
+ * Uses Priority Queue and Binary Tree data structures
+ * Optimal prefix-free codes based on frequency
+ *
+ * Counting and encoding go through per-byte-value arrays owned by the
+ * instance and reused for every input; only the tree itself, at most 511
+ * nodes, is built per input.
+ */
+public class HuffmanCompressor implements Compressor {
+    
+    private final int[] frequencies = new int[256];
+    private final long[] codes = new long[256];
+    private final int[] codeLengths = new int[256];
+    private final HuffmanDecompressor decompressor = new HuffmanDecompressor();
+    
+    @Override
+    public byte[] compress(byte[] data) throws Exception {
+        return compress(data, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public byte[] compress(byte[] data, int maxOutputSize) throws Exception {
+        if (data == null || data.length == 0) {
+            return new byte[0];
+        }
+        
+        // Count byte values
+        Arrays.fill(frequencies, 0);
+        for (byte b : data) {
+            frequencies[b & 0xFF]++;
+        }
+        
+        // Build frequency table (Hash Table); the tree is built in its
+        // iteration order, which the decompressor reproduces from the header
+        Map<Byte, Integer> frequencyMap = new HashMap<>();
+        for (int value = 0; value < 256; value++) {
+            if (frequencies[value] > 0) {
+                frequencyMap.put((byte) value, frequencies[value]);
+            }
+        }
+        
+        // Build Huffman tree using Priority Queue
+        HuffmanNode root = buildHuffmanTree(frequencyMap);
+        
+        // Generate codes, indexed by byte value
+        generateCodes(root, 0, 0);
+        
+        // The exact output size is known from the code lengths before encoding
+        long bits = 16 + 40L * frequencyMap.size() + 32;
+        for (int value = 0; value < 256; value++) {
+            bits += (long) frequencies[value] * codeLengths[value];
+        }
+        if ((bits + 7) / 8 > maxOutputSize) {
+            return null;
+        }
+        
+        // Compress data
+        PooledOutputStream out = new PooledOutputStream((int) ((bits + 7) / 8));
+        try {
+            BitOutputStream bitOut = new BitOutputStream(out);
+            
+            // Write header: number of unique bytes
+            bitOut.writeBits(frequencyMap.size(), 16);
+            
+            // Write frequency table
+            for (Map.Entry<Byte, Integer> entry : frequencyMap.entrySet()) {
+                bitOut.writeByte(entry.getKey() & 0xFF);
+                bitOut.writeBits(entry.getValue(), 32);
+            }
+            
+            // Write original data length
+            bitOut.writeBits(data.length, 32);
+            
+            // Write compressed data
+            for (byte b : data) {
+                writeCode(bitOut, codes[b & 0xFF], codeLengths[b & 0xFF]);
+            }
+            
+            bitOut.flush();
+            return out.toByteArray();
+        } finally {
+            out.close();
+        }
+    }
+    
+    @Override
+    public byte[] decompress(byte[] compressedData) throws Exception {
+        return decompressor.decompress(compressedData);
+    }
+    
+    /**
+     * Build Huffman tree using Priority Queue
+     */
+    private HuffmanNode buildHuffmanTree(Map<Byte, Integer> frequencyMap) {
+        // Priority Queue (Min Heap) - sorts by frequency
+        PriorityQueue<HuffmanNode> pq = new PriorityQueue<>();
+        
+        // Add all bytes as leaf nodes
+        for (Map.Entry<Byte, Integer> entry : frequencyMap.entrySet()) {
+            pq.offer(new HuffmanNode(entry.getKey(), entry.getValue()));
+        }
+        
+        // Build tree bottom-up
+        while (pq.size() > 1) {
+            HuffmanNode left = pq.poll();
+            HuffmanNode right = pq.poll();
+            HuffmanNode parent = new HuffmanNode(left, right);
+            pq.offer(parent);
+        }
+        
+        return pq.poll();
+    }
+    
+    /**
+     * Generate Huffman codes by traversing tree
+     * Uses recursive tree traversal; a code is its bits in the low end of a
+     * long (the tree is at most 45 levels deep for an int-sized input)
+     */
+    private void generateCodes(HuffmanNode node, long code, int length) {
+        if (node == null) return;
+        
+        if (node.isLeaf) {
+            // A lone symbol still takes one bit
+            codes[node.value & 0xFF] = code;
+            codeLengths[node.value & 0xFF] = Math.max(1, length);
+            return;
+        }
+        
+        generateCodes(node.left, code << 1, length + 1);
+        generateCodes(node.right, code << 1 | 1, length + 1);
+    }
+    
+    private static void writeCode(BitOutputStream out, long code, int length) throws IOException {
+        if (length > 32) {
+            out.writeBits((int) (code >>> 32), length - 32);
+            length = 32;
+        }
+        out.writeBits((int) code, length);
+    }
+    
+    @Override
+    public String getAlgorithmName() {
+        return "HUFFMAN";
+    }
+}
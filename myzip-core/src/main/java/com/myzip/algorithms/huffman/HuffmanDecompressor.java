@@ -3,7 +3,7 @@ package com.myzip.algorithms.huffman;
 import com.myzip.utils.BitInputStream;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -37,35 +37,38 @@ public class HuffmanDecompressor {
         // Rebuild Huffman tree
         HuffmanNode root = buildHuffmanTree(frequencyMap);
         
-        // Decompress data
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        HuffmanNode current = root;
-        int decodedBytes = 0;
+        if (originalLength < 0) {
+            throw new IOException("Invalid Huffman data: truncated header");
+        }
         
         // Handle single-byte case
         if (root.isLeaf) {
-            for (int i = 0; i < originalLength; i++) {
-                baos.write(root.value);
-            }
+            byte[] output = new byte[originalLength];
+            Arrays.fill(output, root.value);
             bitIn.close();
-            return baos.toByteArray();
+            return output;
         }
         
-        while (decodedBytes < originalLength) {
+        // Decompress data straight into an array of the original length;
+        // every byte takes at least one bit, which bounds it for damaged input
+        byte[] output = new byte[(int) Math.min(originalLength, 8L * compressedData.length)];
+        HuffmanNode current = root;
+        int decodedBytes = 0;
+        
+        while (decodedBytes < output.length) {
             int bit = bitIn.readBit();
             if (bit == -1) break;
             
             current = (bit == 0) ? current.left : current.right;
             
             if (current.isLeaf) {
-                baos.write(current.value);
-                decodedBytes++;
+                output[decodedBytes++] = current.value;
                 current = root;
             }
         }
         
         bitIn.close();
-        return baos.toByteArray();
+        return decodedBytes == output.length ? output : Arrays.copyOf(output, decodedBytes);
     }
     
     /**
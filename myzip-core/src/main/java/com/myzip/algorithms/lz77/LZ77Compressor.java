@@ -0,0 +1,214 @@
+package com.myzip.algorithms.lz77;
+
+import com.myzip.algorithms.Compressor;
+import com.myzip.utils.BitOutputStream;
+import com.myzip.utils.BufferPool;
+import com.myzip.utils.PooledOutputStream;
+import com.myzip.utils.ProgressToken;
+
+import java.util.Arrays;
+
+/**
+ * LZ77 Compression Algorithm
+ * Uses Sliding Window technique with lookback buffer
+ * Finds repeated sequences and encodes as (offset, length, next_byte)
+ *
+ * Matches are looked up through hash chains over the first three bytes of
+ * every window position rather than by comparing against the whole window.
+ * The chain arrays belong to the instance and are reused from one input to
+ * the next: positions are numbered on from the previous input, so chain
+ * entries left over from it are already outside the window.
+ *
+ * A preset dictionary primes the window: its last 4095 bytes are placed
+ * before the input and matched against, but not written out.
+ */
+public class LZ77Compressor implements Compressor {
+    
+    private static final int WINDOW_SIZE = 4096;  // Lookback window (sliding window)
+    private static final int LOOKAHEAD_SIZE = 18; // Max match length
+    private static final int MIN_MATCH = 3;       // Minimum match length
+    private static final int PROGRESS_INTERVAL = 64 * 1024;
+    private static final int HASH_BITS = 15;
+    
+    // Latest position for each hash of three bytes, and for each position the
+    // previous one with the same hash (indexed modulo the window size)
+    private final int[] head = new int[1 << HASH_BITS];
+    private final int[] prev = new int[WINDOW_SIZE];
+    // Position number of the first byte of the current and of the next input
+    private int base;
+    private int nextBase = WINDOW_SIZE;
+    
+    private final LZ77Decompressor decompressor = new LZ77Decompressor();
+    
+    // Result of the last findLongestMatch call
+    private int matchOffset;
+    private int matchLength;
+    
+    private ProgressToken progress;
+    private byte[] dictionary;
+    
+    @Override
+    public void setProgressToken(ProgressToken progress) {
+        this.progress = progress;
+    }
+    
+    @Override
+    public boolean supportsDictionary() {
+        return true;
+    }
+    
+    @Override
+    public void setDictionary(byte[] dictionary) {
+        this.dictionary = dictionary != null && dictionary.length > 0 ? dictionary : null;
+        decompressor.setDictionary(this.dictionary);
+    }
+    
+    @Override
+    public byte[] compress(byte[] data) throws Exception {
+        return compress(data, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public byte[] compress(byte[] data, int maxOutputSize) throws Exception {
+        if (data == null || data.length == 0) {
+            return new byte[0];
+        }
+        long maxBits = 8L * maxOutputSize;
+        
+        // With a dictionary the input follows it in one array and only the input is encoded
+        byte[] input = data;
+        int start = 0;
+        if (dictionary != null) {
+            start = Math.min(dictionary.length, WINDOW_SIZE - 1);
+            input = BufferPool.acquire(start + data.length);
+            System.arraycopy(dictionary, dictionary.length - start, input, 0, start);
+            System.arraycopy(data, 0, input, start, data.length);
+        }
+        int end = start + data.length;
+        startInput(end);
+        
+        // Output is at most 9 bits per byte plus the length
+        PooledOutputStream out = new PooledOutputStream((int) Math.min(maxOutputSize, data.length + (data.length >> 3) + 8L));
+        try {
+            BitOutputStream bitOut = new BitOutputStream(out);
+            
+            // Write original length
+            bitOut.writeBits(data.length, 32);
+            
+            int position = start;
+            int hashed = 0;
+            long bits = 32;
+            int reported = start;
+            
+            while (position < end) {
+                if (bits > maxBits) {
+                    return null; // output is already larger than allowed
+                }
+                if (progress != null && position - reported >= PROGRESS_INTERVAL) {
+                    progress.advance(position - reported);
+                    reported = position;
+                }
+                // Every earlier position must be in the chains before searching
+                for (; hashed < position && hashed + MIN_MATCH <= end; hashed++) {
+                    insert(input, hashed);
+                }
+                findLongestMatch(input, position, end);
+                
+                if (matchLength >= MIN_MATCH && matchOffset > 0) {
+                    // Found a match: write (1, offset, length)
+                    bitOut.writeBit(1); // Flag: this is a match
+                    bitOut.writeBits(matchOffset, 12);  // 12 bits for offset (0-4095)
+                    bitOut.writeBits(matchLength, 5);   // 5 bits for length (0-31)
+                    position += matchLength;
+                    bits += 18;
+                } else {
+                    // No match: write (0, literal byte)
+                    bitOut.writeBit(0); // Flag: this is a literal
+                    bitOut.writeByte(input[position] & 0xFF);
+                    position++;
+                    bits += 9;
+                }
+            }
+            
+            bitOut.flush();
+            if (bits > maxBits) {
+                return null;
+            }
+            return out.toByteArray();
+        } finally {
+            out.close();
+            if (input != data) {
+                BufferPool.release(input);
+            }
+        }
+    }
+    
+    @Override
+    public byte[] decompress(byte[] compressedData) throws Exception {
+        return decompressor.decompress(compressedData);
+    }
+    
+    /**
+     * Number the positions of a new input after those of the previous one,
+     * starting over (and clearing the chain heads) before the numbers overflow
+     */
+    private void startInput(int length) {
+        if ((long) nextBase + length + WINDOW_SIZE > Integer.MAX_VALUE) {
+            Arrays.fill(head, 0);
+            nextBase = WINDOW_SIZE;
+        }
+        base = nextBase;
+        nextBase = base + length + WINDOW_SIZE;
+    }
+    
+    private void insert(byte[] data, int position) {
+        int hash = hash(data, position);
+        int number = base + position;
+        prev[number & (WINDOW_SIZE - 1)] = head[hash];
+        head[hash] = number;
+    }
+    
+    private static int hash(byte[] data, int position) {
+        int key = (data[position] & 0xFF) << 16 | (data[position + 1] & 0xFF) << 8 | data[position + 2] & 0xFF;
+        return (key * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+    
+    /**
+     * Find longest match in sliding window
+     * Walks the hash chain from the newest position back to the window start
+     * @param end End of the data; the array may be longer
+     */
+    private void findLongestMatch(byte[] data, int position, int end) {
+        matchOffset = 0;
+        matchLength = 0;
+        if (end - position < MIN_MATCH) {
+            return;
+        }
+        
+        // Calculate window boundaries (offsets must fit in 12 bits)
+        int windowStart = base + Math.max(0, position - (WINDOW_SIZE - 1));
+        int lookahead = Math.min(LOOKAHEAD_SIZE, end - position);
+        
+        for (int candidate = head[hash(data, position)]; candidate >= windowStart;
+                candidate = prev[candidate & (WINDOW_SIZE - 1)]) {
+            int i = candidate - base;
+            int length = 0;
+            
+            // Count matching bytes
+            while (length < lookahead && data[i + length] == data[position + length]) {
+                length++;
+            }
+            
+            // On equal length the older position wins, as in a scan of the window from its start
+            if (length >= MIN_MATCH && length >= matchLength) {
+                matchLength = length;
+                matchOffset = position - i;
+            }
+        }
+    }
+    
+    @Override
+    public String getAlgorithmName() {
+        return "LZ77";
+    }
+}
@@ -3,7 +3,6 @@ package com.myzip.algorithms.lz77;
 import com.myzip.utils.BitInputStream;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 
 /**
  * LZ77 Decompression Algorithm
@@ -11,6 +10,17 @@ import java.io.ByteArrayOutputStream;
  */
 public class LZ77Decompressor {
     
+    private static final int WINDOW_SIZE = 4096;
+    
+    private byte[] dictionary;
+    
+    /**
+     * Decode data compressed with this preset dictionary, or null for none
+     */
+    public void setDictionary(byte[] dictionary) {
+        this.dictionary = dictionary != null && dictionary.length > 0 ? dictionary : null;
+    }
+    
     public byte[] decompress(byte[] compressedData) throws Exception {
         if (compressedData == null || compressedData.length == 0) {
             return new byte[0];
@@ -20,11 +30,21 @@ public class LZ77Decompressor {
         BitInputStream bitIn = new BitInputStream(bais);
         
         // Read original length
-        int originalLength = bitIn.readBits(32);
+        int dataLength = bitIn.readBits(32);
         
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        // A dictionary is decoded as if it preceded the data, and dropped at the end
+        int start = dictionary == null ? 0 : Math.min(dictionary.length, WINDOW_SIZE - 1);
+        if (dataLength < 0 || (long) start + dataLength > Integer.MAX_VALUE - 8) {
+            throw new Exception("Invalid LZ77 length: " + dataLength);
+        }
+        int originalLength = start + dataLength;
+        byte[] output = new byte[originalLength];
+        if (start > 0) {
+            System.arraycopy(dictionary, dictionary.length - start, output, 0, start);
+        }
+        int size = start;
         
-        while (baos.size() < originalLength) {
+        while (size < originalLength) {
             int flag = bitIn.readBit();
             if (flag == -1) break;
             
@@ -40,27 +60,31 @@ public class LZ77Decompressor {
                 }
                 
                 // Validate offset
-                byte[] current = baos.toByteArray();
-                if (offset > current.length) {
+                if (offset > size) {
                     throw new Exception("Invalid LZ77 offset: " + offset + 
-                                      " exceeds buffer size: " + current.length);
+                                      " exceeds buffer size: " + size);
+                }
+                if (length > originalLength - size) {
+                    throw new Exception("Invalid LZ77 length: " + length + " past end of data");
                 }
                 
                 // Copy from sliding window (byte-by-byte to handle overlapping matches)
                 for (int i = 0; i < length; i++) {
-                    int pos = current.length - offset;
-                    baos.write(current[pos]);
-                    current = baos.toByteArray(); // Update for overlapping matches
+                    output[size] = output[size - offset];
+                    size++;
                 }
             } else {
                 // Literal: read byte
                 int literal = bitIn.readByte();
                 if (literal == -1) break;
-                baos.write(literal);
+                output[size++] = (byte) literal;
             }
         }
         
         bitIn.close();
-        return baos.toByteArray();
+        if (start > 0) {
+            return java.util.Arrays.copyOfRange(output, start, size);
+        }
+        return size == originalLength ? output : java.util.Arrays.copyOf(output, size);
     }
 }
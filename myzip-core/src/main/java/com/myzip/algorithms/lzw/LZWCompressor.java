@@ -0,0 +1,193 @@
+package com.myzip.algorithms.lzw;
+
+import com.myzip.algorithms.Compressor;
+import com.myzip.utils.PooledOutputStream;
+import com.myzip.utils.ProgressToken;
+import java.io.*;
+import java.util.*;
+
+/**
+ * LZW with a 12-bit dictionary, written as a code count and 16-bit codes.
+ *
+ * The dictionary maps (prefix code, next byte) to a code in an open-addressed
+ * table owned by the instance. Slots are stamped with the input they belong
+ * to, so starting a new input is a counter increment rather than a clear.
+ *
+ * A preset dictionary primes the table with the entries the encoder would
+ * define while encoding the dictionary itself (up to 3072, leaving room for
+ * entries of the input). They are kept in a second table, built once per
+ * dictionary and only read while compressing.
+ */
+public class LZWCompressor implements Compressor {
+    private static final int PROGRESS_INTERVAL = 64 * 1024;
+    private static final int MAX_CODES = 4096;
+    // At most 4096 entries, so the table stays under half full
+    private static final int TABLE_BITS = 13;
+    static final int MAX_PRIMED_CODES = MAX_CODES - 1024;
+    
+    private final int[] keys = new int[1 << TABLE_BITS];
+    private final int[] values = new int[1 << TABLE_BITS];
+    private final int[] stamps = new int[1 << TABLE_BITS];
+    private int stamp;
+    private final LZWDecompressor decompressor = new LZWDecompressor();
+    
+    private ProgressToken progress;
+    
+    // Entries primed from the dictionary; a value of 0 marks an empty slot
+    private byte[] dictionary;
+    private byte[] primedFor;
+    private int[] primedKeys;
+    private int[] primedValues;
+    private int primedCount;
+    
+    @Override
+    public void setProgressToken(ProgressToken progress) {
+        this.progress = progress;
+    }
+    
+    @Override
+    public boolean supportsDictionary() {
+        return true;
+    }
+    
+    @Override
+    public void setDictionary(byte[] dictionary) {
+        this.dictionary = dictionary != null && dictionary.length > 0 ? dictionary : null;
+        decompressor.setDictionary(this.dictionary);
+        if (this.dictionary == null || this.dictionary == primedFor) {
+            return;
+        }
+        if (primedKeys == null) {
+            primedKeys = new int[1 << TABLE_BITS];
+            primedValues = new int[1 << TABLE_BITS];
+        }
+        Arrays.fill(primedValues, 0);
+        int[] prefixes = new int[MAX_PRIMED_CODES];
+        byte[] suffixes = new byte[MAX_PRIMED_CODES];
+        primedCount = primeEntries(this.dictionary, prefixes, suffixes);
+        for (int i = 0; i < primedCount; i++) {
+            int key = prefixes[i] << 8 | suffixes[i] & 0xFF;
+            int slot = (key * 0x9E3779B1) >>> (32 - TABLE_BITS);
+            while (primedValues[slot] != 0) {
+                slot = (slot + 1) & (primedKeys.length - 1);
+            }
+            primedKeys[slot] = key;
+            primedValues[slot] = 256 + i;
+        }
+        primedFor = this.dictionary;
+    }
+    
+    /**
+     * Entries an LZW dictionary starts with when primed with a preset
+     * dictionary: those defined while encoding it, at most MAX_PRIMED_CODES
+     * @return Number of entries; entry i (code 256 + i) is the entry with code
+     *         prefixes[i] followed by the byte suffixes[i]
+     */
+    static int primeEntries(byte[] dictionary, int[] prefixes, byte[] suffixes) {
+        Map<Integer, Integer> codes = new HashMap<>();
+        int count = 0;
+        int current = dictionary[0] & 0xFF;
+        for (int i = 1; i < dictionary.length && count < MAX_PRIMED_CODES; i++) {
+            int b = dictionary[i] & 0xFF;
+            Integer code = codes.get(current << 8 | b);
+            if (code != null) {
+                current = code;
+            } else {
+                prefixes[count] = current;
+                suffixes[count] = (byte) b;
+                codes.put(current << 8 | b, 256 + count);
+                count++;
+                current = b;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Code of a primed entry, or 0 if there is none
+     */
+    private int primedCode(int key) {
+        int slot = (key * 0x9E3779B1) >>> (32 - TABLE_BITS);
+        while (primedValues[slot] != 0) {
+            if (primedKeys[slot] == key) {
+                return primedValues[slot];
+            }
+            slot = (slot + 1) & (primedKeys.length - 1);
+        }
+        return 0;
+    }
+    
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        return compress(data, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public byte[] compress(byte[] data, int maxOutputSize) throws IOException {
+        if (data == null || data.length == 0) {
+            return new byte[0];
+        }
+        
+        // Dictionary starts with the single-byte entries, which are implicit
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        int dictSize = dictionary != null ? 256 + primedCount : 256;
+        int current = data[0] & 0xFF;
+        int primed;
+        int codeCount = 0;
+        
+        PooledOutputStream out = new PooledOutputStream((int) Math.min(maxOutputSize, 4 + 2L * data.length));
+        try {
+            out.writeInt(0); // code count, filled in at the end
+            
+            for (int i = 1; i < data.length; i++) {
+                if (progress != null && i % PROGRESS_INTERVAL == 0) {
+                    progress.advance(PROGRESS_INTERVAL);
+                }
+                int b = data[i] & 0xFF;
+                int key = current << 8 | b;
+                int slot = (key * 0x9E3779B1) >>> (32 - TABLE_BITS);
+                while (stamps[slot] == stamp && keys[slot] != key) {
+                    slot = (slot + 1) & (keys.length - 1);
+                }
+                if (stamps[slot] == stamp) {
+                    current = values[slot];
+                } else if (dictionary != null && (primed = primedCode(key)) != 0) {
+                    current = primed;
+                } else {
+                    out.writeShort(current);
+                    if (4 + 2L * ++codeCount > maxOutputSize) {
+                        return null; // output is already larger than allowed
+                    }
+                    if (dictSize < MAX_CODES) { // Limit dictionary size
+                        keys[slot] = key;
+                        values[slot] = dictSize++;
+                        stamps[slot] = stamp;
+                    }
+                    current = b;
+                }
+            }
+            
+            out.writeShort(current);
+            if (4 + 2L * ++codeCount > maxOutputSize) {
+                return null;
+            }
+            out.setInt(0, codeCount);
+            return out.toByteArray();
+        } finally {
+            out.close();
+        }
+    }
+    
+    @Override
+    public byte[] decompress(byte[] data) throws Exception {
+        return decompressor.decompress(data);
+    }
+    
+    @Override
+    public String getAlgorithmName() {
+        return "LZW";
+    }
+}
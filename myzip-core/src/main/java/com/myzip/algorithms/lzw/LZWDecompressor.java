@@ -0,0 +1,139 @@
+package com.myzip.algorithms.lzw;
+
+import java.io.*;
+
+/**
+ * LZWDecompressor rebuilds the dictionary as arrays of (prefix code, last
+ * byte) pairs, reused from one input to the next. A first pass over the
+ * codes builds the dictionary and the output length, a second writes every
+ * entry straight into an output array of that length.
+ *
+ * With a preset dictionary the entries after the single bytes are the ones
+ * {@link LZWCompressor} primes its table with; they stay in the arrays for
+ * as long as inputs use the same dictionary.
+ */
+public class LZWDecompressor {
+    private static final int MAX_CODES = 4096;
+
+    private final int[] prefix = new int[MAX_CODES];
+    private final byte[] suffix = new byte[MAX_CODES];
+    private final byte[] first = new byte[MAX_CODES];
+    private final int[] lengths = new int[MAX_CODES];
+
+    private byte[] dictionary;
+    // Dictionary whose entries are in the arrays, and their number
+    private byte[] primedFor;
+    private int primedCount;
+
+    public LZWDecompressor() {
+        for (int i = 0; i < 256; i++) {
+            prefix[i] = -1;
+            suffix[i] = (byte) i;
+            first[i] = (byte) i;
+            lengths[i] = 1;
+        }
+    }
+
+    /**
+     * Decode data compressed with this preset dictionary, or null for none
+     */
+    public void setDictionary(byte[] dictionary) {
+        this.dictionary = dictionary != null && dictionary.length > 0 ? dictionary : null;
+    }
+
+    /**
+     * Put the primed entries of the dictionary in the arrays, unless an
+     * earlier input with the same dictionary left them there
+     */
+    private int prime() {
+        if (dictionary == null) {
+            primedFor = null;
+            return 256;
+        }
+        if (dictionary != primedFor) {
+            int[] prefixes = new int[LZWCompressor.MAX_PRIMED_CODES];
+            byte[] suffixes = new byte[LZWCompressor.MAX_PRIMED_CODES];
+            primedCount = LZWCompressor.primeEntries(dictionary, prefixes, suffixes);
+            for (int i = 0; i < primedCount; i++) {
+                int code = 256 + i;
+                prefix[code] = prefixes[i];
+                suffix[code] = suffixes[i];
+                first[code] = first[prefixes[i]];
+                lengths[code] = lengths[prefixes[i]] + 1;
+            }
+            primedFor = dictionary;
+        }
+        return 256 + primedCount;
+    }
+
+    public byte[] decompress(byte[] data) throws IOException {
+        if (data == null || data.length == 0) {
+            return new byte[0];
+        }
+        if (data.length < 4) {
+            throw new EOFException("Truncated LZW data");
+        }
+
+        int codeCount = (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | data[3] & 0xFF;
+        if (codeCount < 0 || 4 + 2L * codeCount > data.length) {
+            throw new EOFException("Truncated LZW data");
+        }
+        if (codeCount == 0) {
+            return new byte[0];
+        }
+
+        // Pass 1: rebuild the dictionary and measure the output
+        int dictSize = prime();
+        int previous = code(data, 0);
+        if (previous < 0 || previous >= dictSize) {
+            throw new IOException("Invalid LZW code: " + previous);
+        }
+        long outputLength = lengths[previous];
+        for (int i = 1; i < codeCount; i++) {
+            int code = code(data, i);
+            byte firstByte;
+            if (code >= 0 && code < dictSize) {
+                firstByte = first[code];
+                outputLength += lengths[code];
+            } else if (code == dictSize && dictSize < MAX_CODES) {
+                // The entry being defined: previous entry plus its own first byte
+                firstByte = first[previous];
+                outputLength += lengths[previous] + 1;
+            } else {
+                throw new IOException("Invalid LZW code: " + code);
+            }
+
+            if (dictSize < MAX_CODES) {
+                prefix[dictSize] = previous;
+                suffix[dictSize] = firstByte;
+                first[dictSize] = first[previous];
+                lengths[dictSize] = lengths[previous] + 1;
+                dictSize++;
+            }
+            previous = code;
+        }
+        if (outputLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("LZW data too large to decode in memory");
+        }
+
+        // Pass 2: entries never change once defined, so each code can be
+        // written from the finished dictionary, last byte first
+        byte[] output = new byte[(int) outputLength];
+        int position = 0;
+        for (int i = 0; i < codeCount; i++) {
+            int code = code(data, i);
+            int length = lengths[code];
+            for (int k = position + length - 1; k >= position; k--) {
+                output[k] = suffix[code];
+                code = prefix[code];
+            }
+            position += length;
+        }
+        return output;
+    }
+
+    private static int code(byte[] data, int index) {
+        int offset = 4 + 2 * index;
+        return (short) ((data[offset] & 0xFF) << 8 | data[offset + 1] & 0xFF);
+    }
+}
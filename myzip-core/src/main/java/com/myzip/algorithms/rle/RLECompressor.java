@@ -0,0 +1,72 @@
+package com.myzip.algorithms.rle;
+
+import com.myzip.algorithms.Compressor;
+import com.myzip.utils.PooledOutputStream;
+
+/**
+ * RLE (Run-Length Encoding) Compression Algorithm
+ * Uses Array data structure
+ * Best for raw images (BMP, PPM) with repeated pixel values
+ */
+public class RLECompressor implements Compressor {
+    
+    private static final int MAX_RUN_LENGTH = 255;
+    
+    private final RLEDecompressor decompressor = new RLEDecompressor();
+    
+    @Override
+    public byte[] compress(byte[] data) throws Exception {
+        return compress(data, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public byte[] compress(byte[] data, int maxOutputSize) throws Exception {
+        if (data == null || data.length == 0) {
+            return new byte[0];
+        }
+        
+        PooledOutputStream out = new PooledOutputStream((int) Math.min(maxOutputSize, 2L * data.length));
+        try {
+            long outputSize = 0;
+            int i = 0;
+            while (i < data.length) {
+                byte currentByte = data[i];
+                int runLength = 1;
+                
+                // Count consecutive identical bytes
+                while (i + runLength < data.length && 
+                       data[i + runLength] == currentByte && 
+                       runLength < MAX_RUN_LENGTH) {
+                    runLength++;
+                }
+                
+                // Give up once the runs take more room than allowed
+                outputSize += 2;
+                if (outputSize > maxOutputSize) {
+                    return null;
+                }
+                
+                // Write run length and byte value
+                out.write(runLength);
+                out.write(currentByte);
+                
+                i += runLength;
+            }
+            
+            return out.toByteArray();
+        } finally {
+            out.close();
+        }
+    }
+    
+    @Override
+    public byte[] decompress(byte[] compressedData) throws Exception {
+        // Decompression is handled by RLEDecompressor
+        return decompressor.decompress(compressedData);
+    }
+    
+    @Override
+    public String getAlgorithmName() {
+        return "RLE";
+    }
+}
@@ -0,0 +1,42 @@
+package com.myzip.algorithms.rle;
+
+import java.util.Arrays;
+
+/**
+ * RLE Decompression Algorithm
+ * Reconstructs original data from RLE compressed format
+ */
+public class RLEDecompressor {
+    
+    public byte[] decompress(byte[] compressedData) throws Exception {
+        if (compressedData == null || compressedData.length == 0) {
+            return new byte[0];
+        }
+        
+        // Runs are (length, byte) pairs
+        if (compressedData.length % 2 != 0) {
+            throw new IllegalArgumentException("Invalid RLE format: incomplete run");
+        }
+        
+        // The run lengths add up to the output size, so it is allocated once
+        long outputLength = 0;
+        for (int i = 0; i < compressedData.length; i += 2) {
+            outputLength += compressedData[i] & 0xFF;
+        }
+        if (outputLength > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("RLE data too large to decode in memory");
+        }
+        
+        byte[] output = new byte[(int) outputLength];
+        int position = 0;
+        for (int i = 0; i < compressedData.length; i += 2) {
+            int runLength = compressedData[i] & 0xFF;
+            
+            // Write the byte value runLength times
+            Arrays.fill(output, position, position + runLength, compressedData[i + 1]);
+            position += runLength;
+        }
+        
+        return output;
+    }
+}
@@ -0,0 +1,2361 @@
+package com.myzip.core;
+
+import com.myzip.algorithms.CodecRegistry;
+import com.myzip.utils.BufferArena;
+import com.myzip.utils.ChunkRef;
+import com.myzip.utils.FileUtils;
+import com.myzip.utils.Metadata;
+import com.myzip.utils.ProgressToken;
+import com.myzip.utils.SplitZipFile;
+import com.myzip.utils.SplitZipWriter;
+import com.myzip.utils.ZipAppender;
+import com.myzip.hashing.ChecksumType;
+import com.myzip.hashing.HashUtil;
+import com.myzip.hashing.Hasher;
+import com.myzip.hashing.TreeHasher;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.*;
+
+/**
+ * ArchiveManager handles creation and extraction of .myzip archives
+ * Manages compression, metadata, and file storage
+ */
+public class ArchiveManager {
+    
+    private DeduplicationManager deduplicationManager;
+    
+    // Files the current operation has passed to deduplication, by number:
+    // their entries, and the entry being added (null for files already archived)
+    private final List<Metadata> dedupFiles = new ArrayList<>();
+    private final List<FileEntry> dedupEntries = new ArrayList<>();
+    
+    // Next sequential payload key for files whose hash was never computed
+    private long nextStorageKey;
+    
+    // Integrity checksum for new archives, and the one used by the current operation
+    private ChecksumType checksumType = ChecksumType.XXHASH64;
+    private ChecksumType activeChecksumType;
+    
+    // Trial-compression codec choice; null uses the static mapping by file type
+    private CodecSelector codecSelector;
+    
+    // Codec forced for every file; null chooses per file
+    private String algorithm;
+    
+    // Payloads larger than this are compressed block by block
+    private int blockSize = BlockCompressor.DEFAULT_BLOCK_SIZE;
+    
+    // Per-stage timings and counters, possibly shared with other managers
+    private ArchiveMetrics metrics = new ArchiveMetrics();
+    
+    // Progress and cancellation token of the current operation, or null
+    private ProgressToken activeProgress;
+    
+    // Hold payloads waiting to be written in direct memory instead of on the heap
+    private boolean offHeapBuffers;
+    
+    // Small files are packed into shared solid blocks of this size; 0 gives every file its own payload
+    private int solidBlockSize;
+    
+    // Solid blocks of the current operation still being filled, by file type and codec
+    private final Map<String, SolidBlock> openSolidBlocks = new LinkedHashMap<>();
+    
+    // Preset dictionary for codecs that support one, and its id in the archive; null for none
+    private byte[] dictionary;
+    private String dictionaryId;
+    
+    // New archives are split into volumes of at most this many bytes; 0 writes a single file
+    private long volumeSize;
+    
+    // Buffer size for copying stored payloads to disk
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    
+    public static final int DEFAULT_SOLID_BLOCK_SIZE = 4 << 20;
+    
+    // Files larger than this always get a payload of their own
+    private static final int MAX_SOLID_FILE_SIZE = 256 * 1024;
+    
+    public ArchiveManager() {
+        this.deduplicationManager = new DeduplicationManager();
+    }
+    
+    /**
+     * Enable sub-file deduplication with content-defined chunking.
+     * Files larger than maxSize are stored as lists of chunks, each chunk
+     * stored once per archive no matter how many files contain it.
+     * @param minSize Minimum chunk size in bytes
+     * @param avgSize Target average chunk size in bytes
+     * @param maxSize Maximum chunk size in bytes
+     */
+    public void enableChunking(int minSize, int avgSize, int maxSize) {
+        deduplicationManager.enableChunking(minSize, avgSize, maxSize);
+    }
+    
+    /**
+     * Use a persistent dedup index shared across archive runs.
+     * Payloads already stored in an indexed archive are referenced instead of
+     * stored again, and payloads written by this manager are added to the index.
+     * Referenced archives must be kept for as long as the new archive is.
+     */
+    public void setPersistentIndex(PersistentHashIndex persistentIndex) {
+        deduplicationManager.setPersistentIndex(persistentIndex);
+    }
+    
+    /**
+     * Choose the integrity checksum stored for each entry of new archives.
+     * Updates keep the checksum an existing archive already uses.
+     */
+    public void setChecksumType(ChecksumType checksumType) {
+        this.checksumType = checksumType;
+    }
+    
+    public ChecksumType getChecksumType() {
+        return checksumType;
+    }
+    
+    /**
+     * Choose codecs by trial-compressing samples of each file (auto mode).
+     * Pass null to go back to the fixed codec per file type.
+     */
+    public void setCodecSelector(CodecSelector codecSelector) {
+        this.codecSelector = codecSelector;
+    }
+    
+    public CodecSelector getCodecSelector() {
+        return codecSelector;
+    }
+    
+    /**
+     * Compress every file with one codec (or STORE), bypassing both the
+     * file type mapping and the codec selector. Pass null to choose per file.
+     */
+    public void setAlgorithm(String algorithm) {
+        if (algorithm != null && !CodecRegistry.isKnown(algorithm)) {
+            throw new IllegalArgumentException("Unknown compression algorithm: " + algorithm);
+        }
+        this.algorithm = algorithm;
+    }
+    
+    public String getAlgorithm() {
+        return algorithm;
+    }
+    
+    /**
+     * Set the block size for large payloads. Each block is compressed on its
+     * own and stored raw if compression would expand it.
+     * @param blockSize Block size in bytes, a power of two
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize <= 0 || Integer.bitCount(blockSize) != 1) {
+            throw new IllegalArgumentException("Block size must be a power of two: " + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+    
+    public int getBlockSize() {
+        return blockSize;
+    }
+    
+    /**
+     * Report into the given metrics instead of this manager's own, for
+     * example one registered as a JMX MBean and shared by several managers
+     */
+    public void setMetrics(ArchiveMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Timings and counters of every operation run by this manager
+     */
+    public ArchiveMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Hold compressed payloads in direct memory while they wait to be
+     * written. Creating an archive keeps every payload until the end, so on
+     * the heap a large job needs a heap sized for its output and gives the
+     * collector that much more to trace and copy; off the heap they live in a
+     * {@link BufferArena} released when the operation ends, and GC pauses
+     * stay the same whatever the job size. Direct memory is limited by
+     * -XX:MaxDirectMemorySize.
+     */
+    public void setOffHeapBuffers(boolean offHeapBuffers) {
+        this.offHeapBuffers = offHeapBuffers;
+    }
+    
+    public boolean isOffHeapBuffers() {
+        return offHeapBuffers;
+    }
+    
+    /**
+     * Pack small files into shared solid blocks compressed as one stream,
+     * instead of compressing each on its own. Files up to 256 KiB are grouped
+     * by file type and codec and concatenated until a block is full, so the
+     * codec sees many similar files at once and the archive pays one entry
+     * header per block rather than per file. Each file's offset in its block
+     * is kept in its metadata; reading a single file decodes only the framed
+     * blocks of the solid block that hold it (see {@link #setBlockSize(int)}),
+     * so larger solid blocks compress better but make single reads cost more.
+     * Files added by updates go into new solid blocks, and a solid block stays
+     * in the archive until none of its files is left.
+     * @param solidBlockSize Solid block size in bytes, for example
+     *                       {@link #DEFAULT_SOLID_BLOCK_SIZE}, or 0 to turn solid mode off
+     */
+    public void setSolidBlockSize(int solidBlockSize) {
+        if (solidBlockSize < 0) {
+            throw new IllegalArgumentException("Solid block size must not be negative: " + solidBlockSize);
+        }
+        this.solidBlockSize = solidBlockSize;
+    }
+    
+    public int getSolidBlockSize() {
+        return solidBlockSize;
+    }
+    
+    /**
+     * Prime the codecs with a preset dictionary, such as one built by
+     * {@link DictionaryTrainer} from samples of the files, so that even a
+     * small file can refer back to content typical of its kind. It is used by
+     * the codecs that support one (LZ77, LZW and DEFLATE) for payloads
+     * compressed as a single stream, which includes solid blocks up to the
+     * block size. The dictionary is stored once in the archive as
+     * dict/&lt;id&gt; and each entry records the id it was compressed with,
+     * so archives read back without it being set; an update with a different
+     * dictionary keeps the old one for the entries still using it.
+     * @param dictionary Dictionary contents, or null (or empty) for none
+     */
+    public void setDictionary(byte[] dictionary) {
+        if (dictionary == null || dictionary.length == 0) {
+            this.dictionary = null;
+            this.dictionaryId = null;
+        } else {
+            this.dictionary = dictionary.clone();
+            this.dictionaryId = HashUtil.computeSHA256(dictionary).substring(0, 16);
+        }
+    }
+    
+    public byte[] getDictionary() {
+        return dictionary == null ? null : dictionary.clone();
+    }
+    
+    /**
+     * Write new archives as numbered volumes (archive.myzip.001, .002, ...)
+     * of at most this size instead of one file, for filesystems, media or
+     * uploads with a size limit. Large payloads are split across volumes, and
+     * the volumes are written concurrently once compression is done. The
+     * first volume holds the central directory and records which volume each
+     * payload is in, so reading an entry opens only the volumes holding it.
+     * Every read method accepts either the archive name or its first volume;
+     * split archives cannot be updated, deleted from or compacted in place.
+     * @param volumeSize Volume size in bytes, at least
+     *                   {@link SplitZipWriter#MIN_VOLUME_SIZE}, or 0 for a single file
+     */
+    public void setVolumeSize(long volumeSize) {
+        if (volumeSize != 0 && volumeSize < SplitZipWriter.MIN_VOLUME_SIZE) {
+            throw new IllegalArgumentException("Volume size must be 0 or at least "
+                + SplitZipWriter.MIN_VOLUME_SIZE + ": " + volumeSize);
+        }
+        this.volumeSize = volumeSize;
+    }
+    
+    public long getVolumeSize() {
+        return volumeSize;
+    }
+    
+    /**
+     * Create archive from files
+     * @param files Files to archive; any iterable, such as a {@link DirectoryScanner}
+     *              that is still finding files while they are compressed
+     * @param outputFile Output archive file
+     * @return Compression statistics
+     */
+    public CompressionResult createArchive(Iterable<FileEntry> files, File outputFile) throws Exception {
+        return createArchive(files, outputFile, null);
+    }
+    
+    /**
+     * Create archive from files, reporting progress in bytes of input
+     * @param progress Token, or null; if it is cancelled no archive is left behind
+     * @throws CancellationException If the token was cancelled
+     */
+    public CompressionResult createArchive(Iterable<FileEntry> files, File outputFile,
+                                           ProgressToken progress) throws Exception {
+        long operationStart = System.nanoTime();
+        startProgress(progress, files);
+        List<Metadata> metadataList = new ArrayList<>();
+        
+        long totalOriginalSize = 0;
+        long totalCompressedSize = 0;
+        int duplicateCount = 0;
+        
+        resetDeduplication();
+        deduplicationManager.setContentSource(new DedupContent(null, null));
+        nextStorageKey = 0;
+        activeChecksumType = checksumType;
+        openSolidBlocks.clear();
+        
+        try {
+            try (PendingPayloads compressedData = new PendingPayloads(offHeapBuffers)) {
+                // Process each file
+                try (ExternalArchives externals = new ExternalArchives(outputFile)) {
+                    for (FileEntry entry : files) {
+                        Metadata metadata = buildEntry(entry, compressedData, externals, null);
+                        entry.releaseData();
+                        totalOriginalSize += metadata.getOriginalSize();
+                        if (metadata.isDuplicate()) {
+                            duplicateCount++;
+                        }
+                        metadataList.add(metadata);
+                    
+                        // Payloads are held until the archive is written
+                        recordBufferUsage(compressedData, metadata);
+                    }
+                }
+                storeSolidBlocks(compressedData);
+                storeDictionary(metadataList, compressedData);
+            
+                // Solid block members know their compressed size only now
+                for (Metadata metadata : metadataList) {
+                    totalCompressedSize += metadata.getCompressedSize();
+                }
+            
+                // Write archive
+                if (volumeSize > 0) {
+                    writeVolumes(outputFile, metadataList, compressedData);
+                } else {
+                    writeArchive(outputFile, metadataList, compressedData);
+                }
+            }
+            // Other archives refer to indexed payloads by file, which a split archive does not have
+            if (volumeSize == 0) {
+                indexPayloads(outputFile, metadataList);
+            }
+        } finally {
+            // Entries and their data must not outlive the operation
+            resetDeduplication();
+            stopScan(files);
+        }
+        
+        // Create result
+        CompressionResult result = new CompressionResult();
+        result.setMetadataList(metadataList);
+        result.setOriginalSize(totalOriginalSize);
+        result.setCompressedSize(totalCompressedSize);
+        result.setDuplicateCount(duplicateCount);
+        
+        metrics.recordOperation("create", operationStart);
+        return result;
+    }
+    
+    /**
+     * Stop a scanner the operation was reading files from, so a failed or
+     * cancelled operation leaves no scan running; a finished scan is unaffected
+     */
+    private static void stopScan(Iterable<FileEntry> files) {
+        if (files instanceof DirectoryScanner) {
+            ((DirectoryScanner) files).cancel();
+        }
+    }
+    
+    /**
+     * Content of the files the current operation passed to deduplication.
+     * Files on disk whose data is no longer held are hashed straight from
+     * the file; files already archived are decoded from the archive.
+     */
+    private class DedupContent implements DeduplicationManager.ContentSource {
+        private final ZipFile zipFile; // archive being updated, or null
+        private final ExternalArchives externals;
+        
+        DedupContent(ZipFile zipFile, ExternalArchives externals) {
+            this.zipFile = zipFile;
+            this.externals = externals;
+        }
+        
+        @Override
+        public byte[] read(int file) throws Exception {
+            FileEntry entry = dedupEntries.get(file);
+            return entry != null ? entry.readData() : readContent(zipFile, dedupFiles.get(file), externals, null);
+        }
+        
+        @Override
+        public long sampleHash(int file) throws Exception {
+            java.nio.file.Path source = unheldSource(file);
+            if (source == null) {
+                return DeduplicationManager.ContentSource.super.sampleHash(file);
+            }
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                return HashUtil.computeSampleHash(channel, dedupFiles.get(file).getOriginalSize());
+            }
+        }
+        
+        @Override
+        public String contentHash(int file) throws Exception {
+            java.nio.file.Path source = unheldSource(file);
+            if (source == null) {
+                return DeduplicationManager.ContentSource.super.contentHash(file);
+            }
+            try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+                return HashUtil.computeContentHash(channel, dedupFiles.get(file).getOriginalSize());
+            }
+        }
+        
+        /**
+         * File a file's content can be hashed from in place, or null
+         */
+        private java.nio.file.Path unheldSource(int file) {
+            FileEntry entry = dedupEntries.get(file);
+            return entry != null && !entry.hasData() ? entry.getSource() : null;
+        }
+    }
+    
+    /**
+     * Forget the files the last operation passed to deduplication
+     */
+    private void resetDeduplication() {
+        deduplicationManager.clear();
+        dedupFiles.clear();
+        dedupEntries.clear();
+    }
+    
+    /**
+     * Make a token the current operation's and start it over the total input
+     * size, if known; files still being discovered leave the total unknown
+     */
+    private void startProgress(ProgressToken progress, Iterable<FileEntry> files) {
+        activeProgress = progress;
+        if (progress != null) {
+            long total = -1;
+            if (files instanceof Collection) {
+                total = 0;
+                for (FileEntry entry : files) {
+                    total += entry.getSize();
+                }
+            }
+            progress.start(total);
+        }
+    }
+    
+    /**
+     * Record memory held while an operation's payloads wait to be written:
+     * the pending payloads on the heap (or off it) plus the entry just built
+     */
+    private void recordBufferUsage(PendingPayloads compressedData, Metadata metadata) {
+        metrics.recordBufferUsage(compressedData.getHeapBytes() + metadata.getOriginalSize());
+        metrics.recordOffHeapUsage(compressedData.getOffHeapBytes());
+    }
+    
+    /**
+     * Deduplicate and compress a single file entry.
+     * New payloads are added to compressedData keyed by archive entry name.
+     * @param ownerOf If not null, receives the owner of a duplicate entry
+     */
+    private Metadata buildEntry(FileEntry entry, PendingPayloads compressedData,
+                                ExternalArchives externals, Map<Metadata, Metadata> ownerOf) throws Exception {
+        byte[] originalData = entry.getData();
+        long progressBase = 0;
+        if (activeProgress != null) {
+            activeProgress.setCurrentItem(entry.getRelativePath());
+            progressBase = activeProgress.getProcessedBytes();
+        }
+        
+        Metadata metadata = new Metadata();
+        metadata.setRelativePath(entry.getRelativePath());
+        metadata.setOriginalName(entry.getFileName());
+        metadata.setOriginalSize(originalData.length);
+        if (entry.getLastModified() > 0) {
+            metadata.setTimestamp(entry.getLastModified());
+        }
+        long start = System.nanoTime();
+        metadata.setChecksum(HashUtil.computeChecksum(originalData, activeChecksumType));
+        metadata.setChecksumType(activeChecksumType.name());
+        metrics.recordStage(ArchiveMetrics.Stage.CHECKSUM, start, originalData.length, 0);
+        
+        // Tiered duplicate check; the full hash is only needed up front for index lookups
+        start = System.nanoTime();
+        int file = dedupFiles.size();
+        dedupFiles.add(metadata);
+        dedupEntries.add(entry);
+        DeduplicationManager.FileCheck check = deduplicationManager.checkFile(file, originalData.length,
+            deduplicationManager.getPersistentIndex() != null);
+        metrics.recordStage(ArchiveMetrics.Stage.DEDUP, start, originalData.length, 0);
+        metrics.recordFile(check.isDuplicate());
+        String hash = check.getHash();
+        metadata.setHash(hash);
+        metadata.setHashLeafSize(hash == null ? 0 : HashUtil.contentHashLeafSize(originalData.length));
+        metadata.setSampleHash(check.getSampleHash());
+        
+        // Check if duplicate
+        if (check.isDuplicate()) {
+            Metadata owner = dedupFiles.get(check.getOriginal());
+            if (ownerOf != null) {
+                ownerOf.put(metadata, owner);
+            }
+            metadata.setDuplicate(true);
+            metadata.setDuplicateOf(owner.getRelativePath());
+            metadata.setCompressionAlgorithm("DUPLICATE");
+            metadata.setCompressedSize(0);
+        } else {
+            // Detect file type
+            start = System.nanoTime();
+            FileTypeDetector.FileType fileType = FileTypeDetector.detectFileType(entry.getFileName(), originalData);
+            metadata.setFileType(FileTypeDetector.getFileTypeString(fileType));
+            metrics.recordStage(ArchiveMetrics.Stage.DETECT, start, originalData.length, 0);
+            
+            // Compress or store
+            String algorithm;
+            if (this.algorithm != null) {
+                algorithm = this.algorithm;
+            } else if (codecSelector != null) {
+                start = System.nanoTime();
+                algorithm = codecSelector.choose(entry.getFileName(), fileType, originalData);
+                metrics.recordStage(ArchiveMetrics.Stage.SELECT, start, originalData.length, 0);
+            } else {
+                algorithm = FileTypeDetector.getCompressionAlgorithm(fileType);
+            }
+            metadata.setCompressionAlgorithm(algorithm);
+            metadata.setStorageKey(hash != null ? hash : Long.toHexString(nextStorageKey++));
+            
+            PersistentHashIndex.Location indexed = null;
+            if (deduplicationManager.shouldChunk(originalData.length)) {
+                storeChunks(metadata, originalData, compressedData, externals);
+            } else if (hash != null && (indexed = findIndexed(hash, PersistentHashIndex.KIND_FILE, externals)) != null) {
+                // Stored by an earlier archive run
+                metadata.setExternalArchive(indexed.getArchivePath());
+                metadata.setCompressionAlgorithm(indexed.getAlgorithm());
+                metadata.setBlockSize(indexed.getBlockSize());
+                metadata.setCompressedSize(0);
+            } else if (solidBlockSize > 0 && originalData.length > 0
+                    && originalData.length <= Math.min(MAX_SOLID_FILE_SIZE, solidBlockSize)) {
+                addToSolidBlock(metadata, originalData, compressedData);
+            } else {
+                start = System.nanoTime();
+                byte[] processedData = compressPayload(metadata, originalData);
+                metadata.setCompressedSize(processedData.length);
+                metrics.recordStage(ArchiveMetrics.Stage.COMPRESS, start, originalData.length, processedData.length);
+                
+                // Store compressed data
+                compressedData.put("data/" + metadata.getStorageKey(), processedData);
+            }
+        }
+        
+        if (activeProgress != null) {
+            activeProgress.advanceTo(progressBase + originalData.length);
+        }
+        return metadata;
+    }
+    
+    /**
+     * Compress a whole-file payload, never letting it grow: the entry is
+     * stored raw if its codec does not make it smaller, and large entries are
+     * compressed in blocks so incompressible regions are stored raw on their own.
+     * Updates the algorithm and block size of the metadata to match the payload.
+     */
+    private byte[] compressPayload(Metadata metadata, byte[] data) throws Exception {
+        String algorithm = metadata.getCompressionAlgorithm();
+        if (CodecRegistry.STORE.equals(algorithm)) {
+            return data;
+        }
+        
+        long start = System.nanoTime();
+        byte[] processedData;
+        if (data.length <= blockSize) {
+            byte[] preset = CodecRegistry.supportsDictionary(algorithm) ? dictionary : null;
+            processedData = CodecRegistry.compress(algorithm, data, data.length - 1, activeProgress, preset);
+            if (processedData != null && preset != null) {
+                metadata.setDictionaryId(dictionaryId);
+            }
+        } else {
+            processedData = BlockCompressor.encode(algorithm, data, blockSize, activeProgress);
+            if (processedData != null) {
+                metadata.setBlockSize(blockSize);
+            }
+        }
+        metrics.recordCodec(algorithm, true, start, data.length, processedData == null ? data.length : processedData.length);
+        if (processedData == null) {
+            metadata.setCompressionAlgorithm(CodecRegistry.STORE);
+            return data;
+        }
+        return processedData;
+    }
+    
+    /**
+     * Append a small file to the open solid block for its type and codec,
+     * storing that block first if the file does not fit. The file's
+     * compressed size is set when its block is stored.
+     */
+    private void addToSolidBlock(Metadata metadata, byte[] data, PendingPayloads compressedData) throws Exception {
+        String group = metadata.getFileType() + "/" + metadata.getCompressionAlgorithm();
+        SolidBlock block = openSolidBlocks.get(group);
+        if (block != null && block.content.size() + data.length > solidBlockSize) {
+            storeSolidBlock(block, compressedData);
+            block = null;
+        }
+        if (block == null) {
+            block = new SolidBlock(metadata.getCompressionAlgorithm(), Long.toHexString(nextStorageKey++));
+            openSolidBlocks.put(group, block);
+        }
+        metadata.setStorageKey(block.storageKey);
+        metadata.setSolidOffset(block.content.size());
+        block.content.write(data, 0, data.length);
+        block.members.add(metadata);
+    }
+    
+    /**
+     * Store every solid block still being filled
+     */
+    private void storeSolidBlocks(PendingPayloads compressedData) throws Exception {
+        for (SolidBlock block : new ArrayList<>(openSolidBlocks.values())) {
+            storeSolidBlock(block, compressedData);
+        }
+        openSolidBlocks.clear();
+    }
+    
+    /**
+     * Compress a solid block as one payload and give each member its share of
+     * the compressed size, in proportion to its original size
+     */
+    private void storeSolidBlock(SolidBlock block, PendingPayloads compressedData) throws Exception {
+        byte[] content = block.content.toByteArray();
+        Metadata blockMetadata = new Metadata();
+        blockMetadata.setCompressionAlgorithm(block.algorithm);
+        
+        // Members reported their progress when they were added
+        ProgressToken progress = activeProgress;
+        activeProgress = null;
+        long start = System.nanoTime();
+        byte[] processedData;
+        try {
+            processedData = compressPayload(blockMetadata, content);
+        } finally {
+            activeProgress = progress;
+        }
+        metrics.recordStage(ArchiveMetrics.Stage.COMPRESS, start, content.length, processedData.length);
+        compressedData.put(solidBlockName(block.storageKey), processedData);
+        
+        long consumed = 0;
+        long assigned = 0;
+        for (Metadata member : block.members) {
+            consumed += member.getOriginalSize();
+            long share = (long) processedData.length * consumed / content.length - assigned;
+            assigned += share;
+            member.setCompressedSize(share);
+            member.setCompressionAlgorithm(blockMetadata.getCompressionAlgorithm());
+            member.setBlockSize(blockMetadata.getBlockSize());
+            member.setSolidBlockLength(content.length);
+            member.setDictionaryId(blockMetadata.getDictionaryId());
+        }
+        openSolidBlocks.values().remove(block);
+        if (progress != null) {
+            progress.checkCancelled();
+        }
+    }
+    
+    private static String solidBlockName(String storageKey) {
+        return "solid/" + storageKey;
+    }
+    
+    private static String dictionaryName(String dictionaryId) {
+        return "dict/" + dictionaryId;
+    }
+    
+    /**
+     * Add the preset dictionary to the payloads if any of the entries was
+     * compressed with it
+     */
+    private void storeDictionary(Collection<Metadata> metadataList, PendingPayloads compressedData) {
+        if (dictionaryId == null) {
+            return;
+        }
+        for (Metadata metadata : metadataList) {
+            if (dictionaryId.equals(metadata.getDictionaryId())) {
+                compressedData.put(dictionaryName(dictionaryId), dictionary);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Split a file into content-defined chunks and store each new chunk.
+     * The compressed size of the entry counts only chunks it added.
+     */
+    private void storeChunks(Metadata metadata, byte[] data, PendingPayloads compressedData,
+                             ExternalArchives externals) throws Exception {
+        String algorithm = metadata.getCompressionAlgorithm();
+        List<ChunkRef> chunks = new ArrayList<>();
+        long addedSize = 0;
+        
+        long progressBase = activeProgress == null ? 0 : activeProgress.getProcessedBytes();
+        long stageStart = System.nanoTime();
+        int[] boundaries = deduplicationManager.findChunkBoundaries(data);
+        metrics.recordStage(ArchiveMetrics.Stage.DEDUP, stageStart, data.length, 0);
+        
+        int start = 0;
+        for (int end : boundaries) {
+            byte[] chunkData = Arrays.copyOfRange(data, start, end);
+            stageStart = System.nanoTime();
+            String chunkHash = HashUtil.computeSHA256(chunkData);
+            
+            ChunkRef chunk = deduplicationManager.getStoredChunk(chunkHash);
+            PersistentHashIndex.Location indexed = chunk == null
+                ? findIndexed(chunkHash, PersistentHashIndex.KIND_CHUNK, externals) : null;
+            metrics.recordStage(ArchiveMetrics.Stage.DEDUP, stageStart, chunkData.length, 0);
+            metrics.recordChunk(chunk != null || indexed != null);
+            if (indexed != null) {
+                // Stored by an earlier archive run
+                chunk = new ChunkRef(chunkHash, chunkData.length, indexed.getAlgorithm(),
+                    indexed.getCompressedLength(), indexed.getArchivePath());
+                deduplicationManager.storeChunk(chunk);
+            } else if (chunk == null) {
+                // A chunk that does not shrink is stored raw
+                String chunkAlgorithm = algorithm;
+                stageStart = System.nanoTime();
+                byte[] processedData = CodecRegistry.compress(algorithm, chunkData, chunkData.length - 1, activeProgress);
+                if (!CodecRegistry.STORE.equals(algorithm)) {
+                    metrics.recordCodec(algorithm, true, stageStart, chunkData.length,
+                        processedData == null ? chunkData.length : processedData.length);
+                }
+                if (processedData == null) {
+                    chunkAlgorithm = CodecRegistry.STORE;
+                    processedData = chunkData;
+                }
+                metrics.recordStage(ArchiveMetrics.Stage.COMPRESS, stageStart, chunkData.length, processedData.length);
+                chunk = new ChunkRef(chunkHash, chunkData.length, chunkAlgorithm, processedData.length);
+                deduplicationManager.storeChunk(chunk);
+                compressedData.put(chunk.getEntryName(), processedData);
+                addedSize += processedData.length;
+            }
+            chunks.add(chunk);
+            start = end;
+            if (activeProgress != null) {
+                activeProgress.advanceTo(progressBase + end);
+            }
+        }
+        
+        metadata.setChunks(chunks);
+        metadata.setCompressedSize(addedSize);
+    }
+    
+    /**
+     * Look a payload up in the persistent index, ignoring stale locations
+     * and locations in the archive being written
+     */
+    private PersistentHashIndex.Location findIndexed(String hash, byte kind, ExternalArchives externals) {
+        PersistentHashIndex.Location location = deduplicationManager.lookupPersistent(hash, kind);
+        if (location == null || !externals.contains(location.getArchivePath(), location.getEntryName(hash))) {
+            return null;
+        }
+        deduplicationManager.recordPersistentHit();
+        return location;
+    }
+    
+    /**
+     * Add the payloads stored locally in an archive to the persistent index
+     */
+    private void indexPayloads(File archiveFile, Collection<Metadata> metadataList) throws IOException {
+        PersistentHashIndex index = deduplicationManager.getPersistentIndex();
+        if (index == null) {
+            return;
+        }
+        for (Metadata metadata : metadataList) {
+            // Solid blocks and payloads needing a dictionary are not shared across archives
+            if (metadata.isDuplicate() || metadata.getExternalArchive() != null || metadata.isSolid()
+                    || metadata.getDictionaryId() != null) {
+                continue;
+            }
+            if (metadata.isChunked()) {
+                for (ChunkRef chunk : metadata.getChunks()) {
+                    if (chunk.getExternalArchive() == null) {
+                        index.put(chunk.getHash(), PersistentHashIndex.KIND_CHUNK, archiveFile,
+                            chunk.getLength(), chunk.getCompressedSize(), chunk.getCompressionAlgorithm());
+                    }
+                }
+            } else if (metadata.getHash() != null) {
+                index.put(metadata.getHash(), PersistentHashIndex.KIND_FILE, archiveFile,
+                    metadata.getOriginalSize(), metadata.getCompressedSize(), metadata.getCompressionAlgorithm(),
+                    metadata.getBlockSize());
+            }
+        }
+        index.flush();
+    }
+    
+    /**
+     * Names of the archive entries that hold a payload owner's data
+     */
+    private List<String> payloadNames(Metadata owner) {
+        List<String> names = new ArrayList<>();
+        if (owner.isChunked()) {
+            for (ChunkRef chunk : owner.getChunks()) {
+                names.add(chunk.getEntryName());
+            }
+        } else if (owner.isSolid()) {
+            names.add(solidBlockName(owner.getStorageKey()));
+        } else {
+            names.add("data/" + owner.getStorageKey());
+        }
+        if (owner.getDictionaryId() != null) {
+            names.add(dictionaryName(owner.getDictionaryId()));
+        }
+        return names;
+    }
+    
+    /**
+     * Write archive to file
+     */
+    private void writeArchive(File outputFile, List<Metadata> metadataList, PendingPayloads compressedData) throws IOException {
+        long start = System.nanoTime();
+        long payloadBytes = 0;
+        byte[] transfer = compressedData.isOffHeap() ? new byte[STREAM_BUFFER_SIZE] : null;
+        try (ZipOutputStream zos = new ZipOutputStream(
+                new BufferedOutputStream(new FileOutputStream(outputFile), STREAM_BUFFER_SIZE))) {
+            // Write metadata
+            writeMetadataEntry(zos, metadataList);
+            
+            // Write compressed data
+            for (Map.Entry<String, ByteBuffer> entry : compressedData.entrySet()) {
+                if (activeProgress != null && activeProgress.isCancelled()) {
+                    break;
+                }
+                ZipEntry dataEntry = new ZipEntry(entry.getKey());
+                zos.putNextEntry(dataEntry);
+                ByteBuffer payload = entry.getValue().duplicate();
+                payloadBytes += payload.remaining();
+                if (payload.hasArray()) {
+                    zos.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+                } else {
+                    // Off-heap payloads pass through the heap a slice at a time
+                    while (payload.hasRemaining()) {
+                        int length = Math.min(transfer.length, payload.remaining());
+                        payload.get(transfer, 0, length);
+                        zos.write(transfer, 0, length);
+                    }
+                }
+                zos.closeEntry();
+            }
+        }
+        if (activeProgress != null && activeProgress.isCancelled()) {
+            outputFile.delete(); // incomplete
+            activeProgress.checkCancelled();
+        }
+        metrics.recordStage(ArchiveMetrics.Stage.WRITE, start, payloadBytes, outputFile.length());
+    }
+    
+    /**
+     * Write archive as volumes, the central directory first
+     */
+    private void writeVolumes(File outputFile, List<Metadata> metadataList, PendingPayloads compressedData) throws IOException {
+        long start = System.nanoTime();
+        long payloadBytes = 0;
+        SplitZipWriter writer = new SplitZipWriter(outputFile, volumeSize);
+        writer.add("metadata.dat", ByteBuffer.wrap(serializeMetadata(metadataList)));
+        for (Map.Entry<String, ByteBuffer> entry : compressedData.entrySet()) {
+            writer.add(entry.getKey(), entry.getValue());
+            payloadBytes += entry.getValue().remaining();
+        }
+        // A single file of the same name would be read instead of the volumes
+        if (outputFile.isFile() && !outputFile.delete()) {
+            throw new IOException("Cannot replace " + outputFile + " with volumes");
+        }
+        writer.write(activeProgress);
+        metrics.recordStage(ArchiveMetrics.Stage.WRITE, start, payloadBytes, writer.getWrittenBytes());
+    }
+    
+    /**
+     * Add new files to an existing archive or replace changed ones in place.
+     * Files whose path, size and checksum are unchanged are skipped. Payloads
+     * already in the archive are reused untouched; only new payloads and a new
+     * central directory are written.
+     * @param archiveFile Existing archive
+     * @param files Files to add or replace
+     * @return Statistics for the files that were written
+     */
+    public CompressionResult updateArchive(File archiveFile, Iterable<FileEntry> files) throws Exception {
+        return updateArchive(archiveFile, files, null);
+    }
+    
+    /**
+     * Add or replace files in place, reporting progress in bytes of input
+     * @param progress Token, or null; if it is cancelled the archive is left unchanged
+     * @throws CancellationException If the token was cancelled
+     */
+    public CompressionResult updateArchive(File archiveFile, Iterable<FileEntry> files,
+                                           ProgressToken progress) throws Exception {
+        prepareInPlaceUpdate(archiveFile);
+        long operationStart = System.nanoTime();
+        startProgress(progress, files);
+        Map<String, Metadata> byPath = new LinkedHashMap<>();
+        Map<Metadata, Metadata> ownerOf = new IdentityHashMap<>();
+        List<Metadata> written = new ArrayList<>();
+        boolean removed = false;
+        boolean dictionaryStored = false;
+        long totalOriginalSize = 0;
+        long totalCompressedSize = 0;
+        int duplicateCount = 0;
+        
+        try {
+            try (PendingPayloads compressedData = new PendingPayloads(offHeapBuffers)) {
+                try (ZipFile zipFile = new ZipFile(archiveFile);
+                     ExternalArchives externals = new ExternalArchives(archiveFile)) {
+                    List<Metadata> metadataList = readMetadata(zipFile);
+                    dictionaryStored = dictionaryId != null && zipFile.getEntry(dictionaryName(dictionaryId)) != null;
+                    indexEntries(metadataList, byPath, ownerOf);
+                    
+                    // Seed deduplication with the payloads already stored; their
+                    // content is only read back if a new file needs a hash compared
+                    resetDeduplication();
+                    deduplicationManager.setContentSource(new DedupContent(zipFile, externals));
+                    nextStorageKey = 0;
+                    openSolidBlocks.clear();
+                    activeChecksumType = metadataList.isEmpty() ? checksumType
+                        : ChecksumType.forName(metadataList.get(0).getChecksumType());
+                    for (Metadata metadata : metadataList) {
+                        if (metadata.isDuplicate()) {
+                            continue;
+                        }
+                        // A hash from another tree mode cannot be compared; it is recomputed on demand
+                        boolean comparable = metadata.getHashLeafSize() == HashUtil.contentHashLeafSize(metadata.getOriginalSize());
+                        int file = dedupFiles.size();
+                        dedupFiles.add(metadata);
+                        dedupEntries.add(null);
+                        deduplicationManager.registerFile(file, metadata.getOriginalSize(),
+                            metadata.getSampleHash(), comparable ? metadata.getHash() : null);
+                        if (metadata.isChunked()) {
+                            for (ChunkRef chunk : metadata.getChunks()) {
+                                deduplicationManager.storeChunk(chunk);
+                            }
+                        }
+                        String key = metadata.getStorageKey();
+                        if (key != null && key.length() < 64) {
+                            nextStorageKey = Math.max(nextStorageKey, Long.parseLong(key, 16) + 1);
+                        }
+                    }
+                    
+                    for (FileEntry entry : files) {
+                        Metadata existing = byPath.get(entry.getRelativePath());
+                        if (existing != null) {
+                            if (isUnchanged(existing, entry)) {
+                                entry.releaseData();
+                                if (activeProgress != null) {
+                                    activeProgress.advance(entry.getSize());
+                                }
+                                continue;
+                            }
+                            byPath.remove(existing.getRelativePath());
+                            removed = true;
+                        }
+                        
+                        Metadata metadata = buildEntry(entry, compressedData, externals, ownerOf);
+                        entry.releaseData();
+                        byPath.put(metadata.getRelativePath(), metadata);
+                        written.add(metadata);
+                        
+                        totalOriginalSize += metadata.getOriginalSize();
+                        recordBufferUsage(compressedData, metadata);
+                        if (metadata.isDuplicate()) {
+                            duplicateCount++;
+                        }
+                    }
+                }
+                storeSolidBlocks(compressedData);
+                if (!dictionaryStored) {
+                    storeDictionary(written, compressedData);
+                }
+                for (Metadata metadata : written) {
+                    totalCompressedSize += metadata.getCompressedSize();
+                }
+                
+                if (activeProgress != null) {
+                    activeProgress.checkCancelled(); // last point before the archive is modified
+                }
+                if (!written.isEmpty() || removed) {
+                    rewriteDirectory(archiveFile, byPath, ownerOf, compressedData);
+                    indexPayloads(archiveFile, written);
+                }
+            }
+        } finally {
+            // Archived files must not be read back once the archive is closed
+            resetDeduplication();
+            stopScan(files);
+        }
+        
+        CompressionResult result = new CompressionResult();
+        result.setMetadataList(written);
+        result.setOriginalSize(totalOriginalSize);
+        result.setCompressedSize(totalCompressedSize);
+        result.setDuplicateCount(duplicateCount);
+        
+        metrics.recordOperation("update", operationStart);
+        return result;
+    }
+    
+    /**
+     * Does an archived entry already hold a file's data? A file on disk
+     * that is not held is hashed straight from the file, without reading
+     * it whole.
+     */
+    private boolean isUnchanged(Metadata existing, FileEntry entry) throws IOException {
+        if (entry.hasData() || entry.getSource() == null) {
+            return isUnchanged(existing, entry.getData());
+        }
+        try (FileChannel channel = FileChannel.open(entry.getSource(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (existing.getOriginalSize() != size) {
+                return false;
+            }
+            if (existing.getChecksum() != null) {
+                return HashUtil.computeChecksum(channel, size, ChecksumType.forName(existing.getChecksumType()))
+                    .equals(existing.getChecksum());
+            }
+            return existing.getHash() != null
+                && existing.getHash().equals(HashUtil.computeContentHash(channel, size, existing.getHashLeafSize()));
+        }
+    }
+    
+    /**
+     * Does an archived entry already hold this data?
+     * Compared by size and checksum, or by hash for archives without checksums.
+     */
+    private boolean isUnchanged(Metadata existing, byte[] data) {
+        if (existing.getOriginalSize() != data.length) {
+            return false;
+        }
+        if (existing.getChecksum() != null) {
+            return HashUtil.verifyChecksum(data, ChecksumType.forName(existing.getChecksumType()),
+                existing.getChecksum());
+        }
+        return existing.getHash() != null
+            && existing.getHash().equals(HashUtil.computeContentHash(data, existing.getHashLeafSize()));
+    }
+    
+    /**
+     * Index archived entries by path and link every duplicate to its owner
+     */
+    private void indexEntries(List<Metadata> metadataList, Map<String, Metadata> byPath,
+                              Map<Metadata, Metadata> ownerOf) {
+        for (Metadata metadata : metadataList) {
+            byPath.put(metadata.getRelativePath(), metadata);
+        }
+        for (Metadata metadata : metadataList) {
+            if (metadata.isDuplicate()) {
+                ownerOf.put(metadata, byPath.get(metadata.getDuplicateOf()));
+            }
+        }
+    }
+    
+    /**
+     * Delete entries from an existing archive by writing a new central directory.
+     * The deleted payload bytes remain in the file until {@link #compactArchive(File)}.
+     * @param archiveFile Existing archive
+     * @param relativePaths Paths of the entries to delete
+     * @return Number of entries deleted
+     */
+    public int deleteFromArchive(File archiveFile, Collection<String> relativePaths) throws Exception {
+        prepareInPlaceUpdate(archiveFile);
+        long operationStart = System.nanoTime();
+        List<Metadata> metadataList;
+        try (ZipFile zipFile = new ZipFile(archiveFile)) {
+            metadataList = readMetadata(zipFile);
+        }
+        
+        Map<String, Metadata> byPath = new LinkedHashMap<>();
+        Map<Metadata, Metadata> ownerOf = new IdentityHashMap<>();
+        indexEntries(metadataList, byPath, ownerOf);
+        
+        int deleted = 0;
+        for (String path : relativePaths) {
+            if (byPath.remove(path) != null) {
+                deleted++;
+            }
+        }
+        
+        if (deleted > 0) {
+            try (PendingPayloads noPayloads = new PendingPayloads(false)) {
+                rewriteDirectory(archiveFile, byPath, ownerOf, noPayloads);
+            }
+        }
+        metrics.recordOperation("delete", operationStart);
+        return deleted;
+    }
+    
+    /**
+     * Rewrite an archive keeping only live entries, reclaiming the space left
+     * behind by in-place updates and deletes
+     * @param archiveFile Archive to compact
+     * @return Number of bytes reclaimed
+     */
+    public long compactArchive(File archiveFile) throws Exception {
+        prepareInPlaceUpdate(archiveFile);
+        long operationStart = System.nanoTime();
+        long sizeBefore = archiveFile.length();
+        File tempFile = new File(archiveFile.getAbsolutePath() + ".tmp");
+        
+        try (ZipFile zipFile = new ZipFile(archiveFile);
+             ZipOutputStream zos = new ZipOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(tempFile), STREAM_BUFFER_SIZE))) {
+            List<Metadata> metadataList = readMetadata(zipFile);
+            writeMetadataEntry(zos, metadataList);
+            
+            Set<String> copied = new HashSet<>();
+            for (Metadata metadata : metadataList) {
+                if (metadata.isDuplicate()) {
+                    continue;
+                }
+                for (String name : payloadNames(metadata)) {
+                    ZipEntry dataEntry = zipFile.getEntry(name);
+                    if (dataEntry != null && copied.add(name)) {
+                        zos.putNextEntry(new ZipEntry(name));
+                        try (InputStream is = zipFile.getInputStream(dataEntry)) {
+                            FileUtils.copyStream(is, zos);
+                        }
+                        zos.closeEntry();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            tempFile.delete();
+            throw e;
+        }
+        
+        java.nio.file.Files.move(tempFile.toPath(), archiveFile.toPath(),
+            java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        metrics.recordStage(ArchiveMetrics.Stage.WRITE, operationStart, sizeBefore, archiveFile.length());
+        metrics.recordOperation("compact", operationStart);
+        return sizeBefore - archiveFile.length();
+    }
+    
+    /**
+     * Promote duplicates of removed owners, then write the new metadata and
+     * payloads and a central directory listing only live payloads
+     * @param ownerOf Owner of every duplicate entry, which may have been removed
+     */
+    private void rewriteDirectory(File archiveFile, Map<String, Metadata> byPath,
+                                  Map<Metadata, Metadata> ownerOf,
+                                  PendingPayloads compressedData) throws Exception {
+        List<Metadata> metadataList = new ArrayList<>(byPath.values());
+        
+        // Payload owners still in the archive
+        Set<Metadata> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Metadata metadata : metadataList) {
+            if (!metadata.isDuplicate()) {
+                owners.add(metadata);
+            }
+        }
+        
+        // A duplicate whose owner is gone becomes the new owner
+        Map<Metadata, Metadata> heirs = new IdentityHashMap<>();
+        for (Metadata metadata : metadataList) {
+            if (!metadata.isDuplicate()) {
+                continue;
+            }
+            Metadata owner = ownerOf.get(metadata);
+            if (!owners.contains(owner)) {
+                Metadata heir = heirs.get(owner);
+                if (heir == null) {
+                    metadata.setDuplicate(false);
+                    metadata.setDuplicateOf(null);
+                    metadata.setCompressionAlgorithm(owner.getCompressionAlgorithm());
+                    metadata.setBlockSize(owner.getBlockSize());
+                    metadata.setCompressedSize(owner.getCompressedSize());
+                    metadata.setFileType(owner.getFileType());
+                    metadata.setChunks(owner.getChunks());
+                    metadata.setExternalArchive(owner.getExternalArchive());
+                    metadata.setStorageKey(owner.getStorageKey());
+                    metadata.setSolidOffset(owner.getSolidOffset());
+                    metadata.setSolidBlockLength(owner.getSolidBlockLength());
+                    metadata.setDictionaryId(owner.getDictionaryId());
+                    owners.add(metadata);
+                    heirs.put(owner, metadata);
+                    continue;
+                }
+                owner = heir;
+            }
+            metadata.setDuplicateOf(owner.getRelativePath());
+        }
+        
+        Set<String> livePayloads = new HashSet<>();
+        for (Metadata owner : owners) {
+            livePayloads.addAll(payloadNames(owner));
+        }
+        
+        long start = System.nanoTime();
+        long payloadBytes = 0;
+        long sizeBefore = archiveFile.length();
+        try (ZipAppender appender = new ZipAppender(archiveFile)) {
+            // Tombstone payloads no entry refers to any more
+            for (String name : new ArrayList<>(appender.getEntryNames())) {
+                if (!name.equals("metadata.dat") && !livePayloads.contains(name)) {
+                    appender.remove(name);
+                }
+            }
+            for (Map.Entry<String, ByteBuffer> entry : compressedData.entrySet()) {
+                if (livePayloads.contains(entry.getKey())) {
+                    byte[] payload = PendingPayloads.toArray(entry.getValue());
+                    appender.putEntry(entry.getKey(), payload);
+                    payloadBytes += payload.length;
+                }
+            }
+            appender.putEntry("metadata.dat", serializeMetadata(metadataList));
+            appender.commit();
+        }
+        metrics.recordStage(ArchiveMetrics.Stage.WRITE, start, payloadBytes, archiveFile.length() - sizeBefore);
+    }
+    
+    /**
+     * Open an archive for reading, whether it is one file or split into volumes
+     */
+    private static ZipFile openArchive(File archiveFile) throws IOException {
+        File base = SplitZipFile.splitBase(archiveFile);
+        return base != null ? new SplitZipFile(base) : new ZipFile(archiveFile);
+    }
+    
+    /**
+     * Check an archive can be modified in place, and cut off anything left
+     * after its end by an earlier in-place update that never committed
+     */
+    private static void prepareInPlaceUpdate(File archiveFile) throws IOException {
+        if (SplitZipFile.splitBase(archiveFile) != null) {
+            throw new IOException("Split archive " + archiveFile
+                + " cannot be modified in place; extract it and create it again");
+        }
+        ZipAppender.recover(archiveFile);
+    }
+    
+    /**
+     * Read the metadata list of an archive
+     */
+    @SuppressWarnings("unchecked")
+    private List<Metadata> readMetadata(ZipFile zipFile) throws IOException, ClassNotFoundException {
+        ZipEntry metadataEntry = zipFile.getEntry("metadata.dat");
+        if (metadataEntry == null) {
+            throw new IOException("Archive has no metadata: " + zipFile.getName());
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(zipFile.getInputStream(metadataEntry))) {
+            return (List<Metadata>) ois.readObject();
+        }
+    }
+    
+    private byte[] serializeMetadata(List<Metadata> metadataList) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(new ArrayList<>(metadataList));
+        }
+        return baos.toByteArray();
+    }
+    
+    private void writeMetadataEntry(ZipOutputStream zos, List<Metadata> metadataList) throws IOException {
+        zos.putNextEntry(new ZipEntry("metadata.dat"));
+        zos.write(serializeMetadata(metadataList));
+        zos.closeEntry();
+    }
+    
+    /**
+     * Read the entry list of an archive without decompressing any payload
+     */
+    public List<Metadata> listArchive(File archiveFile) throws Exception {
+        try (ZipFile zipFile = openArchive(archiveFile)) {
+            return readMetadata(zipFile);
+        }
+    }
+    
+    /**
+     * Read a single entry, decompressing only its own payload
+     * @param relativePath Path of the entry in the archive
+     * @return The restored entry, or null if the archive has no such entry
+     */
+    public RestoredFile readEntry(File archiveFile, String relativePath) throws Exception {
+        try (ZipFile zipFile = openArchive(archiveFile);
+             ExternalArchives externals = new ExternalArchives(archiveFile)) {
+            List<Metadata> metadataList = readMetadata(zipFile);
+            Metadata metadata = findEntry(metadataList, relativePath);
+            if (metadata == null) {
+                return null;
+            }
+            
+            Metadata owner = findOwner(metadataList, metadata);
+            byte[] data = owner.isSolid()
+                ? readSolidRange(zipFile, owner, (int) owner.getOriginalSize(), externals)
+                : readContent(zipFile, owner, externals, null);
+            RestoredFile restoredFile = new RestoredFile();
+            restoredFile.setPath(relativePath);
+            restoredFile.setHash(metadata.getHash());
+            restoredFile.setData(data);
+            restoredFile.setSize(data.length);
+            restoredFile.setVerified(verify(metadata, data));
+            return restoredFile;
+        }
+    }
+    
+    /**
+     * Decompress only the start of an entry, for previews. Framed and chunked
+     * payloads are read block by block (or chunk by chunk) and reading stops
+     * once enough data is available, so the cost does not depend on the size
+     * of the entry. The prefix is not verified, since checksums cover whole entries.
+     * @param relativePath Path of the entry in the archive
+     * @param maxBytes Number of bytes wanted
+     * @return The first min(maxBytes, size) bytes of the entry, or null if there is no such entry
+     */
+    public byte[] previewEntry(File archiveFile, String relativePath, int maxBytes) throws Exception {
+        try (ZipFile zipFile = openArchive(archiveFile);
+             ExternalArchives externals = new ExternalArchives(archiveFile)) {
+            List<Metadata> metadataList = readMetadata(zipFile);
+            Metadata metadata = findEntry(metadataList, relativePath);
+            if (metadata == null) {
+                return null;
+            }
+            Metadata owner = findOwner(metadataList, metadata);
+            int limit = (int) Math.min(maxBytes, owner.getOriginalSize());
+            
+            if (owner.isSolid()) {
+                return readSolidRange(zipFile, owner, limit, externals);
+            }
+            if (!owner.isChunked()) {
+                ZipFile source = owner.getExternalArchive() == null ? zipFile : externals.open(owner.getExternalArchive());
+                String algorithm = owner.getCompressionAlgorithm();
+                if (owner.getBlockSize() > 0) {
+                    try (InputStream is = openPayload(source, "data/" + owner.getStorageKey())) {
+                        return BlockCompressor.decodePrefix(algorithm, is, owner.getOriginalSize(), limit);
+                    }
+                }
+                if (CodecRegistry.STORE.equals(algorithm)) {
+                    byte[] prefix = new byte[limit];
+                    try (DataInputStream is = new DataInputStream(openPayload(source, "data/" + owner.getStorageKey()))) {
+                        is.readFully(prefix);
+                    }
+                    return prefix;
+                }
+                // Unframed payloads are no larger than one block, so decoding them whole is bounded
+                byte[] content = readContent(zipFile, owner, externals, null);
+                return Arrays.copyOf(content, limit);
+            }
+            
+            byte[] prefix = new byte[limit];
+            int position = 0;
+            for (ChunkRef chunk : owner.getChunks()) {
+                if (position >= limit) {
+                    break;
+                }
+                ZipFile source = chunk.getExternalArchive() == null ? zipFile : externals.open(chunk.getExternalArchive());
+                byte[] chunkData = CodecRegistry.decompress(chunk.getCompressionAlgorithm(),
+                    readPayload(source, chunk.getEntryName()));
+                int length = Math.min(chunkData.length, limit - position);
+                System.arraycopy(chunkData, 0, prefix, position, length);
+                position += length;
+            }
+            return prefix;
+        }
+    }
+    
+    /**
+     * Find an entry by path
+     * @return The entry, or null if there is none
+     */
+    private Metadata findEntry(List<Metadata> metadataList, String relativePath) {
+        for (Metadata candidate : metadataList) {
+            if (candidate.getRelativePath().equals(relativePath)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Find the entry holding the payload of an entry: itself, or the original of a duplicate
+     */
+    private Metadata findOwner(List<Metadata> metadataList, Metadata metadata) {
+        if (!metadata.isDuplicate()) {
+            return metadata;
+        }
+        for (Metadata candidate : metadataList) {
+            if (!candidate.isDuplicate() && candidate.getRelativePath().equals(metadata.getDuplicateOf())) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No compressed data found for: " + metadata.getRelativePath());
+    }
+    
+    /**
+     * Extract archive
+     */
+    public DecompressionResult extractArchive(File archiveFile) throws Exception {
+        return extractArchive(archiveFile, null);
+    }
+    
+    /**
+     * Extract archive, reporting progress in bytes of extracted data
+     * @param progress Token, or null
+     * @throws CancellationException If the token was cancelled
+     */
+    public DecompressionResult extractArchive(File archiveFile, ProgressToken progress) throws Exception {
+        return extractArchive(archiveFile, null, progress);
+    }
+    
+    /**
+     * Extract the entries selected by a filter. Only their payloads (and
+     * those of the originals they duplicate) are read, each found through
+     * the zip central directory, so the cost depends on what is selected
+     * rather than on the size of the archive.
+     * @param filter Entries to extract, or null for all
+     * @param progress Token, or null
+     * @throws CancellationException If the token was cancelled
+     */
+    public DecompressionResult extractArchive(File archiveFile, EntryFilter filter,
+                                              ProgressToken progress) throws Exception {
+        long operationStart = System.nanoTime();
+        activeProgress = progress;
+        List<RestoredFile> restoredFiles = new ArrayList<>();
+        
+        // Read archive through its central directory so that entries
+        // superseded by in-place updates are never visited
+        try (ZipFile zipFile = openArchive(archiveFile);
+             ExternalArchives externals = new ExternalArchives(archiveFile)) {
+            List<Metadata> metadataList = readMetadata(zipFile);
+            List<Metadata> selected = select(metadataList, filter);
+            if (progress != null) {
+                long total = 0;
+                for (Metadata metadata : selected) {
+                    total += metadata.getOriginalSize();
+                }
+                progress.start(total);
+            }
+            
+            Map<String, Metadata> owners = new HashMap<>();
+            for (Metadata metadata : metadataList) {
+                if (!metadata.isDuplicate()) {
+                    owners.put(metadata.getRelativePath(), metadata);
+                }
+            }
+            
+            // Decompress files
+            Map<String, byte[]> decompressedCache = new HashMap<>();
+            long heldBytes = 0;
+            
+            for (Metadata metadata : selected) {
+                long progressBase = 0;
+                if (progress != null) {
+                    progress.setCurrentItem(metadata.getRelativePath());
+                    progressBase = progress.getProcessedBytes();
+                }
+                RestoredFile restoredFile = new RestoredFile();
+                restoredFile.setPath(metadata.getRelativePath());
+                restoredFile.setHash(metadata.getHash());
+                
+                String ownerPath = metadata.isDuplicate() ? metadata.getDuplicateOf() : metadata.getRelativePath();
+                byte[] decompressedData;
+                
+                // Check if we already decompressed this payload
+                if (decompressedCache.containsKey(ownerPath)) {
+                    decompressedData = decompressedCache.get(ownerPath);
+                } else {
+                    // Decompress for the first time
+                    Metadata owner = owners.get(ownerPath);
+                    if (owner == null) {
+                        throw new IllegalStateException("No compressed data found for: " + metadata.getRelativePath());
+                    }
+                    decompressedData = readContent(zipFile, owner, externals, progress);
+                    decompressedCache.put(ownerPath, decompressedData);
+                    heldBytes += decompressedData.length;
+                    metrics.recordBufferUsage(heldBytes);
+                }
+                
+                restoredFile.setData(decompressedData);
+                restoredFile.setSize(decompressedData.length);
+                restoredFile.setVerified(verify(metadata, decompressedData));
+                
+                restoredFiles.add(restoredFile);
+                if (progress != null) {
+                    progress.advanceTo(progressBase + decompressedData.length);
+                }
+            }
+        }
+        
+        DecompressionResult result = new DecompressionResult();
+        result.setRestoredFiles(restoredFiles);
+        
+        metrics.recordOperation("extract", operationStart);
+        return result;
+    }
+    
+    /**
+     * Extract archive to a directory
+     * @see #extractTo(File, File, EntryFilter, ProgressToken)
+     */
+    public DecompressionResult extractTo(File archiveFile, File outputDir) throws Exception {
+        return extractTo(archiveFile, outputDir, null, null);
+    }
+    
+    /**
+     * Extract archive to a directory, reporting progress
+     * @see #extractTo(File, File, EntryFilter, ProgressToken)
+     */
+    public DecompressionResult extractTo(File archiveFile, File outputDir, ProgressToken progress) throws Exception {
+        return extractTo(archiveFile, outputDir, null, progress);
+    }
+    
+    /**
+     * Extract archive to a directory, streaming every entry from its decoder
+     * straight into the output file. At most one block or chunk of an entry is
+     * in memory at a time, so archives larger than the heap can be extracted.
+     * Checksums are computed from the data as it is written; only tree
+     * hashes, which need the whole entry, are computed from the written file.
+     * A duplicate whose original has been written is copied from that file.
+     * Only entries selected by the filter are written, as in
+     * {@link #extractArchive(File, EntryFilter, ProgressToken)}.
+     * @param outputDir Directory to extract into; entry paths may not leave it
+     * @param filter Entries to extract, or null for all
+     * @param progress Token, or null; on cancellation the file being written is deleted
+     * @return Restored files without data, carrying size and verification state
+     * @throws CancellationException If the token was cancelled
+     */
+    public DecompressionResult extractTo(File archiveFile, File outputDir, EntryFilter filter,
+                                         ProgressToken progress) throws Exception {
+        long operationStart = System.nanoTime();
+        activeProgress = progress;
+        File dir = outputDir.getCanonicalFile();
+        List<RestoredFile> restoredFiles = new ArrayList<>();
+        
+        try (ZipFile zipFile = openArchive(archiveFile);
+             ExternalArchives externals = new ExternalArchives(archiveFile)) {
+            List<Metadata> metadataList = readMetadata(zipFile);
+            List<Metadata> selected = select(metadataList, filter);
+            if (progress != null) {
+                long total = 0;
+                for (Metadata metadata : selected) {
+                    total += metadata.getOriginalSize();
+                }
+                progress.start(total);
+            }
+            
+            Map<String, Metadata> owners = new HashMap<>();
+            for (Metadata metadata : metadataList) {
+                if (!metadata.isDuplicate()) {
+                    owners.put(metadata.getRelativePath(), metadata);
+                }
+            }
+            
+            // Files already written for each payload owner, with their verification result
+            Map<String, RestoredFile> written = new HashMap<>();
+            Map<String, File> writtenTo = new HashMap<>();
+            
+            for (Metadata metadata : selected) {
+                long progressBase = 0;
+                if (progress != null) {
+                    progress.setCurrentItem(metadata.getRelativePath());
+                    progressBase = progress.getProcessedBytes();
+                }
+                String ownerPath = metadata.isDuplicate() ? metadata.getDuplicateOf() : metadata.getRelativePath();
+                Metadata owner = owners.get(ownerPath);
+                if (owner == null) {
+                    throw new IllegalStateException("No compressed data found for: " + metadata.getRelativePath());
+                }
+                File target = resolveInside(dir, metadata.getRelativePath());
+                File parent = target.getParentFile();
+                if (parent != null) {
+                    parent.mkdirs();
+                }
+                
+                RestoredFile restoredFile = new RestoredFile();
+                restoredFile.setPath(metadata.getRelativePath());
+                restoredFile.setHash(metadata.getHash());
+                restoredFile.setSize(metadata.getOriginalSize());
+                
+                RestoredFile source = written.get(ownerPath);
+                try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+                    if (source != null && sameChecksum(owner, metadata)) {
+                        // Same content as a file already written and verified
+                        long start = System.nanoTime();
+                        try (FileChannel in = FileChannel.open(writtenTo.get(ownerPath).toPath(), StandardOpenOption.READ)) {
+                            long position = 0;
+                            while (position < in.size()) {
+                                position += in.transferTo(position, in.size() - position, channel);
+                            }
+                        }
+                        metrics.recordStage(ArchiveMetrics.Stage.WRITE, start, metadata.getOriginalSize(), metadata.getOriginalSize());
+                        restoredFile.setVerified(source.isVerified());
+                    } else {
+                        VerifyingChannel verifying = new VerifyingChannel(channel, metadata);
+                        writeContent(zipFile, owner, externals, verifying, progress);
+                        restoredFile.setVerified(verifying.verify());
+                    }
+                } catch (Exception e) {
+                    target.delete();
+                    throw e;
+                }
+                
+                if (!written.containsKey(ownerPath)) {
+                    written.put(ownerPath, restoredFile);
+                    writtenTo.put(ownerPath, target);
+                }
+                restoredFiles.add(restoredFile);
+                if (progress != null) {
+                    progress.advanceTo(progressBase + metadata.getOriginalSize());
+                }
+            }
+        }
+        
+        DecompressionResult result = new DecompressionResult();
+        result.setRestoredFiles(restoredFiles);
+        
+        metrics.recordOperation("extract", operationStart);
+        return result;
+    }
+    
+    /**
+     * Stream every selected entry from its decoder into a sink, verifying it
+     * on the way through. Nothing is kept once an entry is written, so any
+     * number of entries of any size can be checked or piped: writing to a
+     * channel that discards its input tests the archive.
+     * @param filter Entries to extract, or null for all
+     * @param progress Token, or null
+     * @return Restored files without data, carrying size and verification state
+     * @throws CancellationException If the token was cancelled
+     */
+    public DecompressionResult extractEach(File archiveFile, EntrySink sink, EntryFilter filter,
+                                           ProgressToken progress) throws Exception {
+        long operationStart = System.nanoTime();
+        activeProgress = progress;
+        List<RestoredFile> restoredFiles = new ArrayList<>();
+        
+        try (ZipFile zipFile = openArchive(archiveFile);
+             ExternalArchives externals = new ExternalArchives(archiveFile)) {
+            List<Metadata> metadataList = readMetadata(zipFile);
+            List<Metadata> selected = select(metadataList, filter);
+            if (progress != null) {
+                long total = 0;
+                for (Metadata metadata : selected) {
+                    total += metadata.getOriginalSize();
+                }
+                progress.start(total);
+            }
+            
+            Map<String, Metadata> owners = new HashMap<>();
+            for (Metadata metadata : metadataList) {
+                if (!metadata.isDuplicate()) {
+                    owners.put(metadata.getRelativePath(), metadata);
+                }
+            }
+            
+            for (Metadata metadata : selected) {
+                long progressBase = 0;
+                if (progress != null) {
+                    progress.setCurrentItem(metadata.getRelativePath());
+                    progressBase = progress.getProcessedBytes();
+                }
+                String ownerPath = metadata.isDuplicate() ? metadata.getDuplicateOf() : metadata.getRelativePath();
+                Metadata owner = owners.get(ownerPath);
+                if (owner == null) {
+                    throw new IllegalStateException("No compressed data found for: " + metadata.getRelativePath());
+                }
+                
+                RestoredFile restoredFile = new RestoredFile();
+                restoredFile.setPath(metadata.getRelativePath());
+                restoredFile.setHash(metadata.getHash());
+                restoredFile.setSize(metadata.getOriginalSize());
+                
+                // Duplicates are decoded again rather than held for later
+                VerifyingChannel verifying = new VerifyingChannel(sink.open(metadata), metadata);
+                writeContent(zipFile, owner, externals, verifying, progress);
+                restoredFile.setVerified(verifying.verify());
+                
+                restoredFiles.add(restoredFile);
+                if (progress != null) {
+                    progress.advanceTo(progressBase + metadata.getOriginalSize());
+                }
+            }
+        }
+        
+        DecompressionResult result = new DecompressionResult();
+        result.setRestoredFiles(restoredFiles);
+        
+        metrics.recordOperation("extract", operationStart);
+        return result;
+    }
+    
+    /**
+     * Entries selected by a filter, in archive order
+     * @param filter Filter, or null to select every entry
+     */
+    private static List<Metadata> select(List<Metadata> metadataList, EntryFilter filter) {
+        if (filter == null) {
+            return metadataList;
+        }
+        List<Metadata> selected = new ArrayList<>();
+        for (Metadata metadata : metadataList) {
+            if (filter.matches(metadata.getRelativePath())) {
+                selected.add(metadata);
+            }
+        }
+        return selected;
+    }
+    
+    /**
+     * Does a duplicate record the same checksum as its original, so that the
+     * original's verification also covers it?
+     */
+    private boolean sameChecksum(Metadata original, Metadata metadata) {
+        return Objects.equals(original.getChecksum(), metadata.getChecksum())
+            && Objects.equals(original.getChecksumType(), metadata.getChecksumType())
+            && Objects.equals(original.getHash(), metadata.getHash());
+    }
+    
+    /**
+     * Resolve an entry path under the output directory, refusing paths that escape it
+     */
+    private static File resolveInside(File dir, String path) throws IOException {
+        File target = new File(dir, path).getCanonicalFile();
+        if (!target.toPath().startsWith(dir.toPath())) {
+            throw new IOException("Entry path escapes the output directory: " + path);
+        }
+        return target;
+    }
+    
+    /**
+     * Decompress the content of a payload owner into a channel, one block
+     * or chunk at a time
+     */
+    private void writeContent(ZipFile zipFile, Metadata owner, ExternalArchives externals,
+                              WritableByteChannel out, ProgressToken progress) throws Exception {
+        if (owner.isSolid()) {
+            byte[] content = readSolidMember(zipFile, owner, externals);
+            writeFully(out, ByteBuffer.wrap(content));
+            if (progress != null) {
+                progress.advance(content.length);
+            }
+            return;
+        }
+        if (owner.isChunked()) {
+            for (ChunkRef chunk : owner.getChunks()) {
+                ZipFile source = chunk.getExternalArchive() == null ? zipFile : externals.open(chunk.getExternalArchive());
+                byte[] payload = readPayload(source, chunk.getEntryName());
+                long start = System.nanoTime();
+                byte[] chunkData = CodecRegistry.decompress(chunk.getCompressionAlgorithm(), payload);
+                recordDecompression(chunk.getCompressionAlgorithm(), start, payload.length, chunkData.length);
+                writeFully(out, ByteBuffer.wrap(chunkData));
+                metrics.recordBufferUsage(payload.length + chunkData.length);
+                if (progress != null) {
+                    progress.advance(chunkData.length);
+                }
+            }
+            return;
+        }
+        
+        ZipFile source = owner.getExternalArchive() == null ? zipFile : externals.open(owner.getExternalArchive());
+        String algorithm = owner.getCompressionAlgorithm();
+        String name = "data/" + owner.getStorageKey();
+        long start = System.nanoTime();
+        if (owner.getBlockSize() > 0) {
+            try (InputStream is = openPayload(source, name)) {
+                BlockCompressor.decode(algorithm, is, owner.getOriginalSize(), out, progress);
+            }
+            recordDecompression(algorithm, start, owner.getCompressedSize(), owner.getOriginalSize());
+            metrics.recordBufferUsage(2L * owner.getBlockSize());
+        } else if (CodecRegistry.STORE.equals(algorithm)) {
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            try (InputStream is = openPayload(source, name)) {
+                int n;
+                while ((n = is.read(buffer)) != -1) {
+                    writeFully(out, ByteBuffer.wrap(buffer, 0, n));
+                    if (progress != null) {
+                        progress.advance(n);
+                    }
+                }
+            }
+            metrics.recordStage(ArchiveMetrics.Stage.READ, start, owner.getOriginalSize(), owner.getOriginalSize());
+        } else {
+            // Unframed payloads are no larger than one block
+            byte[] content = readContent(zipFile, owner, externals, null);
+            writeFully(out, ByteBuffer.wrap(content));
+            metrics.recordBufferUsage(owner.getCompressedSize() + content.length);
+        }
+    }
+    
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+    
+    /**
+     * VerifyingChannel writes an entry to its file and hashes the bytes on
+     * the way through. Tree-hashed entries are cheaper to hash in parallel,
+     * so for those the file is read back once it is complete; an entry
+     * written somewhere that cannot be read back is tree-hashed as it goes.
+     */
+    private class VerifyingChannel implements WritableByteChannel {
+        private final WritableByteChannel out;
+        private final FileChannel file; // tree hashes are read back from it, or null
+        private final Metadata metadata;
+        private final Hasher hasher;
+        private final TreeHasher.Stream treeStream; // tree hash built while writing, or null
+        private final int treeLeafSize;
+        private final String expected;
+        private long hashNanos;
+        
+        VerifyingChannel(FileChannel file, Metadata metadata) {
+            this(file, file, metadata);
+        }
+        
+        /**
+         * Verify data written to a channel that cannot be read back; a tree
+         * hash is then built as the data goes through
+         */
+        VerifyingChannel(WritableByteChannel out, Metadata metadata) {
+            this(out, null, metadata);
+        }
+        
+        private VerifyingChannel(WritableByteChannel out, FileChannel file, Metadata metadata) {
+            this.out = out;
+            this.file = file;
+            this.metadata = metadata;
+            if (metadata.getChecksum() != null) {
+                ChecksumType type = ChecksumType.forName(metadata.getChecksumType());
+                this.expected = metadata.getChecksum();
+                this.treeLeafSize = type == ChecksumType.SHA256
+                    ? HashUtil.contentHashLeafSize(metadata.getOriginalSize()) : 0;
+                this.hasher = treeLeafSize == 0 ? new Hasher(type) : null;
+            } else {
+                this.expected = metadata.getHash();
+                this.treeLeafSize = metadata.getHashLeafSize();
+                this.hasher = treeLeafSize == 0 ? new Hasher(ChecksumType.SHA256) : null;
+            }
+            this.treeStream = treeLeafSize != 0 && file == null
+                ? new TreeHasher(treeLeafSize, ForkJoinPool.commonPool()).stream() : null;
+        }
+        
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (hasher != null) {
+                long start = System.nanoTime();
+                hasher.update(src.duplicate());
+                hashNanos += System.nanoTime() - start;
+            } else if (treeStream != null) {
+                long start = System.nanoTime();
+                treeStream.update(src.duplicate());
+                hashNanos += System.nanoTime() - start;
+            }
+            int written = 0;
+            while (src.hasRemaining()) {
+                written += out.write(src);
+            }
+            return written;
+        }
+        
+        /**
+         * Finish hashing and compare with the recorded checksum
+         */
+        boolean verify() throws IOException {
+            // The stage covers hashing done during writes as well as now
+            long start = System.nanoTime() - hashNanos;
+            String actual;
+            if (hasher != null) {
+                actual = hasher.hexDigest();
+            } else if (treeStream != null) {
+                actual = HashUtil.toHex(treeStream.digest());
+            } else {
+                TreeHasher treeHasher = new TreeHasher(treeLeafSize, ForkJoinPool.commonPool());
+                actual = HashUtil.toHex(treeHasher.hash(file, file.size()));
+            }
+            metrics.recordStage(ArchiveMetrics.Stage.VERIFY, start, metadata.getOriginalSize(), 0);
+            return actual.equals(expected);
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return out.isOpen();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+    
+    /**
+     * Check restored data against the checksum (or content hash) recorded for an entry
+     */
+    private boolean verify(Metadata metadata, byte[] data) {
+        long start = System.nanoTime();
+        boolean verified;
+        if (metadata.getChecksum() != null) {
+            verified = HashUtil.verifyChecksum(data,
+                ChecksumType.forName(metadata.getChecksumType()), metadata.getChecksum());
+        } else {
+            verified = HashUtil.computeContentHash(data, metadata.getHashLeafSize())
+                .equals(metadata.getHash());
+        }
+        metrics.recordStage(ArchiveMetrics.Stage.VERIFY, start, data.length, 0);
+        return verified;
+    }
+    
+    /**
+     * Read and decompress the content of a payload owner,
+     * reassembling it from its chunks if it was chunked
+     * @param progress Token to report block progress to, or null
+     */
+    private byte[] readContent(ZipFile zipFile, Metadata owner, ExternalArchives externals,
+                               ProgressToken progress) throws Exception {
+        if (owner.isSolid()) {
+            return readSolidMember(zipFile, owner, externals);
+        }
+        if (!owner.isChunked()) {
+            ZipFile source = owner.getExternalArchive() == null ? zipFile : externals.open(owner.getExternalArchive());
+            byte[] payload = readPayload(source, "data/" + owner.getStorageKey());
+            long start = System.nanoTime();
+            byte[] content = owner.getBlockSize() > 0
+                ? BlockCompressor.decode(owner.getCompressionAlgorithm(), payload, owner.getOriginalSize(), progress)
+                : CodecRegistry.decompress(owner.getCompressionAlgorithm(), payload,
+                    loadDictionary(source, owner, externals));
+            recordDecompression(owner.getCompressionAlgorithm(), start, payload.length, content.length);
+            return content;
+        }
+        
+        byte[] content = new byte[(int) owner.getOriginalSize()];
+        int position = 0;
+        for (ChunkRef chunk : owner.getChunks()) {
+            ZipFile source = chunk.getExternalArchive() == null ? zipFile : externals.open(chunk.getExternalArchive());
+            byte[] payload = readPayload(source, chunk.getEntryName());
+            long start = System.nanoTime();
+            byte[] chunkData = CodecRegistry.decompress(chunk.getCompressionAlgorithm(), payload);
+            recordDecompression(chunk.getCompressionAlgorithm(), start, payload.length, chunkData.length);
+            System.arraycopy(chunkData, 0, content, position, chunkData.length);
+            position += chunkData.length;
+            if (progress != null) {
+                progress.checkCancelled();
+            }
+        }
+        return content;
+    }
+    
+    /**
+     * Read a file stored in a solid block. The whole block is decoded and kept
+     * for the rest of the operation, since the files stored with it are
+     * usually read next.
+     */
+    private byte[] readSolidMember(ZipFile zipFile, Metadata member, ExternalArchives externals) throws Exception {
+        String name = solidBlockName(member.getStorageKey());
+        byte[] content = externals.getSolidBlock(name);
+        if (content == null) {
+            byte[] payload = readPayload(zipFile, name);
+            long start = System.nanoTime();
+            content = member.getBlockSize() > 0
+                ? BlockCompressor.decode(member.getCompressionAlgorithm(), payload, member.getSolidBlockLength())
+                : CodecRegistry.decompress(member.getCompressionAlgorithm(), payload,
+                    loadDictionary(zipFile, member, externals));
+            recordDecompression(member.getCompressionAlgorithm(), start, payload.length, content.length);
+            metrics.recordBufferUsage(payload.length + content.length);
+            externals.setSolidBlock(name, content);
+        }
+        long end = member.getSolidOffset() + member.getOriginalSize();
+        if (content.length != member.getSolidBlockLength() || end > content.length) {
+            throw new IOException("Corrupt solid block " + name + " for " + member.getRelativePath());
+        }
+        return Arrays.copyOfRange(content, (int) member.getSolidOffset(), (int) end);
+    }
+    
+    /**
+     * Read the first length bytes of a file stored in a solid block, decoding
+     * only what holds them: the framed blocks they fall in, the bytes
+     * themselves if the block is stored, or the whole block if it is a single
+     * codec stream (which is no larger than one framed block)
+     */
+    private byte[] readSolidRange(ZipFile zipFile, Metadata member, int length,
+                                  ExternalArchives externals) throws Exception {
+        String name = solidBlockName(member.getStorageKey());
+        String algorithm = member.getCompressionAlgorithm();
+        long offset = member.getSolidOffset();
+        long start = System.nanoTime();
+        byte[] data;
+        try (InputStream is = openPayload(zipFile, name)) {
+            if (member.getBlockSize() > 0) {
+                data = BlockCompressor.decodeRange(algorithm, is, member.getSolidBlockLength(), offset, length);
+            } else if (CodecRegistry.STORE.equals(algorithm)) {
+                data = new byte[length];
+                DataInputStream in = new DataInputStream(is);
+                long skipped = 0;
+                while (skipped < offset) {
+                    long n = in.skip(offset - skipped);
+                    if (n <= 0) {
+                        throw new IOException("Corrupt solid block " + name + " for " + member.getRelativePath());
+                    }
+                    skipped += n;
+                }
+                in.readFully(data);
+            } else {
+                byte[] content = CodecRegistry.decompress(algorithm, readAllBytes(is),
+                    loadDictionary(zipFile, member, externals));
+                if (offset + length > content.length) {
+                    throw new IOException("Corrupt solid block " + name + " for " + member.getRelativePath());
+                }
+                data = Arrays.copyOfRange(content, (int) offset, (int) offset + length);
+            }
+        }
+        recordDecompression(algorithm, start, member.getCompressedSize(), length);
+        return data;
+    }
+    
+    /**
+     * Read the preset dictionary an entry was compressed with, once per operation
+     * @return The dictionary, or null if the entry was compressed without one
+     */
+    private byte[] loadDictionary(ZipFile zipFile, Metadata owner, ExternalArchives externals) throws IOException {
+        String id = owner.getDictionaryId();
+        if (id == null) {
+            return null;
+        }
+        byte[] dictionary = externals.getDictionary(id);
+        if (dictionary == null) {
+            dictionary = readPayload(zipFile, dictionaryName(id));
+            externals.setDictionary(id, dictionary);
+        }
+        return dictionary;
+    }
+    
+    private void recordDecompression(String algorithm, long start, long payloadLength, long contentLength) {
+        if (!CodecRegistry.STORE.equals(algorithm)) {
+            metrics.recordCodec(algorithm, false, start, payloadLength, contentLength);
+        }
+        metrics.recordStage(ArchiveMetrics.Stage.DECOMPRESS, start, payloadLength, contentLength);
+    }
+    
+    private byte[] readPayload(ZipFile zipFile, String name) throws IOException {
+        ZipEntry dataEntry = zipFile.getEntry(name);
+        if (dataEntry == null) {
+            throw new IllegalStateException("Missing archive entry: " + name);
+        }
+        long start = System.nanoTime();
+        try (InputStream is = zipFile.getInputStream(dataEntry)) {
+            // The size is in the zip entry, so the payload can be read into an array of its size
+            long size = dataEntry.getSize();
+            byte[] payload;
+            if (size >= 0 && size <= Integer.MAX_VALUE - 8) {
+                payload = new byte[(int) size];
+                new DataInputStream(is).readFully(payload);
+            } else {
+                payload = readAllBytes(is);
+            }
+            metrics.recordStage(ArchiveMetrics.Stage.READ, start, dataEntry.getCompressedSize(), payload.length);
+            return payload;
+        }
+    }
+    
+    /**
+     * Open a payload for streaming, for reads that need only part of it
+     */
+    private InputStream openPayload(ZipFile zipFile, String name) throws IOException {
+        ZipEntry dataEntry = zipFile.getEntry(name);
+        if (dataEntry == null) {
+            throw new IllegalStateException("Missing archive entry: " + name);
+        }
+        return new BufferedInputStream(zipFile.getInputStream(dataEntry));
+    }
+    
+    /**
+     * Read all bytes from input stream
+     */
+    private byte[] readAllBytes(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int bytesRead;
+        while ((bytesRead = is.read(buffer)) != -1) {
+            baos.write(buffer, 0, bytesRead);
+        }
+        return baos.toByteArray();
+    }
+    
+    // Helper classes
+    
+    /**
+     * Small files of one type and codec waiting to be compressed together
+     */
+    private static class SolidBlock {
+        private final String algorithm;
+        private final String storageKey;
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        private final List<Metadata> members = new ArrayList<>();
+        
+        SolidBlock(String algorithm, String storageKey) {
+            this.algorithm = algorithm;
+            this.storageKey = storageKey;
+        }
+    }
+    
+    /**
+     * Payloads compressed by the current operation, keyed by archive entry
+     * name and held until they are written: on the heap, or copied into a
+     * {@link BufferArena} whose memory is released when this is closed
+     */
+    private static class PendingPayloads implements Closeable {
+        // In the order the payloads were made, so that split archives keep files added together in one volume
+        private final Map<String, ByteBuffer> payloads = new LinkedHashMap<>();
+        private final BufferArena arena;
+        private long heapBytes;
+        
+        PendingPayloads(boolean offHeap) {
+            this.arena = offHeap ? new BufferArena() : null;
+        }
+        
+        boolean isOffHeap() {
+            return arena != null;
+        }
+        
+        void put(String entryName, byte[] payload) {
+            if (arena != null) {
+                payloads.put(entryName, arena.copyOf(payload));
+            } else {
+                payloads.put(entryName, ByteBuffer.wrap(payload));
+                heapBytes += payload.length;
+            }
+        }
+        
+        Set<Map.Entry<String, ByteBuffer>> entrySet() {
+            return payloads.entrySet();
+        }
+        
+        long getHeapBytes() {
+            return heapBytes;
+        }
+        
+        long getOffHeapBytes() {
+            return arena != null ? arena.getReservedBytes() : 0;
+        }
+        
+        /**
+         * A payload's bytes as an array, copied only if held off the heap
+         */
+        static byte[] toArray(ByteBuffer payload) {
+            if (payload.hasArray() && payload.arrayOffset() == 0 && payload.remaining() == payload.array().length) {
+                return payload.array();
+            }
+            byte[] bytes = new byte[payload.remaining()];
+            payload.duplicate().get(bytes);
+            return bytes;
+        }
+        
+        @Override
+        public void close() {
+            payloads.clear();
+            if (arena != null) {
+                arena.close();
+            }
+        }
+    }
+    
+    /**
+     * Other archives referenced through the persistent index, opened on demand
+     * and kept open for the duration of one operation, the solid block
+     * decoded last in that operation and the preset dictionaries read in it
+     */
+    private static class ExternalArchives implements Closeable {
+        private final String selfPath;
+        private final Map<String, ZipFile> openArchives = new HashMap<>();
+        private String solidBlockName;
+        private byte[] solidBlock;
+        private final Map<String, byte[]> dictionaries = new HashMap<>();
+        
+        ExternalArchives(File self) throws IOException {
+            this.selfPath = self.getCanonicalPath();
+        }
+        
+        ZipFile open(String path) throws IOException {
+            ZipFile zipFile = openArchives.get(path);
+            if (zipFile == null) {
+                zipFile = new ZipFile(path);
+                openArchives.put(path, zipFile);
+            }
+            return zipFile;
+        }
+        
+        /**
+         * Does another, still existing archive hold this entry?
+         */
+        boolean contains(String path, String entryName) {
+            if (path.equals(selfPath) || !new File(path).isFile()) {
+                return false;
+            }
+            try {
+                return open(path).getEntry(entryName) != null;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        
+        /**
+         * Decoded content of a solid block, if it was the last one decoded
+         */
+        byte[] getSolidBlock(String name) {
+            return name.equals(solidBlockName) ? solidBlock : null;
+        }
+        
+        void setSolidBlock(String name, byte[] content) {
+            solidBlockName = name;
+            solidBlock = content;
+        }
+        
+        /**
+         * Preset dictionary by id, if it was read before
+         */
+        byte[] getDictionary(String id) {
+            return dictionaries.get(id);
+        }
+        
+        void setDictionary(String id, byte[] dictionary) {
+            dictionaries.put(id, dictionary);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            solidBlock = null;
+            dictionaries.clear();
+            for (ZipFile zipFile : openArchives.values()) {
+                zipFile.close();
+            }
+            openArchives.clear();
+        }
+    }
+    
+    public static class FileEntry {
+        private String relativePath;
+        private String fileName;
+        private byte[] data;
+        private final java.nio.file.Path source; // file data is read from when needed, or null
+        private final long size;
+        private final long lastModified;
+        
+        public FileEntry(String relativePath, String fileName, byte[] data) {
+            this.relativePath = relativePath;
+            this.fileName = fileName;
+            this.data = data;
+            this.source = null;
+            this.size = data.length;
+            this.lastModified = 0;
+        }
+        
+        /**
+         * Entry for a file on disk, read only when its data is first needed
+         * @param size Size when the file was found
+         * @param lastModified Modification time in milliseconds
+         */
+        public FileEntry(String relativePath, java.nio.file.Path source, long size, long lastModified) {
+            this.relativePath = relativePath;
+            this.fileName = source.getFileName().toString();
+            this.source = source;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+        
+        public String getRelativePath() { return relativePath; }
+        public String getFileName() { return fileName; }
+        public java.nio.file.Path getSource() { return source; }
+        public long getSize() { return data != null ? data.length : size; }
+        public long getLastModified() { return lastModified; }
+        
+        /**
+         * Is the entry's data in memory, rather than only in its source file?
+         */
+        public boolean hasData() { return data != null; }
+        
+        public byte[] getData() {
+            if (data == null && source != null) {
+                try {
+                    data = java.nio.file.Files.readAllBytes(source);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return data;
+        }
+        
+        /**
+         * The entry's data, read from the source file without keeping it if
+         * it is not already held
+         */
+        public byte[] readData() throws IOException {
+            if (data == null && source != null) {
+                return java.nio.file.Files.readAllBytes(source);
+            }
+            return data;
+        }
+        
+        /**
+         * Drop data read from the source file; it is read again if needed.
+         * Entries created from a byte array keep their data.
+         */
+        public void releaseData() {
+            if (source != null) {
+                data = null;
+            }
+        }
+    }
+    
+    /**
+     * Receives entries from {@link #extractEach}, one at a time
+     */
+    public interface EntrySink {
+        /**
+         * Channel to write an entry's content to; it is not closed afterwards
+         */
+        WritableByteChannel open(Metadata metadata) throws IOException;
+    }
+    
+    public static class CompressionResult {
+        private List<Metadata> metadataList;
+        private long originalSize;
+        private long compressedSize;
+        private int duplicateCount;
+        
+        public List<Metadata> getMetadataList() { return metadataList; }
+        public void setMetadataList(List<Metadata> metadataList) { this.metadataList = metadataList; }
+        
+        public long getOriginalSize() { return originalSize; }
+        public void setOriginalSize(long originalSize) { this.originalSize = originalSize; }
+        
+        public long getCompressedSize() { return compressedSize; }
+        public void setCompressedSize(long compressedSize) { this.compressedSize = compressedSize; }
+        
+        public int getDuplicateCount() { return duplicateCount; }
+        public void setDuplicateCount(int duplicateCount) { this.duplicateCount = duplicateCount; }
+        
+        public double getCompressionRatio() {
+            if (originalSize == 0) return 0;
+            return (1.0 - (double) compressedSize / originalSize) * 100;
+        }
+    }
+    
+    public static class RestoredFile {
+        private String path;
+        private byte[] data; // null when extracted to disk by extractTo
+        private long size;
+        private String hash;
+        private boolean verified;
+        
+        public String getPath() { return path; }
+        public void setPath(String path) { this.path = path; }
+        
+        public byte[] getData() { return data; }
+        public void setData(byte[] data) { this.data = data; }
+        
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+        
+        public String getHash() { return hash; }
+        public void setHash(String hash) { this.hash = hash; }
+        
+        public boolean isVerified() { return verified; }
+        public void setVerified(boolean verified) { this.verified = verified; }
+    }
+    
+    public static class DecompressionResult {
+        private List<RestoredFile> restoredFiles;
+        
+        public List<RestoredFile> getRestoredFiles() { return restoredFiles; }
+        public void setRestoredFiles(List<RestoredFile> restoredFiles) { this.restoredFiles = restoredFiles; }
+    }
+}
@@ -0,0 +1,388 @@
+package com.myzip.core;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ArchiveMetrics accumulates where time and bytes go in archive operations:
+ * nanoseconds and bytes in/out per pipeline stage, per-codec throughput
+ * with a histogram of per-call speeds, dedup hit rates and the peak amount
+ * of data held in memory. Counters only grow until {@link #reset()}, so one
+ * instance can be shared by several managers and read at any time, from
+ * another thread or over JMX.
+ */
+public class ArchiveMetrics implements ArchiveMetricsMXBean {
+
+    /**
+     * Pipeline stages, in the order an entry goes through them
+     */
+    public enum Stage {
+        /** Integrity checksum of the input */
+        CHECKSUM,
+        /** Duplicate detection, including content hashing */
+        DEDUP,
+        /** File type detection */
+        DETECT,
+        /** Codec choice by trial compression */
+        SELECT,
+        /** Compression of payloads and chunks */
+        COMPRESS,
+        /** Writing payloads and the central directory */
+        WRITE,
+        /** Reading payloads from an archive */
+        READ,
+        /** Decompression of payloads and chunks */
+        DECOMPRESS,
+        /** Checksum verification of extracted data */
+        VERIFY
+    }
+
+    /**
+     * ThroughputHistogram counts calls by speed in power-of-two MB/s buckets,
+     * from under 1/16 MB/s up to 4 GB/s and more
+     */
+    public static class ThroughputHistogram {
+        private static final int MIN_EXPONENT = -4;
+        private static final int BUCKETS = 17;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        void record(long bytes, long nanos) {
+            double megabytesPerSecond = megabytesPerSecond(bytes, nanos);
+            int bucket = megabytesPerSecond <= 0 ? 0
+                : (int) Math.floor(Math.log(megabytesPerSecond) / Math.log(2)) - MIN_EXPONENT;
+            counts.incrementAndGet(Math.max(0, Math.min(BUCKETS - 1, bucket)));
+        }
+
+        /**
+         * Calls per bucket; bucket i holds speeds from 2^(i-4) to 2^(i-3) MB/s
+         */
+        public long[] getCounts() {
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+            }
+            return snapshot;
+        }
+
+        /**
+         * Approximate percentile speed in MB/s (the middle of its bucket), or 0 if empty
+         * @param percentile Between 0 and 100
+         */
+        public double getPercentile(double percentile) {
+            long[] snapshot = getCounts();
+            long total = 0;
+            for (long count : snapshot) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= Math.max(1, rank)) {
+                    return Math.pow(2, i + MIN_EXPONENT) * Math.sqrt(2);
+                }
+            }
+            return Math.pow(2, BUCKETS - 1 + MIN_EXPONENT);
+        }
+    }
+
+    /**
+     * Totals for one codec in one direction
+     */
+    private static class CodecTotals {
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+        final ThroughputHistogram histogram = new ThroughputHistogram();
+    }
+
+    private final LongAdder[] stageNanos = newAdders();
+    private final LongAdder[] stageBytesIn = newAdders();
+    private final LongAdder[] stageBytesOut = newAdders();
+    private final Map<String, CodecTotals> compressTotals = new ConcurrentHashMap<>();
+    private final Map<String, CodecTotals> decompressTotals = new ConcurrentHashMap<>();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder filesChecked = new LongAdder();
+    private final LongAdder duplicateFiles = new LongAdder();
+    private final LongAdder chunksChecked = new LongAdder();
+    private final LongAdder duplicateChunks = new LongAdder();
+    private final AtomicLong peakBufferBytes = new AtomicLong();
+    private final AtomicLong peakOffHeapBytes = new AtomicLong();
+
+    private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[Stage.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    public void addListener(MetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    // ==================== Recording ====================
+
+    /**
+     * Record a stage that started at the given System.nanoTime()
+     */
+    public void recordStage(Stage stage, long startNanos, long bytesIn, long bytesOut) {
+        long nanos = System.nanoTime() - startNanos;
+        stageNanos[stage.ordinal()].add(nanos);
+        stageBytesIn[stage.ordinal()].add(bytesIn);
+        stageBytesOut[stage.ordinal()].add(bytesOut);
+        for (MetricsListener listener : listeners) {
+            listener.stageCompleted(stage, nanos, bytesIn, bytesOut);
+        }
+    }
+
+    /**
+     * Record one codec call that started at the given System.nanoTime().
+     * Throughput is measured on the uncompressed side in both directions.
+     */
+    public void recordCodec(String algorithm, boolean compress, long startNanos, long bytesIn, long bytesOut) {
+        long nanos = System.nanoTime() - startNanos;
+        CodecTotals totals = (compress ? compressTotals : decompressTotals)
+            .computeIfAbsent(algorithm, k -> new CodecTotals());
+        totals.calls.increment();
+        totals.nanos.add(nanos);
+        totals.bytesIn.add(bytesIn);
+        totals.bytesOut.add(bytesOut);
+        totals.histogram.record(compress ? bytesIn : bytesOut, nanos);
+        for (MetricsListener listener : listeners) {
+            listener.codecCompleted(algorithm, compress, nanos, bytesIn, bytesOut);
+        }
+    }
+
+    public void recordFile(boolean duplicate) {
+        filesChecked.increment();
+        if (duplicate) {
+            duplicateFiles.increment();
+        }
+    }
+
+    public void recordChunk(boolean duplicate) {
+        chunksChecked.increment();
+        if (duplicate) {
+            duplicateChunks.increment();
+        }
+    }
+
+    /**
+     * Report the bytes an operation currently holds in memory; the maximum is kept
+     */
+    public void recordBufferUsage(long bytes) {
+        peakBufferBytes.accumulateAndGet(bytes, Math::max);
+    }
+
+    /**
+     * Report the direct memory an operation currently holds; the maximum is kept
+     */
+    public void recordOffHeapUsage(long bytes) {
+        peakOffHeapBytes.accumulateAndGet(bytes, Math::max);
+    }
+
+    /**
+     * Record a whole operation that started at the given System.nanoTime()
+     */
+    public void recordOperation(String operation, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        operations.increment();
+        for (MetricsListener listener : listeners) {
+            listener.operationCompleted(operation, nanos);
+        }
+    }
+
+    // ==================== Reading ====================
+
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()].sum();
+    }
+
+    public long getStageBytesIn(Stage stage) {
+        return stageBytesIn[stage.ordinal()].sum();
+    }
+
+    public long getStageBytesOut(Stage stage) {
+        return stageBytesOut[stage.ordinal()].sum();
+    }
+
+    /**
+     * Histogram of per-call compression speeds for a codec, or null if it was never used
+     */
+    public ThroughputHistogram getCompressHistogram(String algorithm) {
+        CodecTotals totals = compressTotals.get(algorithm);
+        return totals == null ? null : totals.histogram;
+    }
+
+    public ThroughputHistogram getDecompressHistogram(String algorithm) {
+        CodecTotals totals = decompressTotals.get(algorithm);
+        return totals == null ? null : totals.histogram;
+    }
+
+    @Override
+    public long getOperationCount() {
+        return operations.sum();
+    }
+
+    @Override
+    public Map<String, Long> getStageNanos() {
+        return byStage(stageNanos);
+    }
+
+    @Override
+    public Map<String, Long> getStageBytesIn() {
+        return byStage(stageBytesIn);
+    }
+
+    @Override
+    public Map<String, Long> getStageBytesOut() {
+        return byStage(stageBytesOut);
+    }
+
+    @Override
+    public Map<String, Double> getCompressMegabytesPerSecond() {
+        return throughput(compressTotals, true);
+    }
+
+    @Override
+    public Map<String, Double> getDecompressMegabytesPerSecond() {
+        return throughput(decompressTotals, false);
+    }
+
+    @Override
+    public Map<String, Double> getCompressMedianMegabytesPerSecond() {
+        Map<String, Double> medians = new TreeMap<>();
+        for (Map.Entry<String, CodecTotals> entry : compressTotals.entrySet()) {
+            medians.put(entry.getKey(), entry.getValue().histogram.getPercentile(50));
+        }
+        return medians;
+    }
+
+    @Override
+    public double getFileDedupHitRate() {
+        long checked = filesChecked.sum();
+        return checked == 0 ? 0 : (double) duplicateFiles.sum() / checked;
+    }
+
+    @Override
+    public double getChunkDedupHitRate() {
+        long checked = chunksChecked.sum();
+        return checked == 0 ? 0 : (double) duplicateChunks.sum() / checked;
+    }
+
+    @Override
+    public long getPeakBufferBytes() {
+        return peakBufferBytes.get();
+    }
+
+    @Override
+    public long getPeakOffHeapBytes() {
+        return peakOffHeapBytes.get();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i].reset();
+            stageBytesIn[i].reset();
+            stageBytesOut[i].reset();
+        }
+        compressTotals.clear();
+        decompressTotals.clear();
+        operations.reset();
+        filesChecked.reset();
+        duplicateFiles.reset();
+        chunksChecked.reset();
+        duplicateChunks.reset();
+        peakBufferBytes.set(0);
+        peakOffHeapBytes.set(0);
+    }
+
+    /**
+     * Get statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("operations", getOperationCount());
+        for (Stage stage : Stage.values()) {
+            long nanos = getStageNanos(stage);
+            if (nanos > 0) {
+                stats.put(stage.name().toLowerCase() + "Millis", nanos / 1_000_000);
+            }
+        }
+        for (Map.Entry<String, Double> entry : getCompressMegabytesPerSecond().entrySet()) {
+            stats.put("compressMBps." + entry.getKey(), Math.round(entry.getValue() * 10) / 10.0);
+        }
+        for (Map.Entry<String, Double> entry : getDecompressMegabytesPerSecond().entrySet()) {
+            stats.put("decompressMBps." + entry.getKey(), Math.round(entry.getValue() * 10) / 10.0);
+        }
+        stats.put("fileDedupHitRate", getFileDedupHitRate());
+        stats.put("chunkDedupHitRate", getChunkDedupHitRate());
+        stats.put("peakBufferBytes", getPeakBufferBytes());
+        stats.put("peakOffHeapBytes", getPeakOffHeapBytes());
+        return stats;
+    }
+
+    // ==================== JMX ====================
+
+    /**
+     * Register this instance with the platform MBean server
+     * under com.myzip:type=ArchiveMetrics,name=<name>
+     * @return The name it was registered under
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.myzip:type=ArchiveMetrics,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Remove a registration made by {@link #registerMBean(String)}
+     */
+    public static void unregisterMBean(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    private static Map<String, Long> byStage(LongAdder[] adders) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            values.put(stage.name(), adders[stage.ordinal()].sum());
+        }
+        return values;
+    }
+
+    private static Map<String, Double> throughput(Map<String, CodecTotals> totals, boolean compress) {
+        Map<String, Double> rates = new TreeMap<>();
+        for (Map.Entry<String, CodecTotals> entry : totals.entrySet()) {
+            CodecTotals codec = entry.getValue();
+            long bytes = compress ? codec.bytesIn.sum() : codec.bytesOut.sum();
+            rates.put(entry.getKey(), megabytesPerSecond(bytes, codec.nanos.sum()));
+        }
+        return rates;
+    }
+
+    private static double megabytesPerSecond(long bytes, long nanos) {
+        return nanos <= 0 ? 0 : bytes * 1e3 / nanos;
+    }
+}
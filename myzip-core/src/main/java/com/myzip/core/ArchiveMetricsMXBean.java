@@ -0,0 +1,41 @@
+package com.myzip.core;
+
+import java.util.Map;
+
+/**
+ * ArchiveMetricsMXBean is the JMX view of {@link ArchiveMetrics}.
+ * Maps are keyed by stage or codec name.
+ */
+public interface ArchiveMetricsMXBean {
+
+    long getOperationCount();
+
+    Map<String, Long> getStageNanos();
+
+    Map<String, Long> getStageBytesIn();
+
+    Map<String, Long> getStageBytesOut();
+
+    /** Compression throughput per codec, MB/s of input over all calls */
+    Map<String, Double> getCompressMegabytesPerSecond();
+
+    /** Decompression throughput per codec, MB/s of output over all calls */
+    Map<String, Double> getDecompressMegabytesPerSecond();
+
+    /** Median compression throughput per codec, MB/s, from the histogram */
+    Map<String, Double> getCompressMedianMegabytesPerSecond();
+
+    /** Fraction of files found to be duplicates */
+    double getFileDedupHitRate();
+
+    /** Fraction of chunks already stored, in this run or an indexed archive */
+    double getChunkDedupHitRate();
+
+    /** Largest number of heap bytes held at once by an operation */
+    long getPeakBufferBytes();
+
+    /** Largest number of bytes of direct memory held at once by an operation */
+    long getPeakOffHeapBytes();
+
+    void reset();
+}
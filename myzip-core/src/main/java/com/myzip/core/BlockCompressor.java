@@ -0,0 +1,263 @@
+package com.myzip.core;
+
+import com.myzip.algorithms.CodecRegistry;
+import com.myzip.utils.ProgressToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * BlockCompressor splits a large payload into fixed-size blocks and
+ * compresses each block on its own. A block whose compressed form would
+ * not be smaller than the block itself is stored raw, so incompressible
+ * regions of a file never grow it, and compression of such a block stops
+ * as soon as its output passes the block size.
+ *
+ * Framed payload layout, repeated for every block:
+ * <pre>
+ *   method        (byte: 0 = stored, 1 = compressed with the entry's algorithm)
+ *   raw length    (int)
+ *   stored length (int)
+ *   block bytes
+ * </pre>
+ */
+public class BlockCompressor {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    static final int METHOD_STORED = 0;
+    static final int METHOD_COMPRESSED = 1;
+
+    private BlockCompressor() {
+    }
+
+    /**
+     * Compress data block by block
+     * @param algorithm Codec for the blocks
+     * @param blockSize Size of every block but the last
+     * @return Framed payload, or null if it would not be smaller than the data
+     *         (every block expanded), in which case the data should be stored
+     */
+    public static byte[] encode(String algorithm, byte[] data, int blockSize) throws Exception {
+        return encode(algorithm, data, blockSize, null);
+    }
+
+    /**
+     * Compress data block by block, reporting progress and checking for
+     * cancellation after every block
+     * @param progress Token, or null for none
+     */
+    public static byte[] encode(String algorithm, byte[] data, int blockSize, ProgressToken progress) throws Exception {
+        long base = progress == null ? 0 : progress.getProcessedBytes();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length / 2);
+        DataOutputStream out = new DataOutputStream(baos);
+        boolean anyCompressed = false;
+
+        byte[] block = new byte[Math.min(blockSize, data.length)];
+        for (int start = 0; start < data.length; start += blockSize) {
+            int length = Math.min(blockSize, data.length - start);
+            if (length != block.length) {
+                block = new byte[length];
+            }
+            System.arraycopy(data, start, block, 0, length);
+
+            // Worth compressing only if it saves more than nothing
+            byte[] compressed = CodecRegistry.compress(algorithm, block, length - 1, progress);
+            if (compressed != null) {
+                out.writeByte(METHOD_COMPRESSED);
+                out.writeInt(length);
+                out.writeInt(compressed.length);
+                out.write(compressed);
+                anyCompressed = true;
+            } else {
+                out.writeByte(METHOD_STORED);
+                out.writeInt(length);
+                out.writeInt(length);
+                out.write(data, start, length);
+            }
+
+            if (baos.size() >= data.length) {
+                return null;
+            }
+            if (progress != null) {
+                progress.advanceTo(base + start + length);
+            }
+        }
+
+        out.flush();
+        return anyCompressed ? baos.toByteArray() : null;
+    }
+
+    /**
+     * Reassemble data from a framed payload
+     * @param algorithm Codec of the compressed blocks
+     * @param originalSize Size of the original data
+     */
+    public static byte[] decode(String algorithm, byte[] payload, long originalSize) throws Exception {
+        return decode(algorithm, payload, originalSize, null);
+    }
+
+    /**
+     * Reassemble data from a framed payload, reporting progress and checking
+     * for cancellation after every block
+     * @param progress Token, or null for none
+     */
+    public static byte[] decode(String algorithm, byte[] payload, long originalSize,
+                                ProgressToken progress) throws Exception {
+        if (originalSize > Integer.MAX_VALUE) {
+            throw new IOException("Entry too large to decode in memory: " + originalSize);
+        }
+        byte[] data = new byte[(int) originalSize];
+        int position = 0;
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        while (position < data.length) {
+            byte[] block = readBlock(in, algorithm, position, data.length - position);
+            System.arraycopy(block, 0, data, position, block.length);
+            position += block.length;
+            if (progress != null) {
+                progress.advance(block.length);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Decode a framed payload read from a stream, writing each block to a
+     * channel as soon as it is decoded, so that only one block is held in
+     * memory whatever the size of the data
+     * @param originalSize Size of the original data
+     * @param progress Token to report each block to and check for cancellation, or null
+     */
+    public static void decode(String algorithm, InputStream payload, long originalSize,
+                              WritableByteChannel out, ProgressToken progress) throws Exception {
+        long position = 0;
+        DataInputStream in = new DataInputStream(payload);
+        while (position < originalSize) {
+            byte[] block = readBlock(in, algorithm, position, originalSize - position);
+            ByteBuffer buffer = ByteBuffer.wrap(block);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            position += block.length;
+            if (progress != null) {
+                progress.advance(block.length);
+            }
+        }
+    }
+
+    /**
+     * Decode only the start of a framed payload, reading blocks from the
+     * stream until limit bytes are available; the rest of the stream is not read
+     * @param originalSize Size of the original data
+     * @param limit Number of bytes wanted
+     * @return The first min(limit, originalSize) bytes of the original data
+     */
+    public static byte[] decodePrefix(String algorithm, InputStream payload, long originalSize,
+                                      int limit) throws Exception {
+        byte[] data = new byte[(int) Math.min(limit, originalSize)];
+        int position = 0;
+
+        DataInputStream in = new DataInputStream(payload);
+        while (position < data.length) {
+            byte[] block = readBlock(in, algorithm, position, originalSize - position);
+            int length = Math.min(block.length, data.length - position);
+            System.arraycopy(block, 0, data, position, length);
+            position += length;
+        }
+        return data;
+    }
+
+    /**
+     * Decode one range of a framed payload. Blocks before the range are
+     * skipped using their headers, without being decoded, and the stream is
+     * not read past the block holding the end of the range.
+     * @param originalSize Size of the original data
+     * @param offset Start of the range in the original data
+     * @param length Length of the range
+     */
+    public static byte[] decodeRange(String algorithm, InputStream payload, long originalSize,
+                                     long offset, int length) throws Exception {
+        if (offset < 0 || length < 0 || offset + length > originalSize) {
+            throw new IOException("Range " + offset + "+" + length + " outside data of " + originalSize + " bytes");
+        }
+        byte[] data = new byte[length];
+        long position = 0;
+        int copied = 0;
+
+        DataInputStream in = new DataInputStream(payload);
+        while (copied < length) {
+            int method = in.readUnsignedByte();
+            int rawLength = in.readInt();
+            int storedLength = in.readInt();
+            if (rawLength < 0 || rawLength > originalSize - position || storedLength < 0) {
+                throw new IOException("Corrupt block header at offset " + position);
+            }
+            if (position + rawLength <= offset) {
+                skipFully(in, storedLength);
+                position += rawLength;
+                continue;
+            }
+            byte[] stored = new byte[storedLength];
+            in.readFully(stored);
+            byte[] block = decodeBlock(algorithm, method, rawLength, stored, position);
+            int from = (int) Math.max(0, offset - position);
+            int count = Math.min(block.length - from, length - copied);
+            System.arraycopy(block, from, data, copied, count);
+            copied += count;
+            position += block.length;
+        }
+        return data;
+    }
+
+    private static void skipFully(DataInputStream in, int count) throws IOException {
+        while (count > 0) {
+            int skipped = in.skipBytes(count);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of framed payload");
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Read and decode the next block of a framed payload
+     * @param position Offset of the block in the original data, for error messages
+     * @param remaining Bytes of original data still expected
+     */
+    private static byte[] readBlock(DataInputStream in, String algorithm, long position,
+                                    long remaining) throws Exception {
+        int method = in.readUnsignedByte();
+        int rawLength = in.readInt();
+        int storedLength = in.readInt();
+        if (rawLength < 0 || rawLength > remaining || storedLength < 0) {
+            throw new IOException("Corrupt block header at offset " + position);
+        }
+        byte[] stored = new byte[storedLength];
+        in.readFully(stored);
+        return decodeBlock(algorithm, method, rawLength, stored, position);
+    }
+
+    private static byte[] decodeBlock(String algorithm, int method, int rawLength, byte[] stored,
+                                      long position) throws Exception {
+        byte[] block;
+        if (method == METHOD_STORED) {
+            block = stored;
+        } else if (method == METHOD_COMPRESSED) {
+            block = CodecRegistry.decompress(algorithm, stored);
+        } else {
+            throw new IOException("Unknown block method " + method + " at offset " + position);
+        }
+        if (block.length != rawLength) {
+            throw new IOException("Block at offset " + position + " decoded to "
+                + block.length + " bytes, expected " + rawLength);
+        }
+        return block;
+    }
+}
@@ -0,0 +1,237 @@
+package com.myzip.core;
+
+import com.myzip.algorithms.CodecRegistry;
+import com.myzip.utils.FileUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CodecSelector picks a compression algorithm per file by trial-compressing
+ * a few sampled blocks with every candidate codec and scoring the results
+ * with a {@link CostModel}. Samples are small and noisy, so the codec
+ * {@link FileTypeDetector} recommends for the type is kept unless another
+ * one scores better by at least the model's minSavings.
+ *
+ * Decisions are cached per extension (and detected type): the first few
+ * files of an extension are trialled, after which the codec they voted for
+ * most is reused without further trials, so the trial cost amortises.
+ */
+public class CodecSelector {
+
+    private static final int SAMPLE_BLOCK = 8192;
+    private static final int SAMPLE_BLOCKS = 3;
+    private static final int DEFAULT_TRIALS_PER_EXTENSION = 4;
+
+    /**
+     * CostModel scores a trial as the fraction of bytes saved minus a
+     * penalty for CPU time: score = saved - cpuWeight * nanosPerByte.
+     * The default weight trades one percentage point of ratio for
+     * 100 ns per byte of compression time; the codecs take roughly 15 to
+     * 70 ns per byte on text, so time only separates codecs whose ratios
+     * are within a point. A codec must save at least minSavings of the
+     * input, otherwise the data is stored, and must beat the recommended
+     * codec by minSavings to replace it.
+     */
+    public static class CostModel {
+        private final double cpuWeight;
+        private final double minSavings;
+
+        public CostModel(double cpuWeight, double minSavings) {
+            this.cpuWeight = cpuWeight;
+            this.minSavings = minSavings;
+        }
+
+        public static CostModel defaults() {
+            return new CostModel(1e-4, 0.02);
+        }
+
+        /** Only the ratio counts */
+        public static CostModel bestRatio() {
+            return new CostModel(0, 0.02);
+        }
+
+        public double getCpuWeight() { return cpuWeight; }
+        public double getMinSavings() { return minSavings; }
+
+        /**
+         * Score a trial; higher is better
+         * @param inputBytes Bytes fed to the codec
+         * @param outputBytes Bytes it produced
+         * @param nanos Time it took
+         */
+        public double score(long inputBytes, long outputBytes, long nanos) {
+            double saved = 1.0 - (double) outputBytes / inputBytes;
+            return saved - cpuWeight * ((double) nanos / inputBytes);
+        }
+    }
+
+    /**
+     * Votes collected for one extension
+     */
+    private static class Decision {
+        final Map<String, Integer> votes = new HashMap<>();
+        int trials;
+        String settled;
+    }
+
+    private final CostModel costModel;
+    private final List<String> candidates;
+    private final int trialsPerExtension;
+    private final Map<String, Decision> decisions = new ConcurrentHashMap<>();
+    private final AtomicLong trialCount = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public CodecSelector() {
+        this(CostModel.defaults());
+    }
+
+    public CodecSelector(CostModel costModel) {
+        this(costModel, CodecRegistry.getCodecNames(), DEFAULT_TRIALS_PER_EXTENSION);
+    }
+
+    /**
+     * @param candidates Codec names to trial
+     * @param trialsPerExtension Files of an extension trialled before its decision is fixed
+     */
+    public CodecSelector(CostModel costModel, List<String> candidates, int trialsPerExtension) {
+        for (String candidate : candidates) {
+            if (!CodecRegistry.isKnown(candidate)) {
+                throw new IllegalArgumentException("Unknown compression algorithm: " + candidate);
+            }
+        }
+        this.costModel = costModel;
+        this.candidates = new ArrayList<>(candidates);
+        this.trialsPerExtension = trialsPerExtension;
+    }
+
+    /**
+     * Choose the algorithm for a file
+     * @param fileName File name, for the extension
+     * @param fileType Detected type; pre-compressed data is stored without trials
+     * @param data File content
+     * @return Codec name, or STORE
+     */
+    public String choose(String fileName, FileTypeDetector.FileType fileType, byte[] data) {
+        if (!FileTypeDetector.shouldCompress(fileType) || data.length == 0) {
+            return CodecRegistry.STORE;
+        }
+
+        String key = FileUtils.getExtension(fileName).toLowerCase() + "/" + fileType;
+        Decision decision = decisions.computeIfAbsent(key, k -> new Decision());
+        synchronized (decision) {
+            if (decision.settled != null) {
+                cacheHits.incrementAndGet();
+                return decision.settled;
+            }
+        }
+
+        String choice = trial(sample(data), FileTypeDetector.getCompressionAlgorithm(fileType));
+
+        synchronized (decision) {
+            decision.votes.merge(choice, 1, Integer::sum);
+            decision.trials++;
+            if (decision.trials >= trialsPerExtension) {
+                decision.settled = Collections.max(decision.votes.entrySet(), Map.Entry.comparingByValue()).getKey();
+            }
+        }
+        return choice;
+    }
+
+    /**
+     * Trial-compress sample blocks with every candidate
+     * @param recommended Codec recommended for the file type, or STORE
+     * @return The recommended codec unless another beats it by minSavings;
+     *         STORE if none saves enough
+     */
+    private String trial(List<byte[]> blocks, String recommended) {
+        trialCount.incrementAndGet();
+        double minSavings = costModel.getMinSavings();
+
+        // The baseline a candidate must beat: the recommended codec, or storing
+        String fallback = CodecRegistry.STORE;
+        double fallbackScore = 0;
+        if (!CodecRegistry.STORE.equals(recommended)) {
+            double score = score(recommended, blocks);
+            if (score >= minSavings) {
+                fallback = recommended;
+                fallbackScore = score;
+            }
+        }
+
+        String best = fallback;
+        double bestScore = fallbackScore + minSavings;
+        for (String candidate : candidates) {
+            if (candidate.equals(fallback)) {
+                continue;
+            }
+            double score = score(candidate, blocks);
+            if (score > bestScore) {
+                bestScore = score;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Cost model score of one codec over the sample blocks
+     * @return Score, or negative infinity if the codec fails on this data
+     */
+    private double score(String codec, List<byte[]> blocks) {
+        long input = 0;
+        long output = 0;
+        long nanos = 0;
+        try {
+            for (byte[] block : blocks) {
+                long start = System.nanoTime();
+                byte[] compressed = CodecRegistry.compress(codec, block);
+                nanos += System.nanoTime() - start;
+                input += block.length;
+                output += compressed.length;
+            }
+        } catch (Exception e) {
+            return Double.NEGATIVE_INFINITY; // a codec that fails on this data is not a candidate
+        }
+        return costModel.score(input, output, nanos);
+    }
+
+    /**
+     * Evenly spaced sample blocks, or the whole data if it is small
+     */
+    private static List<byte[]> sample(byte[] data) {
+        if (data.length <= SAMPLE_BLOCK * SAMPLE_BLOCKS) {
+            return Collections.singletonList(data);
+        }
+        List<byte[]> blocks = new ArrayList<>(SAMPLE_BLOCKS);
+        long stride = (data.length - SAMPLE_BLOCK) / (SAMPLE_BLOCKS - 1);
+        for (int i = 0; i < SAMPLE_BLOCKS; i++) {
+            int start = (int) (i * stride);
+            blocks.add(Arrays.copyOfRange(data, start, start + SAMPLE_BLOCK));
+        }
+        return blocks;
+    }
+
+    public CostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * Forget all cached decisions
+     */
+    public void clearCache() {
+        decisions.clear();
+    }
+
+    /**
+     * Get statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("trials", trialCount.get());
+        stats.put("cacheHits", cacheHits.get());
+        stats.put("cachedExtensions", decisions.size());
+        return stats;
+    }
+}
@@ -0,0 +1,101 @@
+package com.myzip.core;
+
+import java.util.*;
+
+/**
+ * ContentDefinedChunker splits data into variable-size chunks using a
+ * FastCDC-style rolling gear hash. Cut points depend only on the bytes
+ * around them, so an insertion or edit shifts at most the neighbouring
+ * chunks and the rest of the file still deduplicates.
+ */
+public class ContentDefinedChunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // Fixed seed: cut points must be identical across runs for dedup to work
+        SplittableRandom random = new SplittableRandom(0x4D795A6970L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+
+    // Normalized chunking: a stricter mask before the average size, a looser one after
+    private final long maskSmall;
+    private final long maskLarge;
+
+    public ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize >= avgSize || avgSize >= maxSize) {
+            throw new IllegalArgumentException("Chunk sizes must satisfy 0 < min < avg < max");
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+
+        int bits = 31 - Integer.numberOfLeadingZeros(avgSize);
+        this.maskSmall = topBits(bits + 1);
+        this.maskLarge = topBits(bits - 1);
+    }
+
+    /**
+     * Split data into chunks
+     * @return End offset (exclusive) of every chunk, in order
+     */
+    public int[] findCutPoints(byte[] data) {
+        List<Integer> cuts = new ArrayList<>();
+        int position = 0;
+        while (position < data.length) {
+            position += nextChunkLength(data, position, data.length);
+            cuts.add(position);
+        }
+
+        int[] result = new int[cuts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = cuts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Length of the chunk starting at start
+     */
+    private int nextChunkLength(byte[] data, int start, int end) {
+        int remaining = end - start;
+        if (remaining <= minSize) {
+            return remaining;
+        }
+        int limit = Math.min(remaining, maxSize);
+        int normal = Math.min(limit, avgSize);
+
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[start + i] & 0xFF];
+            if ((hash & maskSmall) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[start + i] & 0xFF];
+            if ((hash & maskLarge) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Mask over the highest bits, which depend on the last 64 bytes
+     */
+    private static long topBits(int count) {
+        return count <= 0 ? 0 : -1L << (64 - count);
+    }
+
+    public int getMinSize() { return minSize; }
+    public int getAvgSize() { return avgSize; }
+    public int getMaxSize() { return maxSize; }
+}
@@ -0,0 +1,470 @@
+package com.myzip.core;
+
+import com.myzip.hashing.HashUtil;
+import com.myzip.utils.ChunkRef;
+import com.myzip.utils.FileUtils;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * DeduplicationManager handles file deduplication using hash-based approach
+ * Uses Hash Table data structure (open-addressed table of fixed-size hash keys)
+ */
+public class DeduplicationManager {
+    
+    // Hash table: hash -> index of the owning file; paths only for files registered by path
+    private HashKeyTable hashToFile;
+    private List<Candidate> owners;
+    private List<String> ownerPaths;
+    
+    // Optional bounded LRU cache: hash -> file data
+    private Map<String, byte[]> dataCache;
+    private long dataCacheLimit;
+    private long dataCacheBytes;
+    
+    // Track duplicate files; paths only for files processed by path
+    private Set<String> duplicateFiles;
+    private int duplicateCount;
+    
+    // Tiered duplicate detection: size -> files of that size, read through source
+    private Map<Long, List<Candidate>> sizeBuckets;
+    private ContentSource source;
+    private long sampleHashes;
+    private long fullHashes;
+    
+    // Chunk store: chunk hash -> index of the stored chunk (sub-file deduplication)
+    private HashKeyTable chunkIndex;
+    private List<ChunkRef> chunkStore;
+    private ContentDefinedChunker chunker;
+    private long chunkHits;
+    private long dedupedChunkBytes;
+    
+    // Optional on-disk index shared across archive runs
+    private PersistentHashIndex persistentIndex;
+    private long persistentHits;
+    
+    public DeduplicationManager() {
+        this.hashToFile = new HashKeyTable();
+        this.owners = new ArrayList<>();
+        this.ownerPaths = new ArrayList<>();
+        this.duplicateFiles = new HashSet<>();
+        this.sizeBuckets = new HashMap<>();
+        this.chunkIndex = new HashKeyTable();
+        this.chunkStore = new ArrayList<>();
+    }
+    
+    /**
+     * Keep the data of recently processed files in memory, evicting the
+     * least recently used once the total size passes maxBytes.
+     * The cache is disabled by default so that file data is never pinned.
+     */
+    public void enableDataCache(long maxBytes) {
+        this.dataCacheLimit = maxBytes;
+        this.dataCacheBytes = 0;
+        this.dataCache = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    }
+    
+    public void disableDataCache() {
+        this.dataCache = null;
+        this.dataCacheBytes = 0;
+    }
+    
+    /**
+     * Enable content-defined chunking for sub-file deduplication
+     * @param minSize Minimum chunk size in bytes
+     * @param avgSize Target average chunk size in bytes
+     * @param maxSize Maximum chunk size in bytes
+     */
+    public void enableChunking(int minSize, int avgSize, int maxSize) {
+        this.chunker = new ContentDefinedChunker(minSize, avgSize, maxSize);
+    }
+    
+    public void disableChunking() {
+        this.chunker = null;
+    }
+    
+    /**
+     * Should this file be split into chunks?
+     * Files no larger than one maximum chunk gain nothing over whole-file dedup.
+     */
+    public boolean shouldChunk(long size) {
+        return chunker != null && size > chunker.getMaxSize();
+    }
+    
+    /**
+     * Find content-defined chunk boundaries
+     * @return End offset of every chunk
+     */
+    public int[] findChunkBoundaries(byte[] data) {
+        return chunker.findCutPoints(data);
+    }
+    
+    /**
+     * Look up a chunk that is already stored
+     * @return The stored chunk, or null if this chunk is new
+     */
+    public ChunkRef getStoredChunk(String chunkHash) {
+        int index = chunkIndex.get(chunkHash);
+        if (index < 0) {
+            return null;
+        }
+        ChunkRef chunk = chunkStore.get(index);
+        chunkHits++;
+        dedupedChunkBytes += chunk.getLength();
+        return chunk;
+    }
+    
+    /**
+     * Record a chunk as stored
+     */
+    public void storeChunk(ChunkRef chunk) {
+        if (!chunkIndex.containsKey(chunk.getHash())) {
+            chunkIndex.put(chunk.getHash(), chunkStore.size());
+            chunkStore.add(chunk);
+        }
+    }
+    
+    /**
+     * Check if file data is duplicate
+     * @param data File data
+     * @param filePath File path
+     * @return Hash of the file
+     */
+    public String processFile(byte[] data, String filePath) {
+        String hash = HashUtil.computeContentHash(data);
+        
+        if (hashToFile.containsKey(hash)) {
+            // Duplicate found
+            duplicateFiles.add(filePath);
+            duplicateCount++;
+            return hash;
+        } else {
+            // New file
+            registerHash(hash, filePath);
+            storeData(hash, data);
+            return hash;
+        }
+    }
+    
+    /**
+     * Content of the files passed to {@link #checkFile} and
+     * {@link #registerFile}, by the number the caller gave each file; read
+     * only when a hash is actually needed
+     */
+    public interface ContentSource {
+        byte[] read(int file) throws Exception;
+        
+        /**
+         * {@link HashUtil#computeSampleHash(byte[])} of a file's content;
+         * override to compute it without reading the whole content
+         */
+        default long sampleHash(int file) throws Exception {
+            return HashUtil.computeSampleHash(read(file));
+        }
+        
+        /**
+         * {@link HashUtil#computeContentHash(byte[])} of a file's content;
+         * override to compute it without reading the whole content
+         */
+        default String contentHash(int file) throws Exception {
+            return HashUtil.computeContentHash(read(file));
+        }
+    }
+    
+    /**
+     * Set where file content is read from, until {@link #clear()}
+     */
+    public void setContentSource(ContentSource source) {
+        this.source = source;
+    }
+    
+    /**
+     * Outcome of a tiered duplicate check
+     */
+    public static class FileCheck {
+        private final String hash;
+        private final long sampleHash;
+        private final int original;
+        
+        FileCheck(String hash, long sampleHash, Candidate original) {
+            this.hash = hash;
+            this.sampleHash = sampleHash;
+            this.original = original == null ? -1 : original.file;
+        }
+        
+        /** SHA-256 of the file, or null if it was never needed */
+        public String getHash() { return hash; }
+        
+        /** Sampled pre-hash, or 0 if it was never needed */
+        public long getSampleHash() { return sampleHash; }
+        
+        /** Number of the file this one duplicates, or -1 if it is unique */
+        public int getOriginal() { return original; }
+        
+        public boolean isDuplicate() { return original >= 0; }
+    }
+    
+    /**
+     * A file seen so far: its number and its hashes, computed on first use
+     */
+    private static class Candidate {
+        final int file;
+        long sampleHash;
+        String hash;
+        
+        Candidate(int file, long sampleHash, String hash) {
+            this.file = file;
+            this.sampleHash = sampleHash;
+            this.hash = hash;
+        }
+    }
+    
+    private long sampleHash(Candidate candidate) throws Exception {
+        if (candidate.sampleHash == 0) {
+            candidate.sampleHash = source.sampleHash(candidate.file);
+            sampleHashes++;
+        }
+        return candidate.sampleHash;
+    }
+    
+    private String hash(Candidate candidate) throws Exception {
+        if (candidate.hash == null) {
+            candidate.hash = source.contentHash(candidate.file);
+            fullHashes++;
+        }
+        return candidate.hash;
+    }
+    
+    /**
+     * Tiered duplicate check. Files are grouped by size first; only when a
+     * size matches is a sampled head/middle/tail pre-hash computed, and only
+     * when that matches too is the full SHA-256 computed. A file of unique
+     * size is therefore never hashed at all.
+     * @param file Caller's number for the file, passed to the content source
+     *             and handed back through {@link FileCheck#getOriginal()} when
+     *             a later file duplicates this one; it may be read again later
+     *             if another file of the same size turns up
+     * @param size File size
+     * @param computeHash Always compute the full hash (e.g. for index lookups)
+     * @return Hashes that were computed and the original file if this is a duplicate
+     */
+    public FileCheck checkFile(int file, long size, boolean computeHash) throws Exception {
+        Candidate candidate = new Candidate(file, 0, null);
+        if (computeHash) {
+            int index = hashToFile.get(hash(candidate));
+            if (index >= 0) {
+                duplicateCount++;
+                return new FileCheck(candidate.hash, candidate.sampleHash, owners.get(index));
+            }
+        }
+        
+        List<Candidate> bucket = sizeBuckets.get(size);
+        if (bucket != null) {
+            for (Candidate member : bucket) {
+                if (sampleHash(member) != sampleHash(candidate)) {
+                    continue;
+                }
+                register(member, hash(member), null);
+                if (member.hash.equals(hash(candidate))) {
+                    duplicateCount++;
+                    return new FileCheck(candidate.hash, candidate.sampleHash, member);
+                }
+            }
+        } else {
+            bucket = new ArrayList<>(1);
+            sizeBuckets.put(size, bucket);
+        }
+        
+        bucket.add(candidate);
+        if (candidate.hash != null) {
+            register(candidate, candidate.hash, null);
+        }
+        return new FileCheck(candidate.hash, candidate.sampleHash, null);
+    }
+    
+    /**
+     * Register a file that is already stored, for tiered duplicate checks
+     * @param file Caller's number for the file, as for {@link #checkFile}
+     * @param sampleHash Sampled pre-hash if known, otherwise 0
+     * @param hash SHA-256 if known, otherwise null
+     */
+    public void registerFile(int file, long size, long sampleHash, String hash) {
+        Candidate candidate = new Candidate(file, sampleHash, hash);
+        sizeBuckets.computeIfAbsent(size, k -> new ArrayList<>(1)).add(candidate);
+        if (hash != null) {
+            register(candidate, hash, null);
+        }
+    }
+    
+    /**
+     * Attach a persistent index so payloads stored by earlier runs are found
+     */
+    public void setPersistentIndex(PersistentHashIndex persistentIndex) {
+        this.persistentIndex = persistentIndex;
+    }
+    
+    public PersistentHashIndex getPersistentIndex() {
+        return persistentIndex;
+    }
+    
+    /**
+     * Look a payload up in the persistent index
+     * @param kind PersistentHashIndex.KIND_FILE or KIND_CHUNK
+     * @return Location of the payload, or null if not indexed
+     */
+    public PersistentHashIndex.Location lookupPersistent(String hash, byte kind) {
+        if (persistentIndex == null) {
+            return null;
+        }
+        return persistentIndex.lookup(hash, kind);
+    }
+    
+    /**
+     * Count a payload reused from another archive
+     */
+    public void recordPersistentHit() {
+        persistentHits++;
+    }
+    
+    /**
+     * Register a hash that is already stored (e.g. in an existing archive)
+     */
+    public void registerHash(String hash, String filePath) {
+        register(new Candidate(-1, 0, hash), hash, filePath);
+    }
+    
+    private void register(Candidate candidate, String hash, String filePath) {
+        if (!hashToFile.containsKey(hash)) {
+            hashToFile.put(hash, owners.size());
+            owners.add(candidate);
+            ownerPaths.add(filePath);
+        }
+    }
+    
+    /**
+     * Check if file is a duplicate
+     */
+    public boolean isDuplicate(String hash) {
+        return hashToFile.containsKey(hash);
+    }
+    
+    /**
+     * Get original file path for a duplicate
+     * @return The path, or null if the hash is unknown or was not registered by path
+     */
+    public String getOriginalFile(String hash) {
+        int index = hashToFile.get(hash);
+        return index < 0 ? null : ownerPaths.get(index);
+    }
+    
+    /**
+     * Get file data by hash
+     * @return Cached data, or null if the data cache is disabled or evicted it
+     */
+    public byte[] getDataByHash(String hash) {
+        return dataCache == null ? null : dataCache.get(hash);
+    }
+    
+    /**
+     * Get number of duplicate files found
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+    
+    /**
+     * Get the paths of the duplicate files processed by path
+     */
+    public Set<String> getDuplicateFiles() {
+        return new HashSet<>(duplicateFiles);
+    }
+    
+    /**
+     * Get all unique hashes
+     */
+    public Set<String> getAllHashes() {
+        Set<String> hashes = new HashSet<>();
+        for (int slot = 0; slot < hashToFile.slotCount(); slot++) {
+            String hash = hashToFile.keyAt(slot);
+            if (hash != null) {
+                hashes.add(hash);
+            }
+        }
+        return hashes;
+    }
+    
+    /**
+     * Check if hash exists
+     */
+    public boolean hasHash(String hash) {
+        return hashToFile.containsKey(hash);
+    }
+    
+    /**
+     * Store data with hash (for decompression); a no-op unless the data cache is enabled
+     */
+    public void storeData(String hash, byte[] data) {
+        if (dataCache == null || data.length > dataCacheLimit) {
+            return;
+        }
+        byte[] previous = dataCache.put(hash, data);
+        if (previous != null) {
+            dataCacheBytes -= previous.length;
+        }
+        dataCacheBytes += data.length;
+        
+        // Evict least recently used entries
+        Iterator<byte[]> it = dataCache.values().iterator();
+        while (dataCacheBytes > dataCacheLimit && it.hasNext()) {
+            dataCacheBytes -= it.next().length;
+            it.remove();
+        }
+    }
+    
+    /**
+     * Clear all data
+     */
+    public void clear() {
+        hashToFile.clear();
+        owners.clear();
+        ownerPaths.clear();
+        if (dataCache != null) {
+            dataCache.clear();
+            dataCacheBytes = 0;
+        }
+        duplicateFiles.clear();
+        duplicateCount = 0;
+        sizeBuckets.clear();
+        source = null;
+        sampleHashes = 0;
+        fullHashes = 0;
+        chunkIndex.clear();
+        chunkStore.clear();
+        chunkHits = 0;
+        dedupedChunkBytes = 0;
+        persistentHits = 0;
+    }
+    
+    /**
+     * Get statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalHashes", hashToFile.size());
+        stats.put("duplicateCount", duplicateCount);
+        int uniqueFiles = 0;
+        for (List<Candidate> bucket : sizeBuckets.values()) {
+            uniqueFiles += bucket.size();
+        }
+        stats.put("uniqueFiles", Math.max(uniqueFiles, hashToFile.size()));
+        stats.put("uniqueChunks", chunkStore.size());
+        stats.put("chunkHits", chunkHits);
+        stats.put("dedupedChunkBytes", dedupedChunkBytes);
+        stats.put("persistentHits", persistentHits);
+        stats.put("cachedDataBytes", dataCacheBytes);
+        stats.put("sampleHashes", sampleHashes);
+        stats.put("fullHashes", fullHashes);
+        return stats;
+    }
+}
@@ -0,0 +1,151 @@
+package com.myzip.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * DictionaryTrainer builds a preset dictionary for
+ * {@link ArchiveManager#setDictionary(byte[])} from samples of the files to
+ * be archived, such as a few hundred documents sharing one JSON or XML
+ * structure. It keeps the content that recurs across the most samples, in a
+ * simplified form of the cover algorithm used by zstd:
+ *
+ * Every sample is cut into overlapping segments of 64 bytes. A segment
+ * scores the number of samples containing each of its 8-byte substrings,
+ * counting only substrings found in at least two samples and not already
+ * covered by a chosen segment. Segments are chosen greedily by score until
+ * the dictionary is full, and the best go last, nearest the data, where the
+ * LZ77 window keeps them longest.
+ *
+ * Training holds every sample and an index of its substrings in memory, so
+ * a few megabytes of samples is the intended scale.
+ */
+public class DictionaryTrainer {
+
+    /** The LZ77 window, which is as much history as the codecs can use */
+    public static final int DEFAULT_DICTIONARY_SIZE = 4096;
+
+    private static final int GRAM_SIZE = 8;
+    private static final int SEGMENT_SIZE = 64;
+
+    private final List<byte[]> samples = new ArrayList<>();
+
+    public void addSample(byte[] sample) {
+        samples.add(sample);
+    }
+
+    public int getSampleCount() {
+        return samples.size();
+    }
+
+    public byte[] train() {
+        return train(DEFAULT_DICTIONARY_SIZE);
+    }
+
+    /**
+     * Build a dictionary from the samples added so far
+     * @param dictionarySize Largest dictionary size in bytes
+     * @return The dictionary, shorter than dictionarySize (even empty) if
+     *         the samples have too little in common to fill it
+     */
+    public byte[] train(int dictionarySize) {
+        if (dictionarySize <= 0) {
+            throw new IllegalArgumentException("Dictionary size must be positive: " + dictionarySize);
+        }
+
+        // Number of samples each substring occurs in
+        Map<Long, Integer> frequencies = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<Long> grams = new HashSet<>();
+            for (int i = 0; i + GRAM_SIZE <= sample.length; i++) {
+                grams.add(gram(sample, i));
+            }
+            for (Long gram : grams) {
+                frequencies.merge(gram, 1, Integer::sum);
+            }
+        }
+
+        PriorityQueue<Segment> candidates = new PriorityQueue<>((a, b) -> Long.compare(b.score, a.score));
+        for (byte[] sample : samples) {
+            for (int start = 0; start + GRAM_SIZE <= sample.length; start += SEGMENT_SIZE / 2) {
+                Segment segment = new Segment(sample, start, Math.min(SEGMENT_SIZE, sample.length - start));
+                segment.score = score(segment, frequencies);
+                if (segment.score > 0) {
+                    candidates.add(segment);
+                }
+            }
+        }
+
+        // Scores only fall as substrings get covered, so a segment whose
+        // fresh score still beats every stale one is the best left
+        List<Segment> chosen = new ArrayList<>();
+        int size = 0;
+        while (size < dictionarySize && !candidates.isEmpty()) {
+            Segment segment = candidates.poll();
+            long score = score(segment, frequencies);
+            if (score <= 0) {
+                continue;
+            }
+            if (!candidates.isEmpty() && score < candidates.peek().score) {
+                segment.score = score;
+                candidates.add(segment);
+                continue;
+            }
+            for (int i = segment.start; i + GRAM_SIZE <= segment.start + segment.length; i++) {
+                frequencies.put(gram(segment.sample, i), 0);
+            }
+            chosen.add(segment);
+            size += segment.length;
+        }
+
+        // Best last; whatever does not fit is cut from the front
+        byte[] dictionary = new byte[Math.min(size, dictionarySize)];
+        int position = dictionary.length;
+        for (Segment segment : chosen) {
+            int length = Math.min(segment.length, position);
+            position -= length;
+            System.arraycopy(segment.sample, segment.start + segment.length - length, dictionary, position, length);
+            if (position == 0) {
+                break;
+            }
+        }
+        return dictionary;
+    }
+
+    private static long score(Segment segment, Map<Long, Integer> frequencies) {
+        long score = 0;
+        for (int i = segment.start; i + GRAM_SIZE <= segment.start + segment.length; i++) {
+            int frequency = frequencies.getOrDefault(gram(segment.sample, i), 0);
+            if (frequency >= 2) {
+                score += frequency;
+            }
+        }
+        return score;
+    }
+
+    private static long gram(byte[] data, int position) {
+        long gram = 0;
+        for (int i = 0; i < GRAM_SIZE; i++) {
+            gram = gram << 8 | (data[position + i] & 0xFF);
+        }
+        return gram;
+    }
+
+    private static class Segment {
+        private final byte[] sample;
+        private final int start;
+        private final int length;
+        private long score;
+
+        Segment(byte[] sample, int start, int length) {
+            this.sample = sample;
+            this.start = start;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.myzip.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DirectoryScanner finds the files under a set of roots and hands them out
+ * as lazy {@link ArchiveManager.FileEntry} handles (path, size and
+ * modification time; data is read only when the entry is compressed).
+ *
+ * Directories are listed in parallel on a fork-join pool, one task per
+ * directory, and files are handed out through the iterator as soon as they
+ * are found. Passing the scanner straight to
+ * {@link ArchiveManager#createArchive(Iterable, File)} therefore starts
+ * compression while the rest of the tree is still being listed. Files come
+ * out in discovery order, which varies between runs; {@link #scanAll()}
+ * returns them sorted by path.
+ *
+ * Entry paths are relative to each root's parent, so a root directory's name
+ * is kept ("docs/a.txt"), and always use '/' separators. A scanner can be
+ * iterated once.
+ */
+public class DirectoryScanner implements Iterable<ArchiveManager.FileEntry> {
+
+    /**
+     * What to do with symbolic links met during the scan (roots are always followed)
+     */
+    public enum SymlinkPolicy {
+        /** Leave links out */
+        SKIP,
+        /** Archive the files links point to and descend into linked directories, once each */
+        FOLLOW
+    }
+
+    /**
+     * ScanListener is told about the scan on the pool threads doing it
+     */
+    public interface ScanListener {
+        default void fileFound(ArchiveManager.FileEntry entry) {
+        }
+
+        default void scanFailed(Path path, IOException e) {
+        }
+
+        default void scanCompleted(long fileCount, long totalBytes) {
+        }
+    }
+
+    // Marks the end of the scan in the queue
+    private static final ArchiveManager.FileEntry END = new ArchiveManager.FileEntry("", "", new byte[0]);
+
+    private final List<Path> roots = new ArrayList<>();
+    private EntryFilter includes;
+    private EntryFilter excludes;
+    private SymlinkPolicy symlinkPolicy = SymlinkPolicy.SKIP;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private ScanListener listener = new ScanListener() {
+    };
+
+    private final BlockingQueue<ArchiveManager.FileEntry> queue = new LinkedBlockingQueue<>();
+    private final Set<Object> visitedDirectories = ConcurrentHashMap.newKeySet();
+    private final List<IOException> errors = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong fileCount = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private volatile boolean started;
+    private volatile boolean cancelled;
+    private volatile boolean completed;
+
+    public DirectoryScanner(File... roots) {
+        this(Arrays.asList(roots));
+    }
+
+    public DirectoryScanner(List<File> roots) {
+        for (File root : roots) {
+            this.roots.add(root.toPath().toAbsolutePath().normalize());
+        }
+    }
+
+    // ==================== Configuration ====================
+
+    /**
+     * Archive only files matching these rules. A rule matches a file if it
+     * matches its path or just its name, so "*.txt" selects text files at any depth.
+     */
+    public void setIncludes(EntryFilter includes) {
+        this.includes = includes;
+    }
+
+    /**
+     * Leave out files and directories matching these rules, matched like
+     * includes; an excluded directory is not descended into
+     */
+    public void setExcludes(EntryFilter excludes) {
+        this.excludes = excludes;
+    }
+
+    public void setSymlinkPolicy(SymlinkPolicy symlinkPolicy) {
+        this.symlinkPolicy = symlinkPolicy;
+    }
+
+    /**
+     * Number of directories listed at once (default: available processors)
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public void setListener(ScanListener listener) {
+        this.listener = listener;
+    }
+
+    // ==================== Results ====================
+
+    public long getFileCount() {
+        return fileCount.get();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Files and directories that could not be read; the scan goes on without them
+     */
+    public List<IOException> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    /**
+     * Stop listing directories; the iterator ends once work in progress finishes
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Run the whole scan and return the files sorted by path
+     */
+    public List<ArchiveManager.FileEntry> scanAll() {
+        List<ArchiveManager.FileEntry> entries = new ArrayList<>();
+        for (ArchiveManager.FileEntry entry : this) {
+            entries.add(entry);
+        }
+        entries.sort(Comparator.comparing(ArchiveManager.FileEntry::getRelativePath));
+        return entries;
+    }
+
+    /**
+     * Start the scan and iterate over files as they are found; hasNext()
+     * blocks until the next file is found or the scan ends
+     */
+    @Override
+    public Iterator<ArchiveManager.FileEntry> iterator() {
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("A DirectoryScanner can be iterated only once");
+            }
+            started = true;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pool.execute(new RootsTask(pool));
+
+        return new Iterator<ArchiveManager.FileEntry>() {
+            private ArchiveManager.FileEntry next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for the directory scan", e);
+                    }
+                    if (next == END) {
+                        next = null;
+                        done = true;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public ArchiveManager.FileEntry next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ArchiveManager.FileEntry entry = next;
+                next = null;
+                return entry;
+            }
+        };
+    }
+
+    // ==================== Walking ====================
+
+    /**
+     * Scans every root, then ends the queue whatever happened
+     */
+    private class RootsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ForkJoinPool pool;
+
+        RootsTask(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                List<DirectoryTask> tasks = new ArrayList<>();
+                for (Path root : roots) {
+                    Path base = root.getParent() != null ? root.getParent() : root;
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(root, BasicFileAttributes.class);
+                        if (attributes.isDirectory()) {
+                            visitedDirectories.add(directoryKey(root, attributes));
+                            tasks.add(new DirectoryTask(base, root));
+                        } else if (attributes.isRegularFile()) {
+                            emit(base, root, attributes);
+                        }
+                    } catch (IOException e) {
+                        fail(root, e);
+                    }
+                }
+                invokeAll(tasks);
+            } finally {
+                completed = true;
+                listener.scanCompleted(fileCount.get(), totalBytes.get());
+                queue.add(END);
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Lists one directory, emitting its files and forking a task per subdirectory
+     */
+    private class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path base;
+        private final Path directory;
+
+        DirectoryTask(Path base, Path directory) {
+            this.base = base;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled) {
+                return;
+            }
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path child : stream) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isSymbolicLink()) {
+                            if (symlinkPolicy == SymlinkPolicy.SKIP) {
+                                continue;
+                            }
+                            attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                        }
+                    } catch (IOException e) {
+                        fail(child, e);
+                        continue;
+                    }
+
+                    if (attributes.isDirectory()) {
+                        if (matches(excludes, base, child)) {
+                            continue;
+                        }
+                        // Following links can lead back to a directory already scanned
+                        if (visitedDirectories.add(directoryKey(child, attributes))) {
+                            subdirectories.add(new DirectoryTask(base, child));
+                        }
+                    } else if (attributes.isRegularFile()) {
+                        if ((includes == null || matches(includes, base, child)) && !matches(excludes, base, child)) {
+                            emit(base, child, attributes);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                fail(directory, e);
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    private void emit(Path base, Path file, BasicFileAttributes attributes) {
+        ArchiveManager.FileEntry entry = new ArchiveManager.FileEntry(relativePath(base, file), file,
+            attributes.size(), attributes.lastModifiedTime().toMillis());
+        fileCount.incrementAndGet();
+        totalBytes.addAndGet(attributes.size());
+        listener.fileFound(entry);
+        queue.add(entry);
+    }
+
+    private void fail(Path path, IOException e) {
+        errors.add(e);
+        listener.scanFailed(path, e);
+    }
+
+    private static boolean matches(EntryFilter rules, Path base, Path path) {
+        return rules != null && (rules.matches(relativePath(base, path))
+            || rules.matches(path.getFileName().toString()));
+    }
+
+    private static String relativePath(Path base, Path path) {
+        return base.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Identity of a directory, the same through every link that reaches it
+     */
+    private static Object directoryKey(Path directory, BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        if (key != null) {
+            return key;
+        }
+        try {
+            return directory.toRealPath().toString();
+        } catch (IOException e) {
+            return directory.toString();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.myzip.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * EntryFilter selects archive entries by path, for extracting part of an
+ * archive. An entry is selected if it matches any rule:
+ * <ul>
+ *   <li>an exact path, which also selects everything under it when it names a directory</li>
+ *   <li>a directory prefix such as {@code docs/}</li>
+ *   <li>a glob: {@code *} and {@code ?} match within one path segment,
+ *       {@code **} matches across segments, plus {@code [abc]} classes and
+ *       {@code {a,b}} alternatives</li>
+ * </ul>
+ * Paths are compared with '/' separators, whatever separator the entry was stored with.
+ */
+public class EntryFilter {
+
+    private final Set<String> paths = new HashSet<>();
+    private final List<String> prefixes = new ArrayList<>();
+    private final List<Pattern> globs = new ArrayList<>();
+
+    /**
+     * Build a filter from command-line style patterns: patterns with glob
+     * characters are globs, patterns ending in '/' are prefixes, and anything
+     * else is an exact path
+     */
+    public static EntryFilter of(String... patterns) {
+        EntryFilter filter = new EntryFilter();
+        for (String pattern : patterns) {
+            filter.add(pattern);
+        }
+        return filter;
+    }
+
+    /**
+     * Add a pattern, classified as in {@link #of(String...)}
+     */
+    public EntryFilter add(String pattern) {
+        String normalized = normalize(pattern);
+        if (normalized.matches(".*[*?\\[{].*")) {
+            return addGlob(normalized);
+        }
+        if (normalized.endsWith("/")) {
+            return addPrefix(normalized);
+        }
+        return addPath(normalized);
+    }
+
+    public EntryFilter addPath(String path) {
+        paths.add(normalize(path));
+        return this;
+    }
+
+    public EntryFilter addPrefix(String prefix) {
+        String normalized = normalize(prefix);
+        prefixes.add(normalized.endsWith("/") ? normalized : normalized + "/");
+        return this;
+    }
+
+    public EntryFilter addGlob(String glob) {
+        globs.add(Pattern.compile(globToRegex(normalize(glob))));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return paths.isEmpty() && prefixes.isEmpty() && globs.isEmpty();
+    }
+
+    /**
+     * Is an entry selected by any rule?
+     */
+    public boolean matches(String relativePath) {
+        String path = normalize(relativePath);
+        if (paths.contains(path)) {
+            return true;
+        }
+        // An exact path naming a directory selects the entries under it
+        for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+            if (paths.contains(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        for (String prefix : prefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        for (Pattern glob : globs) {
+            if (glob.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String path) {
+        String normalized = path.replace('\\', '/');
+        while (normalized.startsWith("./")) {
+            normalized = normalized.substring(2);
+        }
+        return normalized;
+    }
+
+    /**
+     * Translate a glob into an equivalent regular expression
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inClass = false;
+        int alternatives = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                    regex.append(']');
+                } else if (c == '\\' || c == '[' || c == '&' || c == '^' && glob.charAt(i - 1) != '[') {
+                    regex.append('\\').append(c);
+                } else if (c == '!' && glob.charAt(i - 1) == '[') {
+                    regex.append('^');
+                } else {
+                    regex.append(c);
+                }
+                continue;
+            }
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        // "**/" also matches no directory at all
+                        if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(?:.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    inClass = true;
+                    regex.append("[");
+                    break;
+                case '{':
+                    alternatives++;
+                    regex.append("(?:");
+                    break;
+                case '}':
+                    if (alternatives > 0) {
+                        alternatives--;
+                        regex.append(')');
+                    } else {
+                        regex.append("\\}");
+                    }
+                    break;
+                case ',':
+                    regex.append(alternatives > 0 ? "|" : ",");
+                    break;
+                default:
+                    if ("\\.^$+()|".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                    break;
+            }
+        }
+        if (inClass || alternatives > 0) {
+            throw new IllegalArgumentException("Unbalanced glob pattern: " + glob);
+        }
+        return regex.toString();
+    }
+}
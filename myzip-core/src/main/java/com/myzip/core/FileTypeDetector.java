@@ -0,0 +1,282 @@
+package com.myzip.core;
+
+import com.myzip.utils.FileUtils;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * FileTypeDetector detects file types based on magic numbers, sampled
+ * entropy and extension, and determines appropriate compression strategy
+ */
+public class FileTypeDetector {
+    
+    // File type categories
+    public enum FileType {
+        TEXT,           // .txt, .csv, .log, .md
+        RAW_IMAGE,      // .bmp, .ppm
+        COMPRESSED,     // .jpg, .jpeg, .png, .gif, .zip, .mp3, .mp4, .avi
+        BINARY,         // structured binary data that still compresses
+        UNKNOWN
+    }
+    
+    // Content sampling: up to SAMPLE_WINDOWS windows spread over the data
+    private static final int SAMPLE_WINDOW = 4096;
+    private static final int SAMPLE_WINDOWS = 4;
+    
+    // Bits per byte above which data is treated as already compressed or random
+    private static final double HIGH_ENTROPY = 7.5;
+    
+    // Share of printable bytes from which data is treated as text
+    private static final double TEXT_RATIO = 0.95;
+    
+    /**
+     * Signatures of formats whose content is already compressed
+     */
+    private static final byte[][] COMPRESSED_MAGIC = {
+        {0x1F, (byte) 0x8B},                                    // gzip
+        {'P', 'K', 0x03, 0x04},                                 // zip, jar, docx, apk
+        {(byte) 0x89, 'P', 'N', 'G'},                           // png
+        {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},                // jpeg
+        {'G', 'I', 'F', '8'},                                   // gif
+        {'B', 'Z', 'h'},                                        // bzip2
+        {(byte) 0xFD, '7', 'z', 'X', 'Z', 0x00},                // xz
+        {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C},       // 7z
+        {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD},                 // zstd
+        {'R', 'a', 'r', '!'},                                   // rar
+        {'I', 'D', '3'},                                        // mp3
+        {'O', 'g', 'g', 'S'},                                   // ogg
+        {'f', 'L', 'a', 'C'},                                   // flac
+        {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3},                 // mkv, webm
+    };
+    
+    private static final Set<String> TEXT_EXTENSIONS = new HashSet<>(Arrays.asList(
+        "txt", "csv", "log", "md", "markdown", "json", "xml", "html", "css", "js", 
+        "java", "py", "c", "cpp", "h", "hpp", "go", "rs", "rb", "php", "sh", "bash"
+    ));
+    
+    private static final Set<String> RAW_IMAGE_EXTENSIONS = new HashSet<>(Arrays.asList(
+        "bmp", "ppm", "pgm", "pbm"
+    ));
+    
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+        // Images
+        "jpg", "jpeg", "png", "gif", "webp", "svg", "ico", "tiff", "tif", "heic", "heif",
+        // Archives
+        "zip", "rar", "7z", "gz", "tar", "bz2", "xz", "tgz", "tbz", "jar", "war", "ear",
+        // Audio
+        "mp3", "aac", "ogg", "flac", "wav", "m4a", "wma", "opus", "alac",
+        // Video
+        "mp4", "avi", "mkv", "mov", "wmv", "flv", "webm", "m4v", "mpg", "mpeg", "3gp", "ts",
+        // Documents
+        "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "odt", "ods", "odp",
+        // Executables & Compiled
+        "exe", "dll", "so", "dylib", "app", "dmg", "pkg", "deb", "rpm", "apk", "class",
+        // Databases
+        "db", "sqlite", "sqlite3", "mdb"
+    ));
+    
+    /**
+     * Detect file type based on extension
+     */
+    public static FileType detectFileType(File file) {
+        String extension = FileUtils.getExtension(file.getName());
+        return detectFileType(extension);
+    }
+    
+    /**
+     * Detect file type based on filename
+     */
+    public static FileType detectFileType(String filename) {
+        String extension = FileUtils.getExtension(filename).toLowerCase();
+        
+        if (TEXT_EXTENSIONS.contains(extension)) {
+            return FileType.TEXT;
+        } else if (RAW_IMAGE_EXTENSIONS.contains(extension)) {
+            return FileType.RAW_IMAGE;
+        } else if (COMPRESSED_EXTENSIONS.contains(extension)) {
+            return FileType.COMPRESSED;
+        } else {
+            // Treat unknown files as text for better compression
+            return FileType.TEXT;
+        }
+    }
+    
+    /**
+     * Detect file type from content, falling back to the extension.
+     * Known signatures decide first. Otherwise a few 4 KB windows are sampled:
+     * high-entropy data is stored as is whatever its name, and data with an
+     * unknown or misleading extension is classed as text or binary by how
+     * many of its bytes are printable.
+     * @param filename File name, for the extension
+     * @param data File content
+     */
+    public static FileType detectFileType(String filename, byte[] data) {
+        FileType byMagic = detectByMagic(data);
+        if (byMagic != null) {
+            return byMagic;
+        }
+        if (data.length == 0) {
+            return detectFileType(filename);
+        }
+        
+        int[] histogram = sampleHistogram(data);
+        if (entropy(histogram) >= HIGH_ENTROPY) {
+            return FileType.COMPRESSED;
+        }
+        
+        String extension = FileUtils.getExtension(filename).toLowerCase();
+        if (TEXT_EXTENSIONS.contains(extension)) {
+            return FileType.TEXT;
+        } else if (RAW_IMAGE_EXTENSIONS.contains(extension)) {
+            return FileType.RAW_IMAGE;
+        }
+        // Unknown extension, or a "compressed" one whose content is not
+        return isText(histogram) ? FileType.TEXT : FileType.BINARY;
+    }
+    
+    /**
+     * Match the leading bytes against known signatures
+     * @return Detected type, or null if no signature matched
+     */
+    private static FileType detectByMagic(byte[] data) {
+        for (byte[] magic : COMPRESSED_MAGIC) {
+            if (startsWith(data, 0, magic)) {
+                return FileType.COMPRESSED;
+            }
+        }
+        // ISO base media (mp4, mov, heic): size, then "ftyp"
+        if (startsWith(data, 4, new byte[] {'f', 't', 'y', 'p'})) {
+            return FileType.COMPRESSED;
+        }
+        // RIFF container: WEBP and AVI payloads are compressed, WAVE is raw PCM
+        if (startsWith(data, 0, new byte[] {'R', 'I', 'F', 'F'})) {
+            return startsWith(data, 8, new byte[] {'W', 'A', 'V', 'E'}) ? FileType.BINARY : FileType.COMPRESSED;
+        }
+        // BMP: "BM", file size, then four reserved zero bytes
+        if (startsWith(data, 0, new byte[] {'B', 'M'}) && startsWith(data, 6, new byte[4])) {
+            return FileType.RAW_IMAGE;
+        }
+        // Binary netpbm: P4-P6 followed by whitespace
+        if (data.length >= 3 && data[0] == 'P' && data[1] >= '4' && data[1] <= '6'
+                && Character.isWhitespace(data[2])) {
+            return FileType.RAW_IMAGE;
+        }
+        return null;
+    }
+    
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        if (data.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Byte histogram over evenly spaced windows (the whole data if it is small)
+     */
+    private static int[] sampleHistogram(byte[] data) {
+        int[] histogram = new int[256];
+        if (data.length <= SAMPLE_WINDOW * SAMPLE_WINDOWS) {
+            for (byte b : data) {
+                histogram[b & 0xFF]++;
+            }
+            return histogram;
+        }
+        long stride = (data.length - SAMPLE_WINDOW) / (SAMPLE_WINDOWS - 1);
+        for (int w = 0; w < SAMPLE_WINDOWS; w++) {
+            int start = (int) (w * stride);
+            for (int i = start; i < start + SAMPLE_WINDOW; i++) {
+                histogram[data[i] & 0xFF]++;
+            }
+        }
+        return histogram;
+    }
+    
+    /**
+     * Shannon entropy of a histogram in bits per byte (0 to 8)
+     */
+    static double entropy(int[] histogram) {
+        long total = 0;
+        for (int count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double entropy = 0;
+        for (int count : histogram) {
+            if (count > 0) {
+                double p = (double) count / total;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+    
+    /**
+     * Are nearly all sampled bytes printable ASCII, whitespace or UTF-8?
+     */
+    private static boolean isText(int[] histogram) {
+        long total = 0;
+        long printable = 0;
+        for (int b = 0; b < 256; b++) {
+            total += histogram[b];
+            if (b == '\t' || b == '\n' || b == '\r' || (b >= 0x20 && b < 0x7F) || b >= 0x80) {
+                printable += histogram[b];
+            }
+        }
+        return printable >= total * TEXT_RATIO;
+    }
+    
+    /**
+     * Get recommended compression algorithm for file type
+     */
+    public static String getCompressionAlgorithm(FileType fileType) {
+        switch (fileType) {
+            case TEXT:
+                return "LZW";
+            case RAW_IMAGE:
+                return "RLE";
+            case BINARY:
+                return "LZW";
+            case COMPRESSED:
+            case UNKNOWN:
+                return "STORE";
+            default:
+                return "STORE";
+        }
+    }
+    
+    /**
+     * Should this file be compressed?
+     */
+    public static boolean shouldCompress(FileType fileType) {
+        return fileType == FileType.TEXT || fileType == FileType.RAW_IMAGE || fileType == FileType.BINARY;
+    }
+    
+    /**
+     * Get file type as string
+     */
+    public static String getFileTypeString(FileType fileType) {
+        switch (fileType) {
+            case TEXT:
+                return "Text";
+            case RAW_IMAGE:
+                return "Raw Image";
+            case COMPRESSED:
+                return "Pre-compressed";
+            case BINARY:
+                return "Binary";
+            case UNKNOWN:
+                return "Unknown";
+            default:
+                return "Unknown";
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.myzip.core;
+
+/**
+ * HashKeyTable maps 256-bit hashes to int values without boxing.
+ * Keys are held as four longs in one flat array and probed linearly
+ * (open addressing), so each entry costs about 40 bytes of heap
+ * instead of a hex String key plus a HashMap node.
+ */
+public class HashKeyTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final double MAX_LOAD = 0.6;
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int capacity;
+    private int size;
+
+    public HashKeyTable() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Look up a hash given as 64 hex characters
+     * @return The stored value, or -1 if absent
+     */
+    public int get(String hexHash) {
+        long[] key = parse(hexHash);
+        int slot = findSlot(keys, values, capacity, key);
+        return values[slot];
+    }
+
+    public boolean containsKey(String hexHash) {
+        return get(hexHash) != EMPTY;
+    }
+
+    /**
+     * Store a value (must be non-negative) for a hash, replacing any previous value
+     */
+    public void put(String hexHash, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative");
+        }
+        if (size + 1 > capacity * MAX_LOAD) {
+            resize(capacity * 2);
+        }
+        long[] key = parse(hexHash);
+        int slot = findSlot(keys, values, capacity, key);
+        if (values[slot] == EMPTY) {
+            size++;
+            System.arraycopy(key, 0, keys, slot * 4, 4);
+        }
+        values[slot] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Hex form of the key in a slot, or null for an empty slot.
+     * Slots range from 0 to {@link #slotCount()} - 1.
+     */
+    public String keyAt(int slot) {
+        if (values[slot] == EMPTY) {
+            return null;
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (int i = 0; i < 4; i++) {
+            String part = Long.toHexString(keys[slot * 4 + i]);
+            for (int pad = part.length(); pad < 16; pad++) {
+                hex.append('0');
+            }
+            hex.append(part);
+        }
+        return hex.toString();
+    }
+
+    public int slotCount() {
+        return capacity;
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        keys = new long[newCapacity * 4];
+        values = new int[newCapacity];
+        java.util.Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+
+        long[] key = new long[4];
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            if (oldValues[slot] != EMPTY) {
+                System.arraycopy(oldKeys, slot * 4, key, 0, 4);
+                int target = findSlot(keys, values, capacity, key);
+                System.arraycopy(key, 0, keys, target * 4, 4);
+                values[target] = oldValues[slot];
+                size++;
+            }
+        }
+    }
+
+    private static int findSlot(long[] keys, int[] values, int capacity, long[] key) {
+        int mask = capacity - 1;
+        // SHA-256 output is uniformly distributed, so its first word is a good hash
+        int slot = (int) (key[0] ^ (key[0] >>> 32)) & mask;
+        while (values[slot] != EMPTY) {
+            int base = slot * 4;
+            if (keys[base] == key[0] && keys[base + 1] == key[1]
+                    && keys[base + 2] == key[2] && keys[base + 3] == key[3]) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long[] parse(String hexHash) {
+        if (hexHash == null || hexHash.length() != 64) {
+            throw new IllegalArgumentException("Expected a 256-bit hex hash: " + hexHash);
+        }
+        long[] key = new long[4];
+        for (int i = 0; i < 4; i++) {
+            key[i] = Long.parseUnsignedLong(hexHash.substring(i * 16, i * 16 + 16), 16);
+        }
+        return key;
+    }
+}
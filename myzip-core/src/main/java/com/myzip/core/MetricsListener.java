@@ -0,0 +1,29 @@
+package com.myzip.core;
+
+/**
+ * MetricsListener receives measurements from ArchiveManager as they are
+ * taken, for forwarding to a monitoring system. Callbacks run on the thread
+ * doing the work, so they should be quick; all methods default to no-ops.
+ */
+public interface MetricsListener {
+
+    /**
+     * A pipeline stage finished for one entry, chunk or archive
+     * @param bytesIn Bytes the stage consumed
+     * @param bytesOut Bytes it produced (0 for stages that only inspect data)
+     */
+    default void stageCompleted(ArchiveMetrics.Stage stage, long nanos, long bytesIn, long bytesOut) {
+    }
+
+    /**
+     * A codec compressed or decompressed one payload, block run or chunk
+     */
+    default void codecCompleted(String algorithm, boolean compress, long nanos, long bytesIn, long bytesOut) {
+    }
+
+    /**
+     * A whole archive operation (create, update, delete, compact, extract) finished
+     */
+    default void operationCompleted(String operation, long nanos) {
+    }
+}
@@ -0,0 +1,412 @@
+package com.myzip.core;
+
+import com.myzip.utils.DirectBuffers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * PersistentHashIndex is an on-disk dedup index shared across archive runs.
+ * It maps content hashes to the archive that stores the payload, so a new
+ * archive can reference data stored by an earlier one instead of storing it
+ * again.
+ *
+ * The index is a memory-mapped open-addressing hash table with linear
+ * probing and fixed 64-byte slots; only the list of archive paths lives on
+ * the heap. Slot layout:
+ * <pre>
+ *   0  hash (32 bytes, SHA-256)
+ *  32  archive id (int, 0 = empty slot)
+ *  36  kind (byte: 0 = whole file, 1 = chunk)
+ *  37  block size (byte: log2, 0 = single codec stream), 2 bytes padding
+ *  40  original length (long)
+ *  48  compressed length (long)
+ *  56  compression algorithm (8 ASCII bytes, zero padded)
+ * </pre>
+ * Archive paths are kept in a sidecar file, one per line, id = line number.
+ *
+ * An open index holds an exclusive lock on a third file, the index path
+ * with ".lock" appended, so jobs sharing an index take turns: opening it
+ * waits until no other process has it open. The table grows by rehashing
+ * into a new file that then replaces the old one, so a crash while growing
+ * leaves the old table intact.
+ */
+public class PersistentHashIndex implements Closeable {
+
+    public static final byte KIND_FILE = 0;
+    public static final byte KIND_CHUNK = 1;
+
+    private static final int MAGIC = 0x4D5A4449; // "MZDI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 64;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int MAX_CAPACITY = 1 << 24; // 1 GB of slots, within the 2 GB mapping limit
+    private static final double MAX_LOAD = 0.7;
+
+    private final File indexFile;
+    private final File archivesFile;
+    private final File lockFile;
+    private final List<String> archives = new ArrayList<>();
+    private final Map<String, Integer> archiveIds = new HashMap<>();
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private FileChannel channel;
+    private MappedByteBuffer table;
+    private int capacity;
+    private int size;
+
+    /**
+     * Location of an indexed payload
+     */
+    public static class Location {
+        private final String archivePath;
+        private final byte kind;
+        private final long length;
+        private final long compressedLength;
+        private final String algorithm;
+        private final int blockSize;
+
+        Location(String archivePath, byte kind, long length, long compressedLength, String algorithm, int blockSize) {
+            this.archivePath = archivePath;
+            this.kind = kind;
+            this.length = length;
+            this.compressedLength = compressedLength;
+            this.algorithm = algorithm;
+            this.blockSize = blockSize;
+        }
+
+        public String getArchivePath() { return archivePath; }
+        public byte getKind() { return kind; }
+        public long getLength() { return length; }
+        public long getCompressedLength() { return compressedLength; }
+        public String getAlgorithm() { return algorithm; }
+        public int getBlockSize() { return blockSize; }
+
+        /**
+         * Name of the payload entry inside the archive
+         */
+        public String getEntryName(String hash) {
+            return (kind == KIND_CHUNK ? "chunks/" : "data/") + hash;
+        }
+    }
+
+    private PersistentHashIndex(File indexFile) {
+        this.indexFile = indexFile;
+        this.archivesFile = new File(indexFile.getPath() + ".archives");
+        this.lockFile = new File(indexFile.getPath() + ".lock");
+    }
+
+    /**
+     * Open an index, creating it if it does not exist, and waiting while
+     * another process has it open
+     */
+    public static PersistentHashIndex open(File indexFile) throws IOException {
+        PersistentHashIndex index = new PersistentHashIndex(indexFile);
+        index.lock();
+        try {
+            index.load();
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        return index;
+    }
+
+    private void lock() throws IOException {
+        lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.lock();
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        if (archivesFile.exists()) {
+            for (String line : Files.readAllLines(archivesFile.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    archiveIds.put(line, archives.size() + 1);
+                    archives.add(line);
+                }
+            }
+        }
+
+        boolean exists = indexFile.exists() && indexFile.length() >= HEADER_SIZE;
+        channel = FileChannel.open(indexFile.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (exists) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // keep filling
+            }
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a dedup index: " + indexFile);
+            }
+            capacity = header.getInt(8);
+            size = header.getInt(12);
+            map();
+        } else {
+            capacity = INITIAL_CAPACITY;
+            size = 0;
+            map();
+            writeHeader(table, capacity, size);
+        }
+    }
+
+    private void map() throws IOException {
+        table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        table.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeHeader(MappedByteBuffer table, int capacity, int size) {
+        table.putInt(0, MAGIC);
+        table.putInt(4, VERSION);
+        table.putInt(8, capacity);
+        table.putInt(12, size);
+    }
+
+    /**
+     * Find where a payload with this hash is stored
+     * @return Location, or null if the hash is not indexed
+     */
+    public synchronized Location lookup(String hash, byte kind) {
+        byte[] key = hexToBytes(hash);
+        int slot = findSlot(table, capacity, key, kind);
+        int offset = slotOffset(slot);
+        int archiveId = table.getInt(offset + 32);
+        if (archiveId == 0) {
+            return null;
+        }
+        byte[] algorithm = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            algorithm[i] = table.get(offset + 56 + i);
+        }
+        int end = 0;
+        while (end < 8 && algorithm[end] != 0) {
+            end++;
+        }
+        int blockBits = table.get(offset + 37);
+        return new Location(archives.get(archiveId - 1), kind,
+            table.getLong(offset + 40), table.getLong(offset + 48),
+            new String(algorithm, 0, end, StandardCharsets.US_ASCII),
+            blockBits == 0 ? 0 : 1 << blockBits);
+    }
+
+    /**
+     * Record where a payload is stored. An existing entry for the hash is replaced.
+     */
+    public synchronized void put(String hash, byte kind, File archive, long length,
+                                 long compressedLength, String algorithm) throws IOException {
+        put(hash, kind, archive, length, compressedLength, algorithm, 0);
+    }
+
+    /**
+     * Record where a block-framed payload is stored
+     * @param blockSize Block size (a power of two), or 0 for a single codec stream
+     */
+    public synchronized void put(String hash, byte kind, File archive, long length,
+                                 long compressedLength, String algorithm, int blockSize) throws IOException {
+        byte[] algorithmBytes = algorithm.getBytes(StandardCharsets.US_ASCII);
+        if (algorithmBytes.length > 8) {
+            throw new IllegalArgumentException("Algorithm name too long for index: " + algorithm);
+        }
+        if (blockSize < 0 || Integer.bitCount(blockSize) > 1) {
+            throw new IllegalArgumentException("Block size must be a power of two: " + blockSize);
+        }
+        if (size + 1 > capacity * MAX_LOAD) {
+            grow();
+        }
+
+        byte[] key = hexToBytes(hash);
+        int slot = findSlot(table, capacity, key, kind);
+        int offset = slotOffset(slot);
+        if (table.getInt(offset + 32) == 0) {
+            size++;
+            table.putInt(12, size);
+        }
+        writeSlot(table, offset, key, archiveId(archive), kind, length, compressedLength, algorithmBytes);
+        table.put(offset + 37, (byte) (blockSize == 0 ? 0 : Integer.numberOfTrailingZeros(blockSize)));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Flush the mapped table to disk
+     */
+    public synchronized void flush() {
+        table.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            unmap();
+        } finally {
+            // Closing the channel releases the lock
+            lockChannel.close();
+        }
+    }
+
+    private int archiveId(File archive) throws IOException {
+        String path = archive.getCanonicalPath();
+        Integer id = archiveIds.get(path);
+        if (id == null) {
+            archives.add(path);
+            id = archives.size();
+            archiveIds.put(path, id);
+            Files.write(archivesFile.toPath(), Collections.singletonList(path), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        return id;
+    }
+
+    /**
+     * Double the table, rehashing every occupied slot into a new file that
+     * then replaces the index file, so the index is never left half-built
+     */
+    private void grow() throws IOException {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IOException("Dedup index is full (" + size + " entries)");
+        }
+        int newCapacity = capacity * 2;
+        File growFile = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (FileChannel growChannel = FileChannel.open(growFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer grown = growChannel.map(FileChannel.MapMode.READ_WRITE,
+                    0, HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+                try {
+                    grown.order(ByteOrder.LITTLE_ENDIAN);
+
+                    byte[] slotBytes = new byte[SLOT_SIZE];
+                    byte[] key = new byte[32];
+                    for (int slot = 0; slot < capacity; slot++) {
+                        int offset = slotOffset(slot);
+                        if (table.getInt(offset + 32) == 0) {
+                            continue;
+                        }
+                        for (int i = 0; i < SLOT_SIZE; i++) {
+                            slotBytes[i] = table.get(offset + i);
+                        }
+                        System.arraycopy(slotBytes, 0, key, 0, 32);
+                        int target = slotOffset(findSlot(grown, newCapacity, key, slotBytes[36]));
+                        for (int i = 0; i < SLOT_SIZE; i++) {
+                            grown.put(target + i, slotBytes[i]);
+                        }
+                    }
+                    writeHeader(grown, newCapacity, size);
+                    grown.force();
+                } finally {
+                    DirectBuffers.free(grown);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            growFile.delete();
+            throw e;
+        }
+
+        // Windows does not replace a file that is mapped or open, so both
+        // tables are unmapped and closed first and the index reopened after
+        unmap();
+        try {
+            Files.move(growFile.toPath(), indexFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            capacity = newCapacity;
+        } catch (IOException | RuntimeException e) {
+            growFile.delete();
+            throw e;
+        } finally {
+            channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map();
+        }
+    }
+
+    /**
+     * Flush and unmap the table and close the index file
+     */
+    private void unmap() throws IOException {
+        if (table != null) {
+            table.force();
+            DirectBuffers.free(table);
+            table = null;
+        }
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Linear probe for the slot holding key, or the first empty slot
+     */
+    private static int findSlot(MappedByteBuffer table, int capacity, byte[] key, byte kind) {
+        int mask = capacity - 1;
+        long h = 0;
+        for (int i = 0; i < 8; i++) {
+            h = (h << 8) | (key[i] & 0xFF);
+        }
+        int slot = (int) ((h ^ kind) & mask);
+        while (true) {
+            int offset = slotOffset(slot);
+            if (table.getInt(offset + 32) == 0) {
+                return slot;
+            }
+            if (table.get(offset + 36) == kind && keyEquals(table, offset, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static boolean keyEquals(MappedByteBuffer table, int offset, byte[] key) {
+        for (int i = 0; i < 32; i++) {
+            if (table.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeSlot(MappedByteBuffer table, int offset, byte[] key, int archiveId, byte kind,
+                                  long length, long compressedLength, byte[] algorithm) {
+        for (int i = 0; i < 32; i++) {
+            table.put(offset + i, key[i]);
+        }
+        table.putInt(offset + 32, archiveId);
+        table.put(offset + 36, kind);
+        table.putLong(offset + 40, length);
+        table.putLong(offset + 48, compressedLength);
+        for (int i = 0; i < 8; i++) {
+            table.put(offset + 56 + i, i < algorithm.length ? algorithm[i] : 0);
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static byte[] hexToBytes(String hex) {
+        if (hex.length() != 64) {
+            throw new IllegalArgumentException("Expected a SHA-256 hex string: " + hex);
+        }
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < 32; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,34 @@
+package com.myzip.hashing;
+
+/**
+ * ChecksumType lists the integrity checksums an archive can store per entry.
+ * The checksum only guards against corruption; deduplication always uses SHA-256.
+ */
+public enum ChecksumType {
+    /** 64-bit xxHash: several times faster than SHA-256, wider than CRC32 (default) */
+    XXHASH64(16),
+    /** CRC32 as used by zip, the checksum of archives without a recorded type */
+    CRC32(8),
+    /** SHA-256 (tree-hashed in parallel for large entries), for when a cryptographic hash is wanted */
+    SHA256(64);
+
+    private final int hexLength;
+
+    ChecksumType(int hexLength) {
+        this.hexLength = hexLength;
+    }
+
+    /**
+     * Length of the checksum as a hex string
+     */
+    public int getHexLength() {
+        return hexLength;
+    }
+
+    /**
+     * Look up a type by name; a missing name means CRC32
+     */
+    public static ChecksumType forName(String name) {
+        return name == null ? CRC32 : valueOf(name);
+    }
+}
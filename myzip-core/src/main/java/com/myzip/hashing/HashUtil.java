@@ -0,0 +1,305 @@
+package com.myzip.hashing;
+
+import com.myzip.utils.BufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * HashUtil provides hashing functionality for file deduplication and integrity verification
+ * Uses Hash Table data structure concept
+ */
+public class HashUtil {
+    
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    // MessageDigest.getInstance is a provider lookup; keep one digest per thread
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(HashUtil::newSHA256Digest);
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> newDigest("MD5"));
+    
+    private static final TreeHasher TREE_HASHER = new TreeHasher();
+    
+    /**
+     * Compute SHA-256 hash of byte array
+     * Returns hex string representation
+     */
+    public static String computeSHA256(byte[] data) {
+        return bytesToHex(computeSHA256Bytes(data));
+    }
+    
+    /**
+     * Compute SHA-256 hash of byte array as raw bytes
+     */
+    public static byte[] computeSHA256Bytes(byte[] data) {
+        return sha256Digest().digest(data);
+    }
+    
+    /**
+     * Compute SHA-256 hash of a stream, reading it to the end
+     * Returns hex string representation
+     */
+    public static String computeSHA256(InputStream in) throws IOException {
+        MessageDigest digest = sha256Digest();
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+            return bytesToHex(digest.digest());
+        } finally {
+            // A failed read must not leave its partial input for the next hash
+            digest.reset();
+        }
+    }
+    
+    /**
+     * Compute the content hash used for deduplication: a parallel tree hash
+     * for data of at least {@link TreeHasher#DEFAULT_MIN_TREE_SIZE} bytes,
+     * plain SHA-256 below that
+     * Returns hex string representation
+     */
+    public static String computeContentHash(byte[] data) {
+        return computeContentHash(data, contentHashLeafSize(data.length));
+    }
+    
+    /**
+     * Compute a content hash with a given tree leaf size (0 for plain SHA-256)
+     * Returns hex string representation
+     */
+    public static String computeContentHash(byte[] data, int leafSize) {
+        if (leafSize == 0) {
+            return computeSHA256(data);
+        }
+        TreeHasher hasher = leafSize == TREE_HASHER.getLeafSize() ? TREE_HASHER
+            : new TreeHasher(leafSize, java.util.concurrent.ForkJoinPool.commonPool());
+        return bytesToHex(hasher.hash(data));
+    }
+    
+    /**
+     * Content hash of the first size bytes of a file, equal to the hash of
+     * the same bytes as an array. The file is read in pieces (in parallel
+     * for a tree hash) and never held whole, so it may exceed 2 GB.
+     */
+    public static String computeContentHash(FileChannel channel, long size) throws IOException {
+        return computeContentHash(channel, size, contentHashLeafSize(size));
+    }
+    
+    /**
+     * Content hash of the first size bytes of a file with a given tree leaf size
+     */
+    public static String computeContentHash(FileChannel channel, long size, int leafSize) throws IOException {
+        if (leafSize == 0) {
+            return hash(channel, size, new Hasher(ChecksumType.SHA256)).hexDigest();
+        }
+        TreeHasher hasher = leafSize == TREE_HASHER.getLeafSize() ? TREE_HASHER
+            : new TreeHasher(leafSize, java.util.concurrent.ForkJoinPool.commonPool());
+        return bytesToHex(hasher.hash(channel, size));
+    }
+    
+    /**
+     * Tree leaf size {@link #computeContentHash(byte[])} uses for data of this size,
+     * or 0 if it uses plain SHA-256
+     */
+    public static int contentHashLeafSize(long size) {
+        return size >= TreeHasher.DEFAULT_MIN_TREE_SIZE ? TREE_HASHER.getLeafSize() : 0;
+    }
+    
+    /**
+     * Compute MD5 hash of byte array (faster but less secure)
+     * Returns hex string representation
+     */
+    public static String computeMD5(byte[] data) {
+        return bytesToHex(MD5.get().digest(data));
+    }
+    
+    /**
+     * Compute an integrity checksum of byte array
+     * Returns hex string representation
+     */
+    public static String computeChecksum(byte[] data, ChecksumType type) {
+        switch (type) {
+            case SHA256:
+                return computeContentHash(data);
+            case CRC32:
+                return computeCRC32(data);
+            default:
+                return toHex(XXHash64.hash(data), 16);
+        }
+    }
+    
+    /**
+     * Integrity checksum of the first size bytes of a file, read in pieces
+     */
+    public static String computeChecksum(FileChannel channel, long size, ChecksumType type) throws IOException {
+        if (type == ChecksumType.SHA256) {
+            return computeContentHash(channel, size);
+        }
+        return hash(channel, size, new Hasher(type)).hexDigest();
+    }
+    
+    /**
+     * Feed the first size bytes of a file to a hasher, a pooled array at a time
+     */
+    private static Hasher hash(FileChannel channel, long size, Hasher hasher) throws IOException {
+        byte[] array = BufferPool.acquire((int) Math.min(size, BufferPool.MAX_POOLED_SIZE));
+        try {
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(array.length, size - position);
+                readFully(channel, ByteBuffer.wrap(array, 0, length), position, size);
+                hasher.update(array, 0, length);
+                position += length;
+            }
+            return hasher;
+        } finally {
+            BufferPool.release(array);
+        }
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, long size) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("File shorter than " + size + " bytes");
+            }
+        }
+    }
+    
+    /**
+     * Verify data against a checksum of the given type
+     */
+    public static boolean verifyChecksum(byte[] data, ChecksumType type, String expected) {
+        return computeChecksum(data, type).equals(expected);
+    }
+    
+    /**
+     * The calling thread's SHA-256 digest, reset and ready for use.
+     * It must not be held across calls to other HashUtil methods.
+     */
+    static MessageDigest sha256Digest() {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest;
+    }
+    
+    /**
+     * A new SHA-256 digest, for callers that hash incrementally
+     */
+    static MessageDigest newSHA256Digest() {
+        return newDigest("SHA-256");
+    }
+    
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(algorithm + " algorithm not available", e);
+        }
+    }
+    
+    /**
+     * Compute CRC32 checksum of byte array
+     * Returns 8-character hex string representation
+     */
+    public static String computeCRC32(byte[] data) {
+        java.util.zip.CRC32 crc = new java.util.zip.CRC32();
+        crc.update(data);
+        return toHex(crc.getValue(), 8);
+    }
+    
+    private static final int SAMPLE_SIZE = 4096;
+    
+    /**
+     * Fast non-cryptographic pre-hash over the head, middle and tail of the data
+     * (the whole data when it is small), mixed with its length.
+     * Equal data always gives equal sample hashes; different data usually does not.
+     * Never returns 0, so 0 can mean "not computed".
+     */
+    public static long computeSampleHash(byte[] data) {
+        long hash = 0xcbf29ce484222325L ^ data.length;
+        if (data.length <= 3 * SAMPLE_SIZE) {
+            hash = fnv1a(hash, data, 0, data.length);
+        } else {
+            hash = fnv1a(hash, data, 0, SAMPLE_SIZE);
+            hash = fnv1a(hash, data, (data.length - SAMPLE_SIZE) / 2, SAMPLE_SIZE);
+            hash = fnv1a(hash, data, data.length - SAMPLE_SIZE, SAMPLE_SIZE);
+        }
+        return hash == 0 ? 1 : hash;
+    }
+    
+    /**
+     * Sample hash of the first size bytes of a file, equal to that of the
+     * same bytes as an array; only the sampled parts are read
+     */
+    public static long computeSampleHash(FileChannel channel, long size) throws IOException {
+        long hash = 0xcbf29ce484222325L ^ size;
+        byte[] sample = new byte[(int) Math.min(size, 3 * SAMPLE_SIZE)];
+        if (size <= 3 * SAMPLE_SIZE) {
+            readFully(channel, ByteBuffer.wrap(sample), 0, size);
+            hash = fnv1a(hash, sample, 0, sample.length);
+        } else {
+            for (long offset : new long[] {0, (size - SAMPLE_SIZE) / 2, size - SAMPLE_SIZE}) {
+                readFully(channel, ByteBuffer.wrap(sample, 0, SAMPLE_SIZE), offset, size);
+                hash = fnv1a(hash, sample, 0, SAMPLE_SIZE);
+            }
+        }
+        return hash == 0 ? 1 : hash;
+    }
+    
+    private static long fnv1a(long hash, byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= data[i] & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+    
+    /**
+     * Convert byte array to hexadecimal string
+     */
+    public static String toHex(byte[] bytes) {
+        return bytesToHex(bytes);
+    }
+    
+    /**
+     * Convert the low 4 * digits bits of a value to a zero-padded hexadecimal string
+     */
+    public static String toHex(long value, int digits) {
+        char[] hex = new char[digits];
+        for (int i = digits - 1; i >= 0; i--) {
+            hex[i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+        return new String(hex);
+    }
+    
+    private static String bytesToHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+    
+    /**
+     * Verify if data matches given hash
+     */
+    public static boolean verifySHA256(byte[] data, String expectedHash) {
+        String actualHash = computeSHA256(data);
+        return actualHash.equals(expectedHash);
+    }
+    
+    /**
+     * Verify if data matches given MD5 hash
+     */
+    public static boolean verifyMD5(byte[] data, String expectedHash) {
+        String actualHash = computeMD5(data);
+        return actualHash.equals(expectedHash);
+    }
+}
@@ -0,0 +1,99 @@
+package com.myzip.hashing;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * Hasher computes a SHA-256 digest or a checksum incrementally, so data can
+ * be hashed piece by piece as it is read instead of as one byte array.
+ * Taking the digest resets the hasher, so one instance can be reused for
+ * many files. Instances are not thread-safe.
+ */
+public class Hasher {
+
+    private final ChecksumType type;
+    private final MessageDigest digest;
+    private final Checksum checksum;
+
+    public Hasher(ChecksumType type) {
+        this.type = type;
+        switch (type) {
+            case SHA256:
+                this.digest = HashUtil.newSHA256Digest();
+                this.checksum = null;
+                break;
+            case CRC32:
+                this.digest = null;
+                this.checksum = new CRC32();
+                break;
+            default:
+                this.digest = null;
+                this.checksum = new XXHash64();
+                break;
+        }
+    }
+
+    public ChecksumType getType() {
+        return type;
+    }
+
+    public Hasher update(byte[] data) {
+        return update(data, 0, data.length);
+    }
+
+    public Hasher update(byte[] data, int offset, int length) {
+        if (digest != null) {
+            digest.update(data, offset, length);
+        } else {
+            checksum.update(data, offset, length);
+        }
+        return this;
+    }
+
+    /**
+     * Feed the remaining bytes of a buffer (its position is advanced)
+     */
+    public Hasher update(ByteBuffer data) {
+        if (digest != null) {
+            digest.update(data);
+        } else if (data.hasArray()) {
+            checksum.update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+        } else {
+            byte[] buffer = new byte[Math.min(data.remaining(), 8192)];
+            while (data.hasRemaining()) {
+                int n = Math.min(buffer.length, data.remaining());
+                data.get(buffer, 0, n);
+                checksum.update(buffer, 0, n);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Finish hashing and return the raw digest (big-endian for checksums)
+     */
+    public byte[] digest() {
+        if (digest != null) {
+            return digest.digest();
+        }
+        long value = checksum.getValue();
+        checksum.reset();
+        int length = type.getHexLength() / 2;
+        byte[] bytes = new byte[length];
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    /**
+     * Finish hashing and return the digest as a lowercase hex string
+     */
+    public String hexDigest() {
+        return HashUtil.toHex(digest());
+    }
+}
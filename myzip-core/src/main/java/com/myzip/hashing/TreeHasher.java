@@ -0,0 +1,215 @@
+package com.myzip.hashing;
+
+import com.myzip.utils.BufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * TreeHasher computes a SHA-256 tree hash so that large files are hashed on
+ * all cores instead of one. The data is cut into fixed-size leaves, every
+ * leaf is hashed independently on a ForkJoin pool, and the leaf hashes are
+ * combined pairwise up to a single root.
+ *
+ * The tree has the same shape as the Merkle tree of RFC 6962: leaves are
+ * hashed as SHA-256(0x00 || leaf), inner nodes as SHA-256(0x01 || left || right),
+ * and a range of n leaves is split at the largest power of two below n.
+ * The prefixes keep a root from ever equalling a plain SHA-256 of some data.
+ *
+ * The leaf size is part of the hash: the same data hashed with another leaf
+ * size gives another root.
+ */
+public class TreeHasher {
+
+    /** Leaf size used for archive entries */
+    public static final int DEFAULT_LEAF_SIZE = 1 << 20;
+
+    /** Entries at least this large are tree-hashed; smaller ones use plain SHA-256 */
+    public static final long DEFAULT_MIN_TREE_SIZE = 8L << 20;
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private final int leafSize;
+    private final ForkJoinPool pool;
+
+    public TreeHasher() {
+        this(DEFAULT_LEAF_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public TreeHasher(int leafSize, ForkJoinPool pool) {
+        if (leafSize <= 0) {
+            throw new IllegalArgumentException("Leaf size must be positive");
+        }
+        this.leafSize = leafSize;
+        this.pool = pool;
+    }
+
+    public int getLeafSize() {
+        return leafSize;
+    }
+
+    /**
+     * Root hash of a byte array
+     */
+    public byte[] hash(byte[] data) {
+        return pool.invoke(new SubtreeTask(data.length, 0, leafCount(data.length),
+            (leaf, length, digest) -> digest.update(data, (int) (leaf * leafSize), length)));
+    }
+
+    /**
+     * Root hash of the first size bytes of a file, read with positional
+     * reads so that leaves are read in parallel as well. Each leaf is read
+     * into an array borrowed from the {@link BufferPool} of the pool thread
+     * hashing it and given back as soon as it is digested.
+     */
+    public byte[] hash(FileChannel channel, long size) throws IOException {
+        try {
+            return pool.invoke(new SubtreeTask(size, 0, leafCount(size), (leaf, length, digest) -> {
+                byte[] array = BufferPool.acquire(length);
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(array, 0, length);
+                    long position = leaf * leafSize;
+                    while (buffer.hasRemaining()) {
+                        int n = channel.read(buffer, position + buffer.position());
+                        if (n < 0) {
+                            throw new EOFException("File shorter than " + size + " bytes");
+                        }
+                    }
+                    digest.update(array, 0, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    BufferPool.release(array);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Start hashing data that arrives in order and cannot be read back,
+     * such as an entry being streamed out. Leaves are hashed on the
+     * calling thread as they fill, so only one leaf and the leaf hashes
+     * are held.
+     */
+    public Stream stream() {
+        return new Stream();
+    }
+
+    /**
+     * Tree hash of data fed in order; gives the same root as
+     * {@link #hash(byte[])} over the concatenated data
+     */
+    public class Stream {
+        private final List<byte[]> leafHashes = new ArrayList<>();
+        private final MessageDigest digest = HashUtil.newSHA256Digest();
+        private int leafFill;
+
+        private Stream() {
+            digest.update(LEAF_PREFIX);
+        }
+
+        public void update(ByteBuffer data) {
+            while (data.hasRemaining()) {
+                if (leafFill == leafSize) {
+                    finishLeaf();
+                }
+                int length = Math.min(data.remaining(), leafSize - leafFill);
+                ByteBuffer part = data.duplicate();
+                part.limit(part.position() + length);
+                digest.update(part);
+                data.position(data.position() + length);
+                leafFill += length;
+            }
+        }
+
+        /**
+         * Root hash of everything fed so far; the stream must not be used afterwards
+         */
+        public byte[] digest() {
+            // The last leaf may be partial, or empty if there was no data at all
+            finishLeaf();
+            return root(0, leafHashes.size());
+        }
+
+        private void finishLeaf() {
+            leafHashes.add(digest.digest());
+            digest.update(LEAF_PREFIX);
+            leafFill = 0;
+        }
+
+        private byte[] root(int first, int count) {
+            if (count == 1) {
+                return leafHashes.get(first);
+            }
+            int split = Integer.highestOneBit(count - 1);
+            return node(root(first, split), root(first + split, count - split));
+        }
+    }
+
+    private static byte[] node(byte[] leftHash, byte[] rightHash) {
+        MessageDigest digest = HashUtil.sha256Digest();
+        digest.update(NODE_PREFIX);
+        digest.update(leftHash);
+        digest.update(rightHash);
+        return digest.digest();
+    }
+
+    private long leafCount(long size) {
+        // Empty data is a single empty leaf
+        return Math.max(1, (size + leafSize - 1) / leafSize);
+    }
+
+    /**
+     * Feeds one leaf to a digest; called concurrently from pool threads
+     */
+    private interface LeafReader {
+        void digest(long leaf, int length, MessageDigest digest);
+    }
+
+    private class SubtreeTask extends RecursiveTask<byte[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final long size;
+        private final long first;
+        private final long count;
+        private final LeafReader reader;
+
+        SubtreeTask(long size, long first, long count, LeafReader reader) {
+            this.size = size;
+            this.first = first;
+            this.count = count;
+            this.reader = reader;
+        }
+
+        @Override
+        protected byte[] compute() {
+            if (count == 1) {
+                long start = first * leafSize;
+                int length = (int) Math.min(leafSize, size - start);
+                MessageDigest digest = HashUtil.sha256Digest();
+                digest.update(LEAF_PREFIX);
+                reader.digest(first, length, digest);
+                return digest.digest();
+            }
+
+            long split = Long.highestOneBit(count - 1);
+            SubtreeTask left = new SubtreeTask(size, first, split, reader);
+            SubtreeTask right = new SubtreeTask(size, first + split, count - split, reader);
+            right.fork();
+            byte[] leftHash = left.compute();
+            byte[] rightHash = right.join();
+            return node(leftHash, rightHash);
+        }
+    }
+}
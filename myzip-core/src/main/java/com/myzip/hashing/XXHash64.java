@@ -0,0 +1,182 @@
+package com.myzip.hashing;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Checksum;
+
+/**
+ * XXHash64 is a streaming implementation of the 64-bit xxHash checksum.
+ * It is not cryptographic, but it detects corruption as well as a CRC and
+ * runs several times faster than SHA-256, so it is used to verify entries
+ * on extraction. Data may be fed in pieces of any size.
+ */
+public class XXHash64 implements Checksum {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private final long seed;
+    private long v1, v2, v3, v4;
+    private long totalLength;
+
+    // Input not yet consumed by a full 32-byte stripe
+    private final byte[] buffer = new byte[32];
+    private int buffered;
+
+    public XXHash64() {
+        this(0);
+    }
+
+    public XXHash64(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    /**
+     * One-shot hash of a whole array
+     */
+    public static long hash(byte[] data) {
+        XXHash64 hash = new XXHash64();
+        hash.update(data, 0, data.length);
+        return hash.getValue();
+    }
+
+    @Override
+    public void update(int b) {
+        buffer[buffered++] = (byte) b;
+        totalLength++;
+        if (buffered == 32) {
+            processStripe(buffer, 0);
+            buffered = 0;
+        }
+    }
+
+    @Override
+    public void update(byte[] data, int offset, int length) {
+        totalLength += length;
+        int end = offset + length;
+
+        // Complete a partially filled stripe first
+        if (buffered > 0) {
+            int take = Math.min(32 - buffered, length);
+            System.arraycopy(data, offset, buffer, buffered, take);
+            buffered += take;
+            offset += take;
+            if (buffered < 32) {
+                return;
+            }
+            processStripe(buffer, 0);
+            buffered = 0;
+        }
+
+        if (offset + 32 <= end) {
+            // Little-endian view: the JIT turns getLong into a single load
+            ByteBuffer view = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+            long a = v1, b = v2, c = v3, d = v4;
+            for (; offset + 32 <= end; offset += 32) {
+                a = round(a, view.getLong(offset));
+                b = round(b, view.getLong(offset + 8));
+                c = round(c, view.getLong(offset + 16));
+                d = round(d, view.getLong(offset + 24));
+            }
+            v1 = a;
+            v2 = b;
+            v3 = c;
+            v4 = d;
+        }
+
+        buffered = end - offset;
+        System.arraycopy(data, offset, buffer, 0, buffered);
+    }
+
+    public void update(byte[] data) {
+        update(data, 0, data.length);
+    }
+
+    @Override
+    public long getValue() {
+        long hash;
+        if (totalLength >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += totalLength;
+
+        int position = 0;
+        for (; position + 8 <= buffered; position += 8) {
+            hash ^= round(0, readLong(buffer, position));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (position + 4 <= buffered) {
+            hash ^= (readInt(buffer, position) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            position += 4;
+        }
+        for (; position < buffered; position++) {
+            hash ^= (buffer[position] & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    @Override
+    public void reset() {
+        v1 = seed + PRIME1 + PRIME2;
+        v2 = seed + PRIME2;
+        v3 = seed;
+        v4 = seed - PRIME1;
+        totalLength = 0;
+        buffered = 0;
+    }
+
+    private void processStripe(byte[] data, int offset) {
+        v1 = round(v1, readLong(data, offset));
+        v2 = round(v2, readLong(data, offset + 8));
+        v3 = round(v3, readLong(data, offset + 16));
+        v4 = round(v4, readLong(data, offset + 24));
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME1;
+    }
+
+    private static long mergeRound(long acc, long value) {
+        acc ^= round(0, value);
+        return acc * PRIME1 + PRIME4;
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        return (data[offset] & 0xFFL)
+            | (data[offset + 1] & 0xFFL) << 8
+            | (data[offset + 2] & 0xFFL) << 16
+            | (data[offset + 3] & 0xFFL) << 24
+            | (data[offset + 4] & 0xFFL) << 32
+            | (data[offset + 5] & 0xFFL) << 40
+            | (data[offset + 6] & 0xFFL) << 48
+            | (data[offset + 7] & 0xFFL) << 56;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF)
+            | (data[offset + 1] & 0xFF) << 8
+            | (data[offset + 2] & 0xFF) << 16
+            | (data[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,141 @@
+package com.myzip.utils;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * BufferArena keeps byte data in direct (off-heap) memory for the length of
+ * one operation. Data is copied into large slabs from
+ * {@link ByteBuffer#allocateDirect(int)}, so the heap holds only small
+ * buffer views and the garbage collector never scans or copies the data.
+ *
+ * Lifetimes are explicit: every buffer handed out stays valid until
+ * {@link #close()} and must not be used after it. Java 8 frees direct
+ * memory only when the collector finds a buffer unreachable, so closed
+ * slabs go back to a process-wide free list (up to {@link #MAX_FREE_BYTES})
+ * for the next arena instead of waiting for it, and are freed on the spot
+ * once the list is full. An allocation too large for a slab gets a buffer
+ * of its own that close() frees too, which keeps the direct memory of a
+ * long-running process flat from job to job.
+ * On a JVM that offers no way to free a direct buffer, those large
+ * allocations are made on the heap instead.
+ *
+ * Direct memory counts against -XX:MaxDirectMemorySize (by default the
+ * maximum heap size). An arena is used by one thread at a time.
+ */
+public class BufferArena implements Closeable {
+
+    public static final int SLAB_SIZE = 4 << 20;
+    public static final long MAX_FREE_BYTES = 64L << 20;
+
+    // Anything larger gets a buffer of its own rather than wasting slab tails
+    private static final int MAX_SLAB_ALLOCATION = SLAB_SIZE / 4;
+
+    private static final Deque<ByteBuffer> FREE_SLABS = new ArrayDeque<>();
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final List<ByteBuffer> largeBuffers = new ArrayList<>();
+    private ByteBuffer current;
+    private long usedBytes;
+    private long reservedBytes;
+    private boolean closed;
+
+    /**
+     * Copy data into the arena
+     * @return Buffer positioned at the start of the copy, with the copy's length as its limit
+     */
+    public ByteBuffer copyOf(byte[] data) {
+        return copyOf(data, 0, data.length);
+    }
+
+    public ByteBuffer copyOf(byte[] data, int offset, int length) {
+        ByteBuffer buffer = allocate(length);
+        buffer.put(data, offset, length);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reserve space in the arena; the buffer's contents are undefined
+     */
+    public ByteBuffer allocate(int size) {
+        if (closed) {
+            throw new IllegalStateException("Buffer arena is closed");
+        }
+        usedBytes += size;
+        if (size > MAX_SLAB_ALLOCATION) {
+            if (!DirectBuffers.isFreeSupported()) {
+                return ByteBuffer.allocate(size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+            largeBuffers.add(buffer);
+            reservedBytes += size;
+            return buffer;
+        }
+        if (current == null || current.remaining() < size) {
+            current = takeSlab();
+            slabs.add(current);
+            reservedBytes += SLAB_SIZE;
+        }
+        ByteBuffer view = current.duplicate();
+        view.limit(view.position() + size);
+        current.position(current.position() + size);
+        return view.slice();
+    }
+
+    /**
+     * Bytes handed out so far
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Direct memory held by the arena, including unused slab space
+     */
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * End the lifetime of every buffer handed out, give the slabs back and
+     * free the large buffers and any slabs the free list has no room for
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ByteBuffer buffer : largeBuffers) {
+            DirectBuffers.free(buffer);
+        }
+        largeBuffers.clear();
+        synchronized (FREE_SLABS) {
+            for (ByteBuffer slab : slabs) {
+                if ((long) FREE_SLABS.size() * SLAB_SIZE < MAX_FREE_BYTES) {
+                    slab.clear();
+                    FREE_SLABS.push(slab);
+                } else {
+                    DirectBuffers.free(slab);
+                }
+            }
+        }
+        slabs.clear();
+        current = null;
+    }
+
+    private static ByteBuffer takeSlab() {
+        synchronized (FREE_SLABS) {
+            ByteBuffer slab = FREE_SLABS.poll();
+            if (slab != null) {
+                return slab;
+            }
+        }
+        return ByteBuffer.allocateDirect(SLAB_SIZE);
+    }
+}
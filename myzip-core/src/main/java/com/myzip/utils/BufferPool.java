@@ -0,0 +1,67 @@
+package com.myzip.utils;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * BufferPool lends byte arrays to codecs for their working output, so that
+ * compressing many small inputs in a row reuses the same few arrays instead
+ * of allocating (and growing by doubling) a new one for every input.
+ *
+ * Each thread has its own pool and a buffer must be released on the thread
+ * that acquired it. Arrays larger than {@link #MAX_POOLED_SIZE} are left to
+ * the garbage collector, so a thread keeps at most
+ * {@link #MAX_POOLED_BUFFERS} x {@link #MAX_POOLED_SIZE} bytes.
+ */
+public final class BufferPool {
+
+    public static final int MAX_POOLED_SIZE = 4 << 20;
+    public static final int MAX_POOLED_BUFFERS = 4;
+
+    private static final int MIN_SIZE = 4096;
+
+    private static final ThreadLocal<ArrayDeque<byte[]>> POOL =
+        ThreadLocal.withInitial(() -> new ArrayDeque<>(MAX_POOLED_BUFFERS));
+
+    private BufferPool() {
+    }
+
+    /**
+     * Borrow an array of at least minSize bytes; its contents are undefined
+     */
+    public static byte[] acquire(int minSize) {
+        ArrayDeque<byte[]> pool = POOL.get();
+        for (Iterator<byte[]> it = pool.iterator(); it.hasNext(); ) {
+            byte[] buffer = it.next();
+            if (buffer.length >= minSize) {
+                it.remove();
+                return buffer;
+            }
+        }
+        return new byte[Math.max(MIN_SIZE, minSize)];
+    }
+
+    /**
+     * Give an array back; it must not be used afterwards
+     */
+    public static void release(byte[] buffer) {
+        if (buffer == null || buffer.length > MAX_POOLED_SIZE) {
+            return;
+        }
+        ArrayDeque<byte[]> pool = POOL.get();
+        if (pool.size() >= MAX_POOLED_BUFFERS) {
+            // Keep the larger arrays, which are the expensive ones to grow into
+            byte[] smallest = pool.peekFirst();
+            for (byte[] pooled : pool) {
+                if (pooled.length < smallest.length) {
+                    smallest = pooled;
+                }
+            }
+            if (smallest.length >= buffer.length) {
+                return;
+            }
+            pool.remove(smallest);
+        }
+        pool.addFirst(buffer);
+    }
+}
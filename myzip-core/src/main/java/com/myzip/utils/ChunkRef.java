@@ -0,0 +1,60 @@
+package com.myzip.utils;
+
+import java.io.Serializable;
+
+/**
+ * ChunkRef describes one content-defined chunk of a file.
+ * The chunk payload is stored once in the archive under chunks/&lt;hash&gt;
+ * and may be shared by any number of files.
+ */
+public class ChunkRef implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String hash;
+    private int length;
+    private String compressionAlgorithm;
+    private long compressedSize;
+    private String externalArchive;
+
+    public ChunkRef(String hash, int length, String compressionAlgorithm, long compressedSize) {
+        this.hash = hash;
+        this.length = length;
+        this.compressionAlgorithm = compressionAlgorithm;
+        this.compressedSize = compressedSize;
+    }
+
+    public ChunkRef(String hash, int length, String compressionAlgorithm, long compressedSize, String externalArchive) {
+        this(hash, length, compressionAlgorithm, compressedSize);
+        this.externalArchive = externalArchive;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public String getCompressionAlgorithm() {
+        return compressionAlgorithm;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Path of another archive holding this chunk, or null if it is stored locally
+     */
+    public String getExternalArchive() {
+        return externalArchive;
+    }
+
+    /**
+     * Name of the archive entry holding this chunk
+     */
+    public String getEntryName() {
+        return "chunks/" + hash;
+    }
+}
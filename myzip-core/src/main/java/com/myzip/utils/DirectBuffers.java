@@ -0,0 +1,85 @@
+package com.myzip.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * DirectBuffers releases direct and memory-mapped buffers at once instead
+ * of when the garbage collector finds them unreachable, which on Java 8 is
+ * the only time their memory is freed or their file unmapped. It uses
+ * Unsafe's invokeCleaner on Java 9 and later and the buffer's own Cleaner
+ * on Java 8, both found reflectively so the code compiles for Java 8.
+ */
+public final class DirectBuffers {
+
+    // Frees a buffer at once, or null if this JVM offers no way to
+    private static final Consumer<ByteBuffer> FREE = findFree();
+
+    private DirectBuffers() {
+    }
+
+    /**
+     * Whether {@link #free(ByteBuffer)} works on this JVM
+     */
+    public static boolean isFreeSupported() {
+        return FREE != null;
+    }
+
+    /**
+     * Free a buffer's memory, or unmap it if it is mapped; it and every
+     * view of it must not be used afterwards. Does nothing where freeing
+     * is not supported.
+     * @param buffer A buffer returned by allocateDirect or FileChannel.map, not a view of one
+     */
+    public static void free(ByteBuffer buffer) {
+        if (FREE != null && buffer.isDirect()) {
+            FREE.accept(buffer);
+        }
+    }
+
+    private static Consumer<ByteBuffer> findFree() {
+        Consumer<ByteBuffer> free;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            free = buffer -> invoke(invokeCleaner, unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            try {
+                Method cleaner = ByteBuffer.allocateDirect(1).getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Method clean = cleaner.getReturnType().getMethod("clean");
+                clean.setAccessible(true);
+                free = buffer -> {
+                    Object bufferCleaner = invoke(cleaner, buffer);
+                    if (bufferCleaner != null) {
+                        invoke(clean, bufferCleaner);
+                    }
+                };
+            } catch (ReflectiveOperationException | RuntimeException e2) {
+                return null;
+            }
+        }
+        try {
+            free.accept(ByteBuffer.allocateDirect(1));
+            return free;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.myzip.utils;
 
+import com.myzip.core.ArchiveManager;
+import com.myzip.core.DirectoryScanner;
+
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
@@ -47,26 +50,18 @@ public class FileUtils {
     }
     
     /**
-     * Recursively get all files in directory
-     * Uses Tree data structure (directory traversal)
+     * Recursively get all files in directory, following symbolic links as
+     * before. The walk is done by {@link DirectoryScanner}, which lists
+     * directories in parallel; use it directly to archive while scanning.
      */
     public static List<File> getAllFiles(File directory) {
+        DirectoryScanner scanner = new DirectoryScanner(directory);
+        scanner.setSymlinkPolicy(DirectoryScanner.SymlinkPolicy.FOLLOW);
         List<File> fileList = new ArrayList<>();
-        getAllFilesRecursive(directory, fileList);
-        return fileList;
-    }
-    
-    private static void getAllFilesRecursive(File directory, List<File> fileList) {
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isFile()) {
-                    fileList.add(file);
-                } else if (file.isDirectory()) {
-                    getAllFilesRecursive(file, fileList);
-                }
-            }
+        for (ArchiveManager.FileEntry entry : scanner.scanAll()) {
+            fileList.add(entry.getSource().toFile());
         }
+        return fileList;
     }
     
     /**
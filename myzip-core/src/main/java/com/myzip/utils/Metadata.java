@@ -0,0 +1,275 @@
+package com.myzip.utils;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Metadata class stores information about compressed files
+ * Used in archive creation and restoration
+ */
+public class Metadata implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private String relativePath;
+    private String originalName;
+    private long originalSize;
+    private long compressedSize;
+    private String compressionAlgorithm;
+    private String fileType;
+    private String hash;
+    private int hashLeafSize;
+    private long sampleHash;
+    private String checksum;
+    private String checksumType;
+    private String storageKey;
+    private boolean isDuplicate;
+    private String duplicateOf;
+    private long timestamp;
+    private List<ChunkRef> chunks;
+    private String externalArchive;
+    private int blockSize;
+    private long solidOffset;
+    private long solidBlockLength;
+    private String dictionaryId;
+    
+    public Metadata() {
+        this.timestamp = System.currentTimeMillis();
+    }
+    
+    public Metadata(String relativePath, String originalName, long originalSize) {
+        this();
+        this.relativePath = relativePath;
+        this.originalName = originalName;
+        this.originalSize = originalSize;
+    }
+    
+    // Getters and Setters
+    public String getRelativePath() {
+        return relativePath;
+    }
+    
+    public void setRelativePath(String relativePath) {
+        this.relativePath = relativePath;
+    }
+    
+    public String getOriginalName() {
+        return originalName;
+    }
+    
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+    
+    public long getOriginalSize() {
+        return originalSize;
+    }
+    
+    public void setOriginalSize(long originalSize) {
+        this.originalSize = originalSize;
+    }
+    
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+    
+    public void setCompressedSize(long compressedSize) {
+        this.compressedSize = compressedSize;
+    }
+    
+    public String getCompressionAlgorithm() {
+        return compressionAlgorithm;
+    }
+    
+    public void setCompressionAlgorithm(String compressionAlgorithm) {
+        this.compressionAlgorithm = compressionAlgorithm;
+    }
+    
+    public String getFileType() {
+        return fileType;
+    }
+    
+    public void setFileType(String fileType) {
+        this.fileType = fileType;
+    }
+    
+    public String getHash() {
+        return hash;
+    }
+    
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+    
+    /**
+     * Leaf size of the tree hash in {@link #getHash()}, or 0 if it is a plain SHA-256
+     */
+    public int getHashLeafSize() {
+        return hashLeafSize;
+    }
+    
+    public void setHashLeafSize(int hashLeafSize) {
+        this.hashLeafSize = hashLeafSize;
+    }
+    
+    /**
+     * Sampled pre-hash used to rule out duplicates cheaply, or 0 if it was never needed
+     */
+    public long getSampleHash() {
+        return sampleHash;
+    }
+    
+    public void setSampleHash(long sampleHash) {
+        this.sampleHash = sampleHash;
+    }
+    
+    /**
+     * Checksum of the original data, used to verify extraction
+     */
+    public String getChecksum() {
+        return checksum;
+    }
+    
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+    
+    /**
+     * Name of the ChecksumType of the checksum; null means CRC32
+     */
+    public String getChecksumType() {
+        return checksumType;
+    }
+    
+    public void setChecksumType(String checksumType) {
+        this.checksumType = checksumType;
+    }
+    
+    /**
+     * Key of the payload entry (data/&lt;key&gt;, or solid/&lt;key&gt; for
+     * members of a solid block). Files whose SHA-256 was never
+     * computed get a sequential key; older archives keyed payloads by hash.
+     */
+    public String getStorageKey() {
+        return storageKey != null ? storageKey : hash;
+    }
+    
+    public void setStorageKey(String storageKey) {
+        this.storageKey = storageKey;
+    }
+    
+    public boolean isDuplicate() {
+        return isDuplicate;
+    }
+    
+    public void setDuplicate(boolean duplicate) {
+        isDuplicate = duplicate;
+    }
+    
+    public String getDuplicateOf() {
+        return duplicateOf;
+    }
+    
+    public void setDuplicateOf(String duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+    
+    public List<ChunkRef> getChunks() {
+        return chunks;
+    }
+    
+    public void setChunks(List<ChunkRef> chunks) {
+        this.chunks = chunks;
+    }
+    
+    /**
+     * Is this file stored as a list of content-defined chunks?
+     */
+    public boolean isChunked() {
+        return chunks != null;
+    }
+    
+    /**
+     * Path of another archive holding this file's payload, or null if it is stored locally
+     */
+    public String getExternalArchive() {
+        return externalArchive;
+    }
+    
+    public void setExternalArchive(String externalArchive) {
+        this.externalArchive = externalArchive;
+    }
+    
+    /**
+     * Block size if the payload is split into independently compressed
+     * blocks (see BlockCompressor), or 0 if it is a single codec stream
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+    
+    public void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+    
+    /**
+     * Offset of this file's data in its solid block
+     */
+    public long getSolidOffset() {
+        return solidOffset;
+    }
+    
+    public void setSolidOffset(long solidOffset) {
+        this.solidOffset = solidOffset;
+    }
+    
+    /**
+     * Uncompressed length of the solid block (solid/&lt;key&gt;) holding this
+     * file together with other small files, or 0 if the file has a payload of its own.
+     * The algorithm and block size of a solid member describe the whole block.
+     */
+    public long getSolidBlockLength() {
+        return solidBlockLength;
+    }
+    
+    public void setSolidBlockLength(long solidBlockLength) {
+        this.solidBlockLength = solidBlockLength;
+    }
+    
+    /**
+     * Is this file stored inside a shared solid block?
+     */
+    public boolean isSolid() {
+        return solidBlockLength > 0;
+    }
+    
+    /**
+     * Id of the preset dictionary (dict/&lt;id&gt;) the payload was
+     * compressed with, or null if it was compressed without one
+     */
+    public String getDictionaryId() {
+        return dictionaryId;
+    }
+    
+    public void setDictionaryId(String dictionaryId) {
+        this.dictionaryId = dictionaryId;
+    }
+    
+    public double getCompressionRatio() {
+        if (originalSize == 0) return 0;
+        return (1.0 - (double) compressedSize / originalSize) * 100;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Metadata{path='%s', size=%d->%d, algo='%s', type='%s', ratio=%.2f%%}",
+                relativePath, originalSize, compressedSize, compressionAlgorithm, fileType, getCompressionRatio());
+    }
+}
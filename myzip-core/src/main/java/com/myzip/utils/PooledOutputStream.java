@@ -0,0 +1,105 @@
+package com.myzip.utils;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * PooledOutputStream collects a codec's output in an array borrowed from
+ * {@link BufferPool}. Unlike ByteArrayOutputStream it is not synchronized,
+ * which matters for codecs writing a byte (or a bit) at a time, and it
+ * starts at a size estimated from the input instead of 32 bytes.
+ *
+ * {@link #close()} gives the array back, after which the stream must not
+ * be used; take the result with {@link #toByteArray()} first.
+ */
+public class PooledOutputStream extends OutputStream {
+
+    private byte[] buffer;
+    private int count;
+
+    /**
+     * @param expectedSize Estimate of the output size; the stream grows past it if needed
+     */
+    public PooledOutputStream(int expectedSize) {
+        this.buffer = BufferPool.acquire(expectedSize);
+    }
+
+    @Override
+    public void write(int b) {
+        if (count == buffer.length) {
+            grow(count + 1);
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (len > buffer.length - count) {
+            grow(count + len);
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * Write an int in big-endian order, as DataOutputStream does
+     */
+    public void writeInt(int value) {
+        if (buffer.length - count < 4) {
+            grow(count + 4);
+        }
+        buffer[count++] = (byte) (value >>> 24);
+        buffer[count++] = (byte) (value >>> 16);
+        buffer[count++] = (byte) (value >>> 8);
+        buffer[count++] = (byte) value;
+    }
+
+    /**
+     * Write a short in big-endian order, as DataOutputStream does
+     */
+    public void writeShort(int value) {
+        if (buffer.length - count < 2) {
+            grow(count + 2);
+        }
+        buffer[count++] = (byte) (value >>> 8);
+        buffer[count++] = (byte) value;
+    }
+
+    /**
+     * Overwrite an int written earlier, for headers only known at the end
+     */
+    public void setInt(int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Copy of the bytes written, exactly sized
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    @Override
+    public void close() {
+        BufferPool.release(buffer);
+        buffer = null;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, buffer.length + (buffer.length >> 1));
+        if (capacity < 0) {
+            capacity = Integer.MAX_VALUE - 8; // past 2 GB growth overflows
+        }
+        byte[] larger = BufferPool.acquire(capacity);
+        System.arraycopy(buffer, 0, larger, 0, count);
+        BufferPool.release(buffer);
+        buffer = larger;
+    }
+}
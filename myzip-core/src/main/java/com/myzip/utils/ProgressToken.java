@@ -0,0 +1,170 @@
+package com.myzip.utils;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * ProgressToken connects a long-running archive operation with whoever
+ * started it. The operation reports bytes processed as it goes (at entry,
+ * block and chunk boundaries, and every few kilobytes inside the slower
+ * codecs); the caller reads progress, throughput and ETA, or cancels.
+ *
+ * Cancellation is cooperative: {@link #cancel()} only sets a flag, and the
+ * operation throws a {@link CancellationException} at its next check. The
+ * token may be read and cancelled from any thread.
+ */
+public class ProgressToken {
+
+    /**
+     * ProgressListener is told about progress on the thread doing the work,
+     * so it should only hand the values over (e.g. to the UI thread)
+     */
+    public interface ProgressListener {
+        void progressChanged(ProgressToken token);
+    }
+
+    private final ProgressListener listener;
+
+    private volatile boolean cancelled;
+    private volatile long totalBytes = -1;
+    private volatile long processedBytes;
+    private volatile long startNanos;
+    private volatile String currentItem;
+
+    public ProgressToken() {
+        this(null);
+    }
+
+    public ProgressToken(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    // ==================== Caller side ====================
+
+    /**
+     * Ask the operation to stop at its next check
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Total bytes the operation will process, or -1 if not known yet
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getProcessedBytes() {
+        return processedBytes;
+    }
+
+    /**
+     * Entry being processed, or null
+     */
+    public String getCurrentItem() {
+        return currentItem;
+    }
+
+    /**
+     * Fraction done between 0 and 1, or -1 if the total is not known
+     */
+    public double getFraction() {
+        long total = totalBytes;
+        if (total < 0) {
+            return -1;
+        }
+        return total == 0 ? 1 : Math.min(1.0, (double) processedBytes / total);
+    }
+
+    /**
+     * Average throughput since the operation started
+     */
+    public double getBytesPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        if (startNanos == 0 || elapsed <= 0) {
+            return 0;
+        }
+        return processedBytes * 1e9 / elapsed;
+    }
+
+    /**
+     * Estimated milliseconds to completion at the average throughput so far,
+     * or -1 if it cannot be estimated yet
+     */
+    public long getEtaMillis() {
+        double rate = getBytesPerSecond();
+        long total = totalBytes;
+        if (total < 0 || rate <= 0) {
+            return -1;
+        }
+        return (long) (Math.max(0, total - processedBytes) * 1000 / rate);
+    }
+
+    // ==================== Operation side ====================
+
+    /**
+     * Start (or restart) counting for an operation over totalBytes bytes
+     */
+    public void start(long totalBytes) {
+        this.totalBytes = totalBytes;
+        this.processedBytes = 0;
+        this.startNanos = System.nanoTime();
+        notifyListener();
+    }
+
+    /**
+     * Set the total once it becomes known, for operations whose input is
+     * still being discovered when they start
+     */
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+        notifyListener();
+    }
+
+    public void setCurrentItem(String currentItem) {
+        this.currentItem = currentItem;
+    }
+
+    /**
+     * Count bytes processed, then check for cancellation
+     * @throws CancellationException If the token was cancelled
+     */
+    public void advance(long bytes) {
+        processedBytes += bytes;
+        notifyListener();
+        checkCancelled();
+    }
+
+    /**
+     * Move progress forward to an absolute position, for reconciling at the
+     * end of an entry with whatever finer-grained progress was reported
+     * inside it. Progress never moves backwards.
+     * @throws CancellationException If the token was cancelled
+     */
+    public void advanceTo(long processed) {
+        if (processed > processedBytes) {
+            processedBytes = processed;
+            notifyListener();
+        }
+        checkCancelled();
+    }
+
+    /**
+     * @throws CancellationException If the token was cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Operation cancelled");
+        }
+    }
+
+    private void notifyListener() {
+        if (listener != null) {
+            listener.progressChanged(this);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.myzip.utils;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * SplitZipFile reads an archive written as numbered volumes by
+ * {@link SplitZipWriter} (archive.myzip.001, .002, ...) as if it were one
+ * zip file. The first volume starts with the volume directory, which gives
+ * the volume, number of parts and size of every entry; other volumes are
+ * opened only when an entry stored in them is read, so extracting a few
+ * entries needs only the volumes that hold them. An entry split across
+ * volumes reads back as one stream.
+ *
+ * Entries report their uncompressed size as their compressed size, since
+ * the directory is written before the volumes are.
+ */
+public class SplitZipFile extends ZipFile {
+
+    /** Name of the volume directory entry */
+    public static final String DIRECTORY_ENTRY = "volumes.dat";
+
+    private final File base;
+    private final Map<String, Location> directory;
+
+    // Volumes after the first, opened as entries in them are read
+    private final Map<Integer, ZipFile> openVolumes = new HashMap<>();
+
+    /**
+     * @param base Archive path without the volume number, such as archive.myzip
+     */
+    public SplitZipFile(File base) throws IOException {
+        super(volumeFile(base, 1));
+        this.base = base;
+        try {
+            this.directory = readDirectory();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * File of one volume
+     * @param volume Volume number, from 1
+     */
+    public static File volumeFile(File base, int volume) {
+        return new File(base.getPath() + String.format(".%03d", volume));
+    }
+
+    /**
+     * Base path of the split archive a path names, either the base itself
+     * (archive.myzip, when no such file exists but its first volume does)
+     * or the first volume (archive.myzip.001)
+     * @return The base path, or null if the path is not a split archive
+     */
+    public static File splitBase(File archiveFile) {
+        if (!archiveFile.isFile()) {
+            return volumeFile(archiveFile, 1).isFile() ? archiveFile : null;
+        }
+        String path = archiveFile.getPath();
+        if (!path.endsWith(".001")) {
+            return null;
+        }
+        try (ZipFile zipFile = new ZipFile(archiveFile)) {
+            return zipFile.getEntry(DIRECTORY_ENTRY) != null
+                ? new File(path.substring(0, path.length() - 4)) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Total size of the volumes of a split archive
+     */
+    public static long totalLength(File base) {
+        long length = 0;
+        for (int volume = 1; volumeFile(base, volume).isFile(); volume++) {
+            length += volumeFile(base, volume).length();
+        }
+        return length;
+    }
+
+    @Override
+    public ZipEntry getEntry(String name) {
+        Location location = directory.get(name);
+        return location == null ? null : toEntry(name, location);
+    }
+
+    @Override
+    public InputStream getInputStream(ZipEntry entry) throws IOException {
+        Location location = directory.get(entry.getName());
+        if (location == null) {
+            return null;
+        }
+        if (location.parts == 1) {
+            return openPart(location.volume, entry.getName());
+        }
+        return new PartsInputStream(entry.getName(), location);
+    }
+
+    @Override
+    public Enumeration<? extends ZipEntry> entries() {
+        List<ZipEntry> entries = new ArrayList<>(directory.size());
+        for (Map.Entry<String, Location> entry : directory.entrySet()) {
+            entries.add(toEntry(entry.getKey(), entry.getValue()));
+        }
+        return Collections.enumeration(entries);
+    }
+
+    @Override
+    public Stream<? extends ZipEntry> stream() {
+        return Collections.list(entries()).stream();
+    }
+
+    @Override
+    public int size() {
+        return directory.size();
+    }
+
+    /**
+     * Number of volumes opened so far, the first included
+     */
+    public int getOpenVolumeCount() {
+        synchronized (openVolumes) {
+            return 1 + openVolumes.size();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (openVolumes) {
+            for (ZipFile volume : openVolumes.values()) {
+                volume.close();
+            }
+            openVolumes.clear();
+        }
+        super.close();
+    }
+
+    private static ZipEntry toEntry(String name, Location location) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setSize(location.size);
+        entry.setCompressedSize(location.size);
+        return entry;
+    }
+
+    /**
+     * Read the directory, which starts the first volume and continues into
+     * as many of the following ones as the comment of its first part says
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Location> readDirectory() throws IOException {
+        ZipEntry first = super.getEntry(DIRECTORY_ENTRY);
+        if (first == null) {
+            throw new ZipException(getName() + " is not the first volume of a split archive");
+        }
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        try (InputStream is = super.getInputStream(first)) {
+            FileUtils.copyStream(is, data);
+        }
+        int parts;
+        try {
+            parts = Integer.parseInt(first.getComment());
+        } catch (NumberFormatException e) {
+            throw new ZipException("Volume directory of " + getName() + " has no part count");
+        }
+        for (int volume = 2; volume <= parts; volume++) {
+            try (InputStream is = openPart(volume, DIRECTORY_ENTRY)) {
+                FileUtils.copyStream(is, data);
+            }
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data.toByteArray()))) {
+            return (Map<String, Location>) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new ZipException("Unreadable volume directory in " + getName() + ": " + e);
+        }
+    }
+
+    private ZipFile volume(int volume) throws IOException {
+        synchronized (openVolumes) {
+            ZipFile zipFile = openVolumes.get(volume);
+            if (zipFile == null) {
+                File file = volumeFile(base, volume);
+                if (!file.isFile()) {
+                    throw new FileNotFoundException("Missing volume " + file);
+                }
+                zipFile = new ZipFile(file);
+                openVolumes.put(volume, zipFile);
+            }
+            return zipFile;
+        }
+    }
+
+    private InputStream openPart(int volume, String name) throws IOException {
+        if (volume == 1) {
+            ZipEntry part = super.getEntry(name);
+            if (part == null) {
+                throw new ZipException(getName() + " has no part of " + name);
+            }
+            return super.getInputStream(part);
+        }
+        ZipFile zipFile = volume(volume);
+        ZipEntry part = zipFile.getEntry(name);
+        if (part == null) {
+            throw new ZipException(zipFile.getName() + " has no part of " + name);
+        }
+        return zipFile.getInputStream(part);
+    }
+
+    /**
+     * Where an entry is stored: its parts are in consecutive volumes from
+     * the first, each under the entry's name
+     */
+    static final class Location implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        int volume;
+        int parts;
+        long size;
+    }
+
+    /**
+     * The parts of an entry read one after another, opening each volume
+     * only when the previous part is used up
+     */
+    private class PartsInputStream extends InputStream {
+        private final String name;
+        private final int lastVolume;
+        private int volume;
+        private InputStream current;
+
+        PartsInputStream(String name, Location location) throws IOException {
+            this.name = name;
+            this.volume = location.volume;
+            this.lastVolume = location.volume + location.parts - 1;
+            this.current = openPart(volume, name);
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (current != null) {
+                int b = current.read();
+                if (b >= 0) {
+                    return b;
+                }
+                nextPart();
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (current != null) {
+                int n = current.read(b, off, len);
+                if (n > 0) {
+                    return n;
+                }
+                nextPart();
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+
+        private void nextPart() throws IOException {
+            current.close();
+            current = volume < lastVolume ? openPart(++volume, name) : null;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.myzip.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * SplitZipWriter writes an archive as numbered volumes (archive.myzip.001,
+ * .002, ...), each a complete zip file no larger than the volume size, so
+ * an archive is not limited by the largest file its filesystem or medium
+ * takes. Entries are packed into volumes in the order they were added; one
+ * that does not fit in the space left is split into parts stored under its
+ * name at the end of one volume and the start of the next ones.
+ *
+ * Every volume is planned before any is written, so the volumes are then
+ * written concurrently, one task each in the common fork-join pool. The
+ * plan assumes the worst case of deflate for every entry, so volumes
+ * usually come out somewhat smaller than the volume size. The first
+ * volume starts with the volume directory read by {@link SplitZipFile};
+ * the comment of its first part is the number of volumes it spans.
+ */
+public class SplitZipWriter {
+
+    public static final long MIN_VOLUME_SIZE = 64 * 1024;
+
+    // End of central directory records of a volume, zip64 included
+    private static final int VOLUME_OVERHEAD = 128;
+
+    // Headers and data descriptor of an entry, besides its name
+    private static final int ENTRY_OVERHEAD = 160;
+
+    // A part smaller than this is not worth starting at the end of a volume
+    private static final int MIN_PART_SIZE = 4096;
+
+    private static final int TRANSFER_SIZE = 64 * 1024;
+
+    private final File base;
+    private final long volumeSize;
+    private final Map<String, ByteBuffer> entries = new LinkedHashMap<>();
+
+    // Volumes planned so far, and the space the plan uses in the last one
+    private final List<List<Part>> volumes = new ArrayList<>();
+    private long used;
+
+    // Number of volumes the directory takes, noted in its first part
+    private int directoryParts;
+
+    private long writtenBytes;
+
+    /**
+     * @param base Archive path without the volume number, such as archive.myzip
+     * @param volumeSize Largest volume size in bytes, at least {@link #MIN_VOLUME_SIZE}
+     */
+    public SplitZipWriter(File base, long volumeSize) {
+        if (volumeSize < MIN_VOLUME_SIZE) {
+            throw new IllegalArgumentException("Volume size must be at least " + MIN_VOLUME_SIZE + ": " + volumeSize);
+        }
+        this.base = base;
+        this.volumeSize = volumeSize;
+    }
+
+    /**
+     * Add an entry; entries are stored in the order they are added
+     * @param data Entry contents from its position to its limit; read only when the volumes are written
+     */
+    public void add(String name, ByteBuffer data) {
+        if (name.equals(SplitZipFile.DIRECTORY_ENTRY) || entries.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate entry: " + name);
+        }
+        entries.put(name, data.duplicate());
+    }
+
+    /**
+     * Plan and write the volumes, deleting any further volumes left by an
+     * earlier archive of the same name
+     * @param progress Token checked for cancellation between entries, or
+     *                 null; if it is cancelled no volume is left behind
+     * @return Number of volumes written
+     * @throws java.util.concurrent.CancellationException If the token was cancelled
+     */
+    public int write(ProgressToken progress) throws IOException {
+        // Locations are fixed-size, so the directory serializes to the same
+        // length before and after they are filled in
+        Map<String, SplitZipFile.Location> directory = new LinkedHashMap<>();
+        for (String name : entries.keySet()) {
+            directory.put(name, new SplitZipFile.Location());
+        }
+        byte[] directoryData = serialize(directory);
+
+        volumes.clear();
+        volumes.add(new ArrayList<>());
+        used = VOLUME_OVERHEAD;
+        directoryParts = place(SplitZipFile.DIRECTORY_ENTRY, ByteBuffer.wrap(directoryData)).parts;
+        for (Map.Entry<String, ByteBuffer> entry : entries.entrySet()) {
+            directory.put(entry.getKey(), place(entry.getKey(), entry.getValue()));
+        }
+
+        // The directory parts are views of this array
+        byte[] filled = serialize(directory);
+        if (filled.length != directoryData.length) {
+            throw new IllegalStateException("Volume directory changed size from " + directoryData.length
+                + " to " + filled.length + " bytes");
+        }
+        System.arraycopy(filled, 0, directoryData, 0, filled.length);
+
+        List<Future<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < volumes.size(); i++) {
+            int volume = i + 1;
+            List<Part> parts = volumes.get(i);
+            tasks.add(ForkJoinPool.commonPool().submit(() -> writeVolume(volume, parts, progress)));
+        }
+        // Every task is waited for, so a failure never leaves one writing
+        writtenBytes = 0;
+        Throwable failure = null;
+        for (Future<Long> task : tasks) {
+            try {
+                writtenBytes += task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new InterruptedIOException("Interrupted while writing volumes");
+                }
+            }
+        }
+        if (failure != null) {
+            deleteVolumes(1);
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw new IOException("Writing volumes failed", failure);
+        }
+
+        if (progress != null && progress.isCancelled()) {
+            deleteVolumes(1); // incomplete
+            progress.checkCancelled();
+        }
+        deleteVolumes(volumes.size() + 1);
+        return volumes.size();
+    }
+
+    /**
+     * Bytes written to all volumes by the last {@link #write(ProgressToken)}
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * Place an entry after the ones planned so far, in parts if it does not
+     * fit in the space left
+     */
+    private SplitZipFile.Location place(String name, ByteBuffer data) {
+        SplitZipFile.Location location = new SplitZipFile.Location();
+        location.size = data.remaining();
+        long overhead = ENTRY_OVERHEAD + 2L * name.getBytes(StandardCharsets.UTF_8).length;
+        ByteBuffer rest = data.duplicate();
+        while (true) {
+            List<Part> current = volumes.get(volumes.size() - 1);
+            long room = volumeSize - used - overhead;
+            long fit = room - (deflateBound(room) - room);
+            int length;
+            if (fit >= rest.remaining()) {
+                length = rest.remaining();
+            } else if (fit >= MIN_PART_SIZE || (current.isEmpty() && fit > 0)) {
+                length = (int) fit;
+            } else if (current.isEmpty()) {
+                throw new IllegalArgumentException("Entry name too long for volumes of " + volumeSize + " bytes: " + name);
+            } else {
+                nextVolume();
+                continue;
+            }
+
+            ByteBuffer part = rest.duplicate();
+            part.limit(part.position() + length);
+            rest.position(rest.position() + length);
+            current.add(new Part(name, part.slice()));
+            used += overhead + deflateBound(length);
+            if (location.parts++ == 0) {
+                location.volume = volumes.size();
+            }
+            if (!rest.hasRemaining()) {
+                return location;
+            }
+            nextVolume();
+        }
+    }
+
+    private void nextVolume() {
+        volumes.add(new ArrayList<>());
+        used = VOLUME_OVERHEAD;
+    }
+
+    /**
+     * Largest size deflate can turn length bytes into, as zlib's deflateBound
+     */
+    private static long deflateBound(long length) {
+        return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+    }
+
+    private long writeVolume(int volume, List<Part> parts, ProgressToken progress) throws IOException {
+        File file = SplitZipFile.volumeFile(base, volume);
+        byte[] transfer = null;
+        try (ZipOutputStream zos = new ZipOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), TRANSFER_SIZE))) {
+            for (Part part : parts) {
+                if (progress != null && progress.isCancelled()) {
+                    break;
+                }
+                ZipEntry entry = new ZipEntry(part.name);
+                if (volume == 1 && part.name.equals(SplitZipFile.DIRECTORY_ENTRY)) {
+                    entry.setComment(String.valueOf(directoryParts));
+                }
+                zos.putNextEntry(entry);
+                ByteBuffer data = part.data.duplicate();
+                if (data.hasArray()) {
+                    zos.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+                } else {
+                    // Off-heap data passes through the heap a slice at a time
+                    if (transfer == null) {
+                        transfer = new byte[TRANSFER_SIZE];
+                    }
+                    while (data.hasRemaining()) {
+                        int length = Math.min(transfer.length, data.remaining());
+                        data.get(transfer, 0, length);
+                        zos.write(transfer, 0, length);
+                    }
+                }
+                zos.closeEntry();
+            }
+        }
+        return file.length();
+    }
+
+    /**
+     * Delete the planned volumes from a number on, and any stale ones after them
+     */
+    private void deleteVolumes(int from) {
+        for (int volume = from; volume <= volumes.size() || SplitZipFile.volumeFile(base, volume).isFile(); volume++) {
+            SplitZipFile.volumeFile(base, volume).delete();
+        }
+    }
+
+    private static byte[] serialize(Map<String, SplitZipFile.Location> directory) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(directory);
+        }
+        return baos.toByteArray();
+    }
+
+    private static class Part {
+        private final String name;
+        private final ByteBuffer data;
+
+        Part(String name, ByteBuffer data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+}
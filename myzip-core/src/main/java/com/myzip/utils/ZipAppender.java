@@ -0,0 +1,346 @@
+package com.myzip.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * ZipAppender updates an existing zip file in place.
+ * Local entries that are kept are never read or rewritten: only their
+ * central directory records are copied. New entries are written after the
+ * old end record, followed by a fresh central directory, so the old
+ * directory describes the archive until {@link #commit()} has made the new
+ * end record durable. Closing without a commit cuts the new entries off
+ * again, and a tail left by an update that never committed, such as one
+ * interrupted by a crash, is cut off by the next appender opened on the
+ * file. Entries left out of the new directory, and the old directory
+ * itself, become dead space until the archive is compacted.
+ */
+public class ZipAppender implements Closeable {
+
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int END_HEADER_SIZE = 22;
+    private static final int CEN_HEADER_SIZE = 46;
+    private static final int LOC_HEADER_SIZE = 30;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int METHOD_DEFLATED = 8;
+    private static final long MAX_ZIP32 = 0xFFFFFFFFL;
+
+    private static final int SCAN_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+
+    // Central directory records by entry name (insertion ordered)
+    private final Map<String, byte[]> records = new LinkedHashMap<>();
+    private long writePosition;
+
+    // End of the last committed end record, where new entries start
+    private long committedLength;
+    private boolean committed;
+
+    public ZipAppender(File zipFile) throws IOException {
+        this.channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            readCentralDirectory();
+            if (channel.size() > committedLength) {
+                // Left by an update that never committed
+                channel.truncate(committedLength);
+                channel.force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Cut off the tail an update that never committed left after the last
+     * end record of a zip file, so other readers find that record again
+     */
+    public static void recover(File zipFile) throws IOException {
+        new ZipAppender(zipFile).close();
+    }
+
+    /**
+     * Names of all entries in the current central directory
+     */
+    public Set<String> getEntryNames() {
+        return Collections.unmodifiableSet(records.keySet());
+    }
+
+    /**
+     * Drop an entry from the central directory (its bytes stay in the file)
+     */
+    public void remove(String name) {
+        records.remove(name);
+    }
+
+    /**
+     * Write a new deflated entry, replacing any existing entry with that name
+     */
+    public void putEntry(String name, byte[] data) throws IOException {
+        if (committed) {
+            throw new IllegalStateException("Update already committed");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        byte[] deflated = deflate(data);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int dosTime = toDosTime(System.currentTimeMillis());
+        long localOffset = writePosition;
+
+        if (localOffset + LOC_HEADER_SIZE + nameBytes.length + deflated.length > MAX_ZIP32) {
+            throw new IOException("Archive too large to update in place; compact it first");
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(LOC_HEADER_SIZE + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOC_SIG);
+        header.putShort((short) 20);             // version needed
+        header.putShort((short) UTF8_FLAG);
+        header.putShort((short) METHOD_DEFLATED);
+        header.putInt(dosTime);
+        header.putInt((int) crc.getValue());
+        header.putInt(deflated.length);
+        header.putInt(data.length);
+        header.putShort((short) nameBytes.length);
+        header.putShort((short) 0);              // extra length
+        header.put(nameBytes);
+        header.flip();
+        writeFully(header);
+        writeFully(ByteBuffer.wrap(deflated));
+
+        ByteBuffer record = ByteBuffer.allocate(CEN_HEADER_SIZE + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(CEN_SIG);
+        record.putShort((short) 20);             // version made by
+        record.putShort((short) 20);             // version needed
+        record.putShort((short) UTF8_FLAG);
+        record.putShort((short) METHOD_DEFLATED);
+        record.putInt(dosTime);
+        record.putInt((int) crc.getValue());
+        record.putInt(deflated.length);
+        record.putInt(data.length);
+        record.putShort((short) nameBytes.length);
+        record.putShort((short) 0);              // extra length
+        record.putShort((short) 0);              // comment length
+        record.putShort((short) 0);              // disk number
+        record.putShort((short) 0);              // internal attributes
+        record.putInt(0);                        // external attributes
+        record.putInt((int) localOffset);
+        record.put(nameBytes);
+
+        records.remove(name);
+        records.put(name, record.array());
+    }
+
+    /**
+     * Write the new central directory and end record and force them to
+     * disk; until this returns the file still reads as it did before
+     */
+    public void commit() throws IOException {
+        if (committed) {
+            throw new IllegalStateException("Update already committed");
+        }
+        long directoryOffset = writePosition;
+        if (records.size() > 0xFFFF || directoryOffset > MAX_ZIP32) {
+            throw new IOException("Archive too large to update in place; compact it first");
+        }
+        long directorySize = 0;
+        for (byte[] record : records.values()) {
+            writeFully(ByteBuffer.wrap(record));
+            directorySize += record.length;
+        }
+        if (directoryOffset + directorySize > MAX_ZIP32) {
+            throw new IOException("Archive too large to update in place; compact it first");
+        }
+
+        ByteBuffer end = ByteBuffer.allocate(END_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(END_SIG);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) records.size());
+        end.putShort((short) records.size());
+        end.putInt((int) directorySize);
+        end.putInt((int) directoryOffset);
+        end.putShort((short) 0);
+        end.flip();
+        writeFully(end);
+        channel.force(true);
+
+        committed = true;
+        committedLength = writePosition;
+        if (channel.size() > committedLength) {
+            channel.truncate(committedLength);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Close the file, first cutting off everything written since the last
+     * commit if {@link #commit()} was not called or failed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!committed && channel.size() > committedLength) {
+                channel.truncate(committedLength);
+                channel.force(true);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Locate the last valid end record and load every central directory record
+     */
+    private void readCentralDirectory() throws IOException {
+        long endPos = findEndRecord();
+        if (endPos < 0) {
+            throw new IOException("Not a valid archive: end of central directory not found");
+        }
+        ByteBuffer end = ByteBuffer.allocate(END_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(end, endPos);
+
+        int entryCount = end.getShort(10) & 0xFFFF;
+        long directorySize = end.getInt(12) & MAX_ZIP32;
+        long directoryOffset = end.getInt(16) & MAX_ZIP32;
+        if (entryCount == 0xFFFF || directorySize == MAX_ZIP32 || directoryOffset == MAX_ZIP32) {
+            throw new IOException("ZIP64 archives cannot be updated in place; compact it first");
+        }
+
+        ByteBuffer directory = ByteBuffer.allocate((int) directorySize).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(directory, directoryOffset);
+
+        int pos = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (directory.getInt(pos) != CEN_SIG) {
+                throw new IOException("Corrupt central directory at entry " + i);
+            }
+            int nameLength = directory.getShort(pos + 28) & 0xFFFF;
+            int extraLength = directory.getShort(pos + 30) & 0xFFFF;
+            int commentLength = directory.getShort(pos + 32) & 0xFFFF;
+            int recordLength = CEN_HEADER_SIZE + nameLength + extraLength + commentLength;
+
+            byte[] record = new byte[recordLength];
+            directory.position(pos);
+            directory.get(record);
+            String name = new String(record, CEN_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+            records.put(name, record);
+            pos += recordLength;
+        }
+
+        // New entries go after the end record and its comment
+        committedLength = endPos + END_HEADER_SIZE + (end.getShort(20) & 0xFFFF);
+        writePosition = committedLength;
+    }
+
+    /**
+     * Position of the last end record whose central directory ends right
+     * before it. It is normally at the end of the file; the file is
+     * searched further back only after an update that never committed.
+     * @return The position, or -1 if there is none
+     */
+    private long findEndRecord() throws IOException {
+        long fileSize = channel.size();
+        long limit = fileSize;
+        while (limit >= END_HEADER_SIZE) {
+            int windowSize = (int) Math.min(limit, SCAN_SIZE + END_HEADER_SIZE);
+            long windowStart = limit - windowSize;
+            ByteBuffer window = ByteBuffer.allocate(windowSize).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(window, windowStart);
+            for (int i = windowSize - END_HEADER_SIZE; i >= 0; i--) {
+                if (window.getInt(i) == END_SIG && isEndRecord(window, i, windowStart + i, fileSize)) {
+                    return windowStart + i;
+                }
+            }
+            if (windowStart == 0) {
+                return -1;
+            }
+            // Windows overlap by a header so no record straddles two
+            limit = windowStart + END_HEADER_SIZE - 1;
+        }
+        return -1;
+    }
+
+    private boolean isEndRecord(ByteBuffer window, int i, long endPos, long fileSize) throws IOException {
+        int entryCount = window.getShort(i + 10) & 0xFFFF;
+        long directorySize = window.getInt(i + 12) & MAX_ZIP32;
+        long directoryOffset = window.getInt(i + 16) & MAX_ZIP32;
+        int commentLength = window.getShort(i + 20) & 0xFFFF;
+        if (endPos + END_HEADER_SIZE + commentLength > fileSize) {
+            return false;
+        }
+        if (entryCount == 0xFFFF || directorySize == MAX_ZIP32 || directoryOffset == MAX_ZIP32) {
+            return true; // ZIP64, rejected by the caller
+        }
+        if (directoryOffset + directorySize != endPos) {
+            return false;
+        }
+        if (entryCount == 0) {
+            return directorySize == 0;
+        }
+        ByteBuffer signature = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(signature, directoryOffset);
+        return signature.getInt(0) == CEN_SIG;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                baos.write(buffer, 0, n);
+            }
+            return baos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Convert a Java timestamp to MS-DOS date/time format
+     */
+    private static int toDosTime(long millis) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(millis);
+        int year = cal.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25
+            | (cal.get(Calendar.MONTH) + 1) << 21
+            | cal.get(Calendar.DAY_OF_MONTH) << 16
+            | cal.get(Calendar.HOUR_OF_DAY) << 11
+            | cal.get(Calendar.MINUTE) << 5
+            | cal.get(Calendar.SECOND) >> 1;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+            position += n;
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,266 @@
+package com.myzip.gui;
+
+import com.myzip.utils.Metadata;
+
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * ArchiveTableModel shows the entries of an archive straight from its index
+ * (the metadata list), without decompressing anything. No row objects are
+ * built: cells are formatted from the entry's metadata when the table asks
+ * for them, so only the visible rows cost anything.
+ *
+ * Sorting and filtering build a new view (an array of entry indices) on a
+ * background thread and swap it in on the EDT when done; a request that is
+ * overtaken by a newer one is discarded.
+ */
+public class ArchiveTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int COLUMN_NAME = 0;
+    public static final int COLUMN_SIZE = 1;
+    public static final int COLUMN_COMPRESSED = 2;
+    public static final int COLUMN_TYPE = 3;
+    public static final int COLUMN_MODIFIED = 4;
+
+    private static final String[] COLUMNS = {"Name", "Size", "Compressed", "Type", "Modified"};
+
+    private final LongFunction<String> sizeFormat;
+    private final Function<String, String> typeOf;
+
+    private List<Metadata> entries = new ArrayList<>();
+    private long totalOriginalSize;
+
+    // Entry index for each visible row, or null when all entries show in archive order
+    private int[] view;
+
+    private String filter = "";
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private int generation;
+
+    /**
+     * @param sizeFormat Formats a byte count for display
+     * @param typeOf Gives the type description shown for a file name
+     */
+    public ArchiveTableModel(LongFunction<String> sizeFormat, Function<String, String> typeOf) {
+        this.sizeFormat = sizeFormat;
+        this.typeOf = typeOf;
+    }
+
+    /**
+     * Replace the entries shown, keeping the current sort and filter.
+     * Must be called on the EDT.
+     */
+    public void setEntries(List<Metadata> entries) {
+        this.entries = entries;
+        long total = 0;
+        for (Metadata metadata : entries) {
+            total += metadata.getOriginalSize();
+        }
+        this.totalOriginalSize = total;
+        this.view = null;
+        generation++;
+        fireTableDataChanged();
+        if (!filter.isEmpty() || sortColumn >= 0) {
+            rebuildView();
+        }
+    }
+
+    public void clear() {
+        setEntries(new ArrayList<>());
+    }
+
+    /**
+     * Number of entries in the archive, whether or not they pass the filter
+     */
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Uncompressed size of all entries, from the metadata
+     */
+    public long getTotalOriginalSize() {
+        return totalOriginalSize;
+    }
+
+    /**
+     * Entry shown at a row of the model
+     */
+    public Metadata getEntry(int row) {
+        return entries.get(view == null ? row : view[row]);
+    }
+
+    // ==================== Sorting and filtering ====================
+
+    /**
+     * Show only entries whose path contains the text, ignoring case
+     */
+    public void setFilter(String filter) {
+        String normalized = filter == null ? "" : filter.trim().toLowerCase(Locale.ROOT);
+        if (!normalized.equals(this.filter)) {
+            this.filter = normalized;
+            rebuildView();
+        }
+    }
+
+    /**
+     * Sort by a column; sorting by the current column again reverses the order
+     */
+    public void sortBy(int column) {
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = true;
+        }
+        rebuildView();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    private void rebuildView() {
+        int requested = ++generation;
+        List<Metadata> source = entries;
+        String filterText = filter;
+        int column = sortColumn;
+        boolean order = ascending;
+
+        new SwingWorker<int[], Void>() {
+            @Override
+            protected int[] doInBackground() {
+                return buildView(source, filterText, column, order);
+            }
+
+            @Override
+            protected void done() {
+                if (requested != generation) {
+                    return; // overtaken by a newer request
+                }
+                try {
+                    view = get();
+                    fireTableDataChanged();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    private int[] buildView(List<Metadata> source, String filterText, int column, boolean order) {
+        int[] rows = new int[source.size()];
+        int count = 0;
+        for (int i = 0; i < source.size(); i++) {
+            if (filterText.isEmpty()
+                    || source.get(i).getRelativePath().toLowerCase(Locale.ROOT).contains(filterText)) {
+                rows[count++] = i;
+            }
+        }
+        if (column < 0) {
+            return Arrays.copyOf(rows, count);
+        }
+
+        Integer[] boxed = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            boxed[i] = rows[i];
+        }
+        Comparator<Integer> comparator;
+        switch (column) {
+            case COLUMN_SIZE:
+                comparator = Comparator.comparingLong(i -> source.get(i).getOriginalSize());
+                break;
+            case COLUMN_COMPRESSED:
+                comparator = Comparator.comparingLong(i -> source.get(i).getCompressedSize());
+                break;
+            case COLUMN_MODIFIED:
+                comparator = Comparator.comparingLong(i -> source.get(i).getTimestamp());
+                break;
+            case COLUMN_TYPE: {
+                // Type names are worked out once per entry rather than once per comparison
+                String[] keys = new String[source.size()];
+                for (int i = 0; i < count; i++) {
+                    keys[rows[i]] = typeOf(source.get(rows[i]));
+                }
+                comparator = Comparator.comparing(i -> keys[i]);
+                break;
+            }
+            default:
+                comparator = Comparator.comparing(i -> source.get(i).getRelativePath(), String.CASE_INSENSITIVE_ORDER);
+                break;
+        }
+        Arrays.sort(boxed, order ? comparator : comparator.reversed());
+
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = boxed[i];
+        }
+        return sorted;
+    }
+
+    // ==================== TableModel ====================
+
+    @Override
+    public int getRowCount() {
+        return view == null ? entries.size() : view.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column != sortColumn) {
+            return COLUMNS[column];
+        }
+        return COLUMNS[column] + (ascending ? " ▲" : " ▼");
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Metadata metadata = getEntry(row);
+        switch (column) {
+            case COLUMN_NAME:
+                return metadata.getRelativePath();
+            case COLUMN_SIZE:
+                return sizeFormat.apply(metadata.getOriginalSize());
+            case COLUMN_COMPRESSED:
+                if (metadata.isDuplicate()) {
+                    return "duplicate";
+                }
+                return metadata.getExternalArchive() != null ? "linked" : sizeFormat.apply(metadata.getCompressedSize());
+            case COLUMN_TYPE:
+                return typeOf(metadata);
+            case COLUMN_MODIFIED:
+                return metadata.getTimestamp() > 0 ? String.format("%tF %<tR", metadata.getTimestamp()) : "-";
+            default:
+                return null;
+        }
+    }
+
+    private String typeOf(Metadata metadata) {
+        String name = metadata.getOriginalName();
+        return typeOf.apply(name != null ? name : metadata.getRelativePath());
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+}
@@ -11,6 +11,12 @@ import java.io.*;
 import java.util.*;
 import java.util.List;
 import com.myzip.core.ArchiveManager;
+import com.myzip.core.DirectoryScanner;
+import com.myzip.core.EntryFilter;
+import com.myzip.utils.Metadata;
+import com.myzip.utils.ProgressToken;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import com.formdev.flatlaf.*;
 
 /**
@@ -18,11 +24,13 @@ import com.formdev.flatlaf.*;
  * Enhanced with drag-and-drop, cancelable operations, and improved feedback
  */
 public class CompressionGUI extends JFrame {
+    private static final long serialVersionUID = 1L;
 
     // UI Components
     private JTable fileTable;
-    private DefaultTableModel tableModel;
+    private ArchiveTableModel tableModel;
     private JTextField addressBar;
+    private JTextField filterField;
     private JLabel statusLabel;
     private JLabel sizeLabel;
     private JProgressBar progressBar;
@@ -38,11 +46,14 @@ public class CompressionGUI extends JFrame {
 
     // State
     private File currentArchive = null;
-    private List<ArchiveManager.RestoredFile> currentFiles = new ArrayList<>();
 
     // Cancelable operation support
     private volatile boolean operationCancelled = false;
     private SwingWorker<?, ?> currentWorker = null;
+    private volatile ProgressToken currentProgress = null;
+
+    // How much of an entry the viewer decompresses
+    private static final int PREVIEW_BYTES = 64 * 1024;
 
     public CompressionGUI() {
         setTitle("MyZip - File Compression Utility");
@@ -266,7 +277,20 @@ public class CompressionGUI extends JFrame {
         showLog.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L, InputEvent.CTRL_DOWN_MASK));
         showLog.addActionListener(e -> showLogWindow());
 
+        JMenuItem addFiles = new JMenuItem("Add Files...", KeyEvent.VK_D);
+        addFiles.addActionListener(e -> addFilesToArchive());
+
+        JMenuItem deleteFiles = new JMenuItem("Delete Selected", KeyEvent.VK_T);
+        deleteFiles.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0));
+        deleteFiles.addActionListener(e -> deleteSelectedFiles());
+
+        JMenuItem compact = new JMenuItem("Compact Archive", KeyEvent.VK_M);
+        compact.addActionListener(e -> compactArchive());
+
         actionsMenu.add(extractAll);
+        actionsMenu.add(addFiles);
+        actionsMenu.add(deleteFiles);
+        actionsMenu.add(compact);
         actionsMenu.addSeparator();
         actionsMenu.add(showLog);
         menuBar.add(actionsMenu);
@@ -385,21 +409,50 @@ public class CompressionGUI extends JFrame {
         });
 
         browseBtn.addActionListener(e -> openArchive());
-        panel.add(browseBtn, BorderLayout.EAST);
+
+        // Filter box; the view is rebuilt once typing pauses
+        filterField = new JTextField(14);
+        filterField.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        filterField.setToolTipText("Show only entries whose path contains this text");
+        filterField.putClientProperty("JTextField.placeholderText", "Filter");
+        filterField.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(220, 225, 235), 1),
+            new EmptyBorder(6, 10, 6, 10)
+        ));
+        javax.swing.Timer filterTimer = new javax.swing.Timer(200, e -> tableModel.setFilter(filterField.getText()));
+        filterTimer.setRepeats(false);
+        filterField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                filterTimer.restart();
+            }
+        });
+
+        JPanel eastPanel = new JPanel(new BorderLayout(8, 0));
+        eastPanel.setOpaque(false);
+        eastPanel.add(filterField, BorderLayout.CENTER);
+        eastPanel.add(browseBtn, BorderLayout.EAST);
+        panel.add(eastPanel, BorderLayout.EAST);
 
         return panel;
     }
 
     private JScrollPane createFileTable() {
-        String[] columns = {"Name", "Size", "Compressed", "Type", "Modified"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Rows come straight from the archive index, formatted only when painted
+        tableModel = new ArchiveTableModel(this::formatBytes, this::getFileType);
 
         fileTable = new JTable(tableModel);
+        fileTable.setAutoCreateColumnsFromModel(false);
         fileTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         fileTable.setRowHeight(28);
         fileTable.setShowGrid(false);
@@ -415,6 +468,22 @@ public class CompressionGUI extends JFrame {
         header.setPreferredSize(new Dimension(header.getWidth(), 32));
         header.setBorder(BorderFactory.createMatteBorder(0, 0, 2, 0, new Color(220, 225, 235)));
 
+        // Click a header to sort by it (again to reverse); sorting runs in the background
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = header.columnAtPoint(e.getPoint());
+                if (column < 0) {
+                    return;
+                }
+                tableModel.sortBy(fileTable.convertColumnIndexToModel(column));
+                for (int i = 0; i < tableModel.getColumnCount(); i++) {
+                    fileTable.getColumnModel().getColumn(i).setHeaderValue(tableModel.getColumnName(i));
+                }
+                header.repaint();
+            }
+        });
+
         // Column widths
         fileTable.getColumnModel().getColumn(0).setPreferredWidth(300);
         fileTable.getColumnModel().getColumn(1).setPreferredWidth(80);
@@ -697,8 +766,7 @@ public class CompressionGUI extends JFrame {
     private void loadArchive(File archive) {
         currentArchive = archive;
         addressBar.setText(archive.getAbsolutePath());
-        tableModel.setRowCount(0);
-        currentFiles.clear();
+        tableModel.clear();
 
         SwingWorker<Void, String> worker = new SwingWorker<Void, String>() {
             @Override
@@ -709,28 +777,15 @@ public class CompressionGUI extends JFrame {
                 publish("INFO:Opening: " + archive.getName() + "\n");
 
                 try {
+                    // Only the index is read; payloads are decompressed when viewed or extracted
                     ArchiveManager manager = new ArchiveManager();
-                    ArchiveManager.DecompressionResult result = manager.extractArchive(archive);
-                    currentFiles = result.getRestoredFiles();
-
-                    publish("INFO:Found " + currentFiles.size() + " files in archive\n");
+                    List<Metadata> entries = manager.listArchive(archive);
 
-                    long totalSize = 0;
-                    for (ArchiveManager.RestoredFile file : currentFiles) {
-                        totalSize += file.getData().length;
-                    }
+                    publish("INFO:Found " + entries.size() + " files in archive\n");
 
-                    final long finalTotal = totalSize;
                     SwingUtilities.invokeLater(() -> {
-                        for (ArchiveManager.RestoredFile file : currentFiles) {
-                            String name = file.getPath();
-                            String size = formatBytes(file.getData().length);
-                            String compressed = "-";
-                            String type = getFileType(name);
-                            String modified = "-";
-                            tableModel.addRow(new Object[]{name, size, compressed, type, modified});
-                        }
-                        sizeLabel.setText(currentFiles.size() + " files | " + formatBytes(finalTotal));
+                        tableModel.setEntries(entries);
+                        sizeLabel.setText(entries.size() + " files | " + formatBytes(tableModel.getTotalOriginalSize()));
                     });
 
                     publish("SUCCESS:Archive loaded successfully\n");
@@ -761,8 +816,7 @@ public class CompressionGUI extends JFrame {
 
     private void closeArchive() {
         currentArchive = null;
-        currentFiles.clear();
-        tableModel.setRowCount(0);
+        tableModel.clear();
         addressBar.setText("No archive open - Drag & drop files to compress, or use 'Compress' button");
         sizeLabel.setText("0 files | 0 B");
         logInfo("Archive closed\n");
@@ -809,8 +863,9 @@ public class CompressionGUI extends JFrame {
             "Compressing Files",
             () -> {
                 operationCancelled = true;
-                if (currentWorker != null && !currentWorker.isDone()) {
-                    currentWorker.cancel(true);
+                ProgressToken progress = currentProgress;
+                if (progress != null) {
+                    progress.cancel();
                 }
             }
         );
@@ -822,52 +877,39 @@ public class CompressionGUI extends JFrame {
 
                 if (operationCancelled) return null;
 
-                progressDialog.setStatus("Collecting files...");
+                progressDialog.setStatus("Scanning and compressing...");
                 progressDialog.setProgress(0);
                 publish("INFO:Starting compression...\n");
 
-                List<ArchiveManager.FileEntry> fileEntries = new ArrayList<>();
-                for (File file : selectedFiles) {
-                    if (operationCancelled) {
-                        publish("WARNING:Compression cancelled by user\n");
-                        return null;
-                    }
-                    collectFiles(file, file.getParentFile(), fileEntries);
-                }
-
-                if (operationCancelled) return null;
-
-                progressDialog.setStatus("Compressing " + fileEntries.size() + " files...");
-                progressDialog.setProgress(30);
-                publish("INFO:Processing " + fileEntries.size() + " files...\n");
-
-                // Compress with per-file progress updates
+                // Progress comes from the archive manager as it works through the data
                 ArchiveManager manager = new ArchiveManager();
-
-                // Update progress per file
-                int totalFiles = fileEntries.size();
-
-                for (int i = 0; i < fileEntries.size(); i++) {
-                    if (operationCancelled) {
-                        publish("WARNING:Compression cancelled by user\n");
-                        return null;
+                ProgressToken progress = createProgressToken(progressDialog, "Compressing", 0, 100);
+                currentProgress = progress;
+
+                // Files are compressed as the scanner finds them; the total is known once the scan ends
+                DirectoryScanner scanner = new DirectoryScanner(selectedFiles);
+                scanner.setListener(new DirectoryScanner.ScanListener() {
+                    @Override
+                    public void scanFailed(java.nio.file.Path path, IOException e) {
+                        publish("WARNING:Skipping " + path + ": " + e.getMessage() + "\n");
                     }
 
-                    ArchiveManager.FileEntry entry = fileEntries.get(i);
-                    progressDialog.setDetail("Compressing: " + entry.getFileName());
-
-                    int progress = 30 + (i * 60 / totalFiles);
-                    progressDialog.setProgress(progress);
-
-                    // Small delay to make progress visible (optional)
-                    if (i % 5 == 0) {
-                        Thread.sleep(10);
+                    @Override
+                    public void scanCompleted(long fileCount, long totalBytes) {
+                        progress.setTotalBytes(totalBytes);
+                        progressDialog.setStatus("Compressing " + fileCount + " files...");
+                        publish("INFO:Processing " + fileCount + " files...\n");
                     }
-                }
+                });
 
-                if (operationCancelled) return null;
-
-                ArchiveManager.CompressionResult result = manager.createArchive(fileEntries, outputFile);
+                ArchiveManager.CompressionResult result;
+                try {
+                    result = manager.createArchive(scanner, outputFile, progress);
+                } catch (CancellationException e) {
+                    // createArchive has already stopped the scanner
+                    publish("WARNING:Compression cancelled by user\n");
+                    return null;
+                }
 
                 progressDialog.setProgress(100);
                 progressDialog.setStatus("Compression Complete!");
@@ -888,7 +930,7 @@ public class CompressionGUI extends JFrame {
                 try {
                     ArchiveManager.CompressionResult result = get();
 
-                    if (result != null && !operationCancelled) {
+                    if (result != null) {
                         logSuccess("\n=== Compression Complete ===\n");
                         logInfo("Original Size: " + formatBytes(result.getOriginalSize()) + "\n");
                         logInfo("Compressed Size: " + formatBytes(result.getCompressedSize()) + "\n");
@@ -902,15 +944,15 @@ public class CompressionGUI extends JFrame {
                         timer.start();
                     }
                 } catch (Exception e) {
-                    if (!operationCancelled) {
-                        logError("Compression failed: " + e.getMessage() + "\n");
-                        e.printStackTrace();
-                    }
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    logError("Compression failed: " + cause.getMessage() + "\n");
+                    cause.printStackTrace();
                 } finally {
                     progressDialog.dispose();
                     setButtonsEnabled(true);
                     updateStatus("Ready");
                     currentWorker = null;
+                    currentProgress = null;
                 }
             }
         };
@@ -942,10 +984,20 @@ public class CompressionGUI extends JFrame {
             currentArchive = chooser.getSelectedFile();
         }
 
+        // With rows selected, only those entries are extracted
+        EntryFilter filter = null;
+        int[] rows = fileTable.getSelectedRows();
+        if (rows.length > 0) {
+            filter = new EntryFilter();
+            for (int row : rows) {
+                filter.addPath(tableModel.getEntry(fileTable.convertRowIndexToModel(row)).getRelativePath());
+            }
+        }
+
         JFileChooser dirChooser = new JFileChooser();
         dirChooser.setCurrentDirectory(new File(System.getProperty("user.home")));
         dirChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
-        dirChooser.setDialogTitle("Extract to...");
+        dirChooser.setDialogTitle(rows.length > 0 ? "Extract " + rows.length + " selected file(s) to..." : "Extract to...");
         dirChooser.setApproveButtonText("Extract Here");
 
         if (dirChooser.showDialog(this, "Select Folder") == JFileChooser.APPROVE_OPTION) {
@@ -959,14 +1011,15 @@ public class CompressionGUI extends JFrame {
                 return;
             }
 
-            performExtraction(currentArchive, outputDir);
+            performExtraction(currentArchive, outputDir, filter);
         }
     }
 
     /**
      * Perform extraction with enhanced progress and cancellation
+     * @param filter Entries to extract, or null for all
      */
-    private void performExtraction(File archiveFile, File outputDir) {
+    private void performExtraction(File archiveFile, File outputDir, EntryFilter filter) {
         operationCancelled = false;
 
         // Create enhanced progress dialog with cancel button
@@ -975,8 +1028,9 @@ public class CompressionGUI extends JFrame {
             "Extracting Files",
             () -> {
                 operationCancelled = true;
-                if (currentWorker != null && !currentWorker.isDone()) {
-                    currentWorker.cancel(true);
+                ProgressToken progress = currentProgress;
+                if (progress != null) {
+                    progress.cancel();
                 }
             }
         );
@@ -993,51 +1047,27 @@ public class CompressionGUI extends JFrame {
 
                 if (operationCancelled) return null;
 
+                // Entries are decoded straight into their files
+                progressDialog.setStatus("Extracting files...");
                 ArchiveManager manager = new ArchiveManager();
-                ArchiveManager.DecompressionResult result = manager.extractArchive(archiveFile);
-
-                if (operationCancelled) {
+                currentProgress = createProgressToken(progressDialog, "Extracting", 0, 100);
+                ArchiveManager.DecompressionResult result;
+                try {
+                    result = manager.extractTo(archiveFile, outputDir, filter, currentProgress);
+                } catch (CancellationException e) {
                     publish("WARNING:Extraction cancelled by user\n");
                     return null;
                 }
 
-                progressDialog.setStatus("Extracting " + result.getRestoredFiles().size() + " files...");
-                progressDialog.setProgress(10);
-                publish("INFO:Extracting " + result.getRestoredFiles().size() + " files...\n");
-
                 int verified = 0;
-                int current = 0;
                 int total = result.getRestoredFiles().size();
-
                 for (ArchiveManager.RestoredFile file : result.getRestoredFiles()) {
-                    if (operationCancelled) {
-                        publish("WARNING:Extraction cancelled by user\n");
-                        return null;
-                    }
-
-                    File outputFile = new File(outputDir, file.getPath());
-                    outputFile.getParentFile().mkdirs();
-
-                    try (FileOutputStream fos = new FileOutputStream(outputFile)) {
-                        fos.write(file.getData());
-                    }
-
-                    current++;
-                    int progress = 10 + (current * 85 / total);
-                    progressDialog.setProgress(progress);
-                    progressDialog.setDetail("Extracting: " + file.getPath());
-
                     if (file.isVerified()) {
                         verified++;
                         publish("SUCCESS:" + file.getPath() + "\n");
                     } else {
                         publish("WARNING:" + file.getPath() + " (verification failed)\n");
                     }
-
-                    // Small delay for visibility
-                    if (current % 3 == 0) {
-                        Thread.sleep(10);
-                    }
                 }
 
                 progressDialog.setProgress(100);
@@ -1064,10 +1094,19 @@ public class CompressionGUI extends JFrame {
 
             @Override
             protected void done() {
-                progressDialog.dispose();
-                setButtonsEnabled(true);
-                updateStatus("Ready");
-                currentWorker = null;
+                try {
+                    get();
+                } catch (Exception e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    logError("Extraction failed: " + cause.getMessage() + "\n");
+                    cause.printStackTrace();
+                } finally {
+                    progressDialog.dispose();
+                    setButtonsEnabled(true);
+                    updateStatus("Ready");
+                    currentWorker = null;
+                    currentProgress = null;
+                }
             }
         };
 
@@ -1078,51 +1117,231 @@ public class CompressionGUI extends JFrame {
 
     private void viewSelectedFile() {
         int row = fileTable.getSelectedRow();
-        if (row < 0 || row >= currentFiles.size()) {
+        if (row < 0 || currentArchive == null) {
             JOptionPane.showMessageDialog(this, "Please select a file to view", "No Selection", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
 
-        ArchiveManager.RestoredFile file = currentFiles.get(row);
-        String content;
+        // Only the start of the entry is decompressed, in the background
+        Metadata entry = tableModel.getEntry(fileTable.convertRowIndexToModel(row));
+        String path = entry.getRelativePath();
+        File archive = currentArchive;
+        updateStatus("Loading preview...");
+        new SwingWorker<byte[], Void>() {
+            @Override
+            protected byte[] doInBackground() throws Exception {
+                return new ArchiveManager().previewEntry(archive, path, PREVIEW_BYTES);
+            }
 
-        try {
-            content = new String(file.getData(), "UTF-8");
-            if (content.length() > 10000) {
-                content = content.substring(0, 10000) + "\n\n... (truncated)";
+            @Override
+            protected void done() {
+                updateStatus("Ready");
+                try {
+                    byte[] data = get();
+                    if (data != null) {
+                        showPreview(path, data, entry.getOriginalSize());
+                    }
+                } catch (Exception e) {
+                    Throwable cause = e instanceof java.util.concurrent.ExecutionException ? e.getCause() : e;
+                    logError("Could not read " + path + ": " + cause.getMessage() + "\n");
+                }
             }
-        } catch (Exception e) {
-            content = "(Binary file - cannot display)";
-        }
+        }.execute();
+    }
 
-        JTextArea textArea = new JTextArea(content);
+    /**
+     * Show the start of an entry as text and as a hex dump, opening on the
+     * hex view when the data does not look like text
+     */
+    private void showPreview(String path, byte[] data, long totalSize) {
+        JTextArea textArea = new JTextArea(new String(data, java.nio.charset.StandardCharsets.UTF_8));
         textArea.setEditable(false);
         textArea.setFont(new Font("Consolas", Font.PLAIN, 12));
+        textArea.setCaretPosition(0);
+
+        JTextArea hexArea = new JTextArea(formatHexDump(data));
+        hexArea.setEditable(false);
+        hexArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        hexArea.setCaretPosition(0);
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Text", new JScrollPane(textArea));
+        tabs.addTab("Hex", new JScrollPane(hexArea));
+        if (looksBinary(data)) {
+            tabs.setSelectedIndex(1);
+        }
 
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setPreferredSize(new Dimension(600, 400));
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        String shown = data.length < totalSize
+            ? "Showing first " + formatBytes(data.length) + " of " + formatBytes(totalSize)
+            : formatBytes(totalSize);
+        panel.add(new JLabel(shown), BorderLayout.NORTH);
+        panel.add(tabs, BorderLayout.CENTER);
+        panel.setPreferredSize(new Dimension(680, 440));
+
+        JOptionPane.showMessageDialog(this, panel, "View: " + path, JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * Treat data as binary if it has NUL bytes or many other control characters
+     */
+    private static boolean looksBinary(byte[] data) {
+        int control = 0;
+        for (byte b : data) {
+            if (b == 0) {
+                return true;
+            }
+            if (b < 0x20 && b != '\n' && b != '\r' && b != '\t' && b != '\f') {
+                control++;
+            }
+        }
+        return control > data.length / 20;
+    }
 
-        JOptionPane.showMessageDialog(this, scrollPane, "View: " + file.getPath(), JOptionPane.PLAIN_MESSAGE);
+    /**
+     * Format data as offset, sixteen hex bytes and their printable characters per line
+     */
+    private static String formatHexDump(byte[] data) {
+        final char[] digits = "0123456789abcdef".toCharArray();
+        StringBuilder sb = new StringBuilder(data.length * 4 + (data.length / 16 + 1) * 12);
+        for (int offset = 0; offset < data.length; offset += 16) {
+            String address = Integer.toHexString(offset);
+            for (int i = address.length(); i < 8; i++) {
+                sb.append('0');
+            }
+            sb.append(address).append("  ");
+            int end = Math.min(offset + 16, data.length);
+            for (int i = offset; i < offset + 16; i++) {
+                if (i < end) {
+                    sb.append(digits[(data[i] >> 4) & 0xF]).append(digits[data[i] & 0xF]).append(' ');
+                } else {
+                    sb.append("   ");
+                }
+                if (i == offset + 7) {
+                    sb.append(' ');
+                }
+            }
+            sb.append(" |");
+            for (int i = offset; i < end; i++) {
+                int c = data[i] & 0xFF;
+                sb.append(c >= 0x20 && c < 0x7F ? (char) c : '.');
+            }
+            sb.append("|\n");
+        }
+        return sb.toString();
     }
 
     private void deleteSelectedFiles() {
-        JOptionPane.showMessageDialog(this,
-            "Delete from archive not supported in this version.\nExtract files, modify, and create a new archive.",
-            "Feature Not Available",
-            JOptionPane.INFORMATION_MESSAGE);
+        if (currentArchive == null) {
+            JOptionPane.showMessageDialog(this, "No archive is currently open", "No Archive", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        int[] rows = fileTable.getSelectedRows();
+        if (rows.length == 0) {
+            JOptionPane.showMessageDialog(this, "Please select files to delete", "No Selection", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (int row : rows) {
+            paths.add(tableModel.getEntry(fileTable.convertRowIndexToModel(row)).getRelativePath());
+        }
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Delete " + paths.size() + " file(s) from " + currentArchive.getName() + "?",
+            "Confirm Delete",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.WARNING_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        File archive = currentArchive;
+        runArchiveUpdate("Deleting files...", () -> {
+            int deleted = new ArchiveManager().deleteFromArchive(archive, paths);
+            return "Deleted " + deleted + " file(s) from archive\n";
+        });
     }
 
-    private void showArchiveInfo() {
+    private void addFilesToArchive() {
         if (currentArchive == null) {
             JOptionPane.showMessageDialog(this, "No archive is currently open", "No Archive", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
 
-        long totalUncompressed = 0;
-        for (ArchiveManager.RestoredFile file : currentFiles) {
-            totalUncompressed += file.getData().length;
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setDialogTitle("Select Files or Folder to Add");
+
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
 
+        File[] selectedFiles = chooser.getSelectedFiles();
+        File archive = currentArchive;
+        runArchiveUpdate("Updating archive...", () -> {
+            List<ArchiveManager.FileEntry> fileEntries = new DirectoryScanner(selectedFiles).scanAll();
+            ArchiveManager.CompressionResult result = new ArchiveManager().updateArchive(archive, fileEntries);
+            return "Added or replaced " + result.getMetadataList().size() + " of " + fileEntries.size()
+                + " file(s), " + (fileEntries.size() - result.getMetadataList().size()) + " unchanged\n";
+        });
+    }
+
+    private void compactArchive() {
+        if (currentArchive == null) {
+            JOptionPane.showMessageDialog(this, "No archive is currently open", "No Archive", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        File archive = currentArchive;
+        runArchiveUpdate("Compacting archive...", () -> {
+            long reclaimed = new ArchiveManager().compactArchive(archive);
+            return "Compacted archive, reclaimed " + formatBytes(Math.max(0, reclaimed)) + "\n";
+        });
+    }
+
+    /**
+     * Run an in-place archive modification in the background, then reload the archive
+     */
+    private void runArchiveUpdate(String status, java.util.concurrent.Callable<String> action) {
+        File archive = currentArchive;
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                setButtonsEnabled(false);
+                updateStatus(status);
+                showProgress(true);
+                SwingUtilities.invokeLater(() -> progressBar.setIndeterminate(true));
+                return action.call();
+            }
+
+            @Override
+            protected void done() {
+                showProgress(false);
+                setButtonsEnabled(true);
+                updateStatus("Ready");
+                try {
+                    logSuccess(get());
+                    loadArchive(archive);
+                } catch (Exception e) {
+                    logError("Archive update failed: " + e.getMessage() + "\n");
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showArchiveInfo() {
+        if (currentArchive == null) {
+            JOptionPane.showMessageDialog(this, "No archive is currently open", "No Archive", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        long totalUncompressed = tableModel.getTotalOriginalSize();
+
         String info = String.format(
             "Archive: %s\n\n" +
             "Location: %s\n" +
@@ -1133,7 +1352,7 @@ public class CompressionGUI extends JFrame {
             currentArchive.getName(),
             currentArchive.getParent(),
             formatBytes(currentArchive.length()),
-            currentFiles.size(),
+            tableModel.getEntryCount(),
             formatBytes(totalUncompressed),
             totalUncompressed > 0 ? (1.0 - (double)currentArchive.length() / totalUncompressed) * 100 : 0
         );
@@ -1160,21 +1379,6 @@ public class CompressionGUI extends JFrame {
 
     // ==================== Utilities ====================
 
-    private void collectFiles(File file, File baseDir, List<ArchiveManager.FileEntry> entries) throws IOException {
-        if (file.isFile()) {
-            byte[] data = java.nio.file.Files.readAllBytes(file.toPath());
-            String relativePath = baseDir.toPath().relativize(file.toPath()).toString();
-            entries.add(new ArchiveManager.FileEntry(relativePath, file.getName(), data));
-        } else if (file.isDirectory()) {
-            File[] files = file.listFiles();
-            if (files != null) {
-                for (File f : files) {
-                    collectFiles(f, baseDir, entries);
-                }
-            }
-        }
-    }
-
     private void updateStatus(String status) {
         SwingUtilities.invokeLater(() -> statusLabel.setText(status));
     }
@@ -1197,6 +1401,53 @@ public class CompressionGUI extends JFrame {
         });
     }
 
+    /**
+     * Create a token that drives a progress dialog, mapping the operation's
+     * fraction done onto the range from..to of the bar. Updates are throttled
+     * so fast codecs do not flood the event queue.
+     */
+    private ProgressToken createProgressToken(EnhancedProgressDialog dialog, String verb, int from, int to) {
+        return new ProgressToken(new ProgressToken.ProgressListener() {
+            private long lastUpdate;
+            private int lastValue = -1;
+
+            @Override
+            public void progressChanged(ProgressToken token) {
+                double fraction = token.getFraction();
+                int value = fraction < 0 ? from : from + (int) (fraction * (to - from));
+                long now = System.currentTimeMillis();
+                if (value == lastValue && now - lastUpdate < 250) {
+                    return;
+                }
+                lastValue = value;
+                lastUpdate = now;
+
+                dialog.setProgress(value);
+                StringBuilder detail = new StringBuilder(verb);
+                if (token.getCurrentItem() != null) {
+                    detail.append(": ").append(token.getCurrentItem());
+                }
+                long rate = (long) token.getBytesPerSecond();
+                if (rate > 0) {
+                    detail.append("  (").append(formatBytes(rate)).append("/s");
+                    long eta = token.getEtaMillis();
+                    if (eta >= 0) {
+                        detail.append(", ").append(formatEta(eta)).append(" left");
+                    }
+                    detail.append(")");
+                }
+                dialog.setDetail(detail.toString());
+            }
+        });
+    }
+
+    private String formatEta(long millis) {
+        long seconds = (millis + 999) / 1000;
+        if (seconds < 60) return seconds + "s";
+        if (seconds < 3600) return (seconds / 60) + "m " + (seconds % 60) + "s";
+        return (seconds / 3600) + "h " + (seconds % 3600 / 60) + "m";
+    }
+
     private String formatBytes(long bytes) {
         if (bytes < 1024) return bytes + " B";
         int exp = (int) (Math.log(bytes) / Math.log(1024));
@@ -1234,6 +1485,8 @@ public class CompressionGUI extends JFrame {
      * Enhanced Progress Dialog with Cancel button support
      */
     private static class EnhancedProgressDialog extends JDialog {
+        private static final long serialVersionUID = 1L;
+
         private JProgressBar progressBar;
         private JLabel statusLabel;
         private JLabel detailLabel;
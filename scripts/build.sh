@@ -12,14 +12,14 @@ mkdir -p build/classes
 
 # Compile all Java files with FlatLaf in classpath
 echo "Compiling Java files..."
-find src/main/java -name "*.java" > sources.txt
+find myzip-core/src/main/java myzip-cli/src/main/java myzip-gui/src/main/java -name "*.java" > sources.txt
 javac -encoding UTF-8 -cp "lib/*" -d build/classes @sources.txt
 rm sources.txt
 
 # Copy resources (icons, etc.) to build directory
 echo "Copying resources..."
-if [ -d "src/main/resources" ]; then
-    cp -r src/main/resources/* build/classes/
+if [ -d "myzip-gui/src/main/resources" ]; then
+    cp -r myzip-gui/src/main/resources/* build/classes/
     echo "✓ Resources copied"
 fi
 
@@ -27,4 +27,5 @@ echo ""
 echo "✓ Build successful!"
 echo ""
 echo "To run the GUI:  ./scripts/run-gui.sh"
+echo "To run the CLI:  ./scripts/myzip.sh --help"
 echo ""
@@ -12,7 +12,9 @@ if exist "build\classes" (
 
 REM Remove any stray .class files in src directory
 echo Removing any stray .class files...
-for /r "src" %%f in (*.class) do del "%%f" >nul 2>&1
+for /r "myzip-core\src" %%f in (*.class) do del "%%f" >nul 2>&1
+for /r "myzip-cli\src" %%f in (*.class) do del "%%f" >nul 2>&1
+for /r "myzip-gui\src" %%f in (*.class) do del "%%f" >nul 2>&1
 
 REM Remove Windows-specific files
 for /r %%f in (Thumbs.db desktop.ini) do del "%%f" >nul 2>&1
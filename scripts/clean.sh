@@ -10,7 +10,7 @@ rm -rf build/classes/*
 
 # Remove any stray .class files in src directory (shouldn't be there!)
 echo "Removing any stray .class files..."
-find src -name "*.class" -type f -delete 2>/dev/null || true
+find myzip-*/src -name "*.class" -type f -delete 2>/dev/null || true
 
 # Remove Mac-specific files
 find . -name ".DS_Store" -type f -delete 2>/dev/null || true
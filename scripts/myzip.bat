@@ -0,0 +1,4 @@
+@echo off
+REM Command-line front end; run scripts\build.bat first.
+REM Usage: scripts\myzip.bat COMMAND [options] ARCHIVE [PATH...]
+java -cp "%~dp0\..\build\classes;%~dp0\..\lib\*" com.myzip.cli.MyZipCli %*
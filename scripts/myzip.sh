@@ -0,0 +1,5 @@
+#!/usr/bin/env bash
+# Command-line front end; run ./scripts/build.sh first.
+# Usage: ./scripts/myzip.sh COMMAND [options] ARCHIVE [PATH...]
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+exec java -cp "$ROOT/build/classes:$ROOT/lib/*" com.myzip.cli.MyZipCli "$@"
@@ -12,14 +12,14 @@ REM Ensure build directory exists
 if not exist "build\classes" mkdir "build\classes"
 
 REM Compile all dependencies with FlatLaf in classpath
-dir /s /b src\main\java\*.java > sources.txt
+dir /s /b myzip-core\src\main\java\*.java myzip-cli\src\main\java\*.java myzip-gui\src\main\java\*.java > sources.txt
 javac -encoding UTF-8 -cp "lib\*" -d build\classes @sources.txt
 del sources.txt
 
 REM Copy resources (icons, etc.) to build directory
 echo Copying resources...
-if exist "src\main\resources" (
-    xcopy /E /I /Y "src\main\resources\*" "build\classes\"
+if exist "myzip-gui\src\main\resources" (
+    xcopy /E /I /Y "myzip-gui\src\main\resources\*" "build\classes\"
     if errorlevel 1 (
         echo ERROR: Failed to copy resources
         pause
@@ -27,7 +27,7 @@ if exist "src\main\resources" (
     )
     echo Resources copied successfully
 ) else (
-    echo WARNING: src\main\resources directory not found
+    echo WARNING: myzip-gui\src\main\resources directory not found
 )
 
 echo Compilation successful!
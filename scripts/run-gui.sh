@@ -14,13 +14,13 @@ echo "🔨 Compiling Java files..."
 mkdir -p build/classes
 
 # Compile with FlatLaf library in classpath
-find src/main/java -name "*.java" > sources.txt
+find myzip-core/src/main/java myzip-cli/src/main/java myzip-gui/src/main/java -name "*.java" > sources.txt
 javac -encoding UTF-8 -cp "lib/*" -d build/classes @sources.txt
 rm sources.txt
 
 # Copy resources (icons, etc.) to build directory
-if [ -d "src/main/resources" ]; then
-    cp -r src/main/resources/* build/classes/
+if [ -d "myzip-gui/src/main/resources" ]; then
+    cp -r myzip-gui/src/main/resources/* build/classes/
 fi
 
 echo "✓ Compilation successful!"